@@ -1,9 +1,17 @@
 package in.sp.main;
 
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
 
 /**
  * The {@code AdminService} class provides administrative and analytical
@@ -15,15 +23,23 @@ import java.sql.Statement;
  *     <li>Total number of students</li>
  *     <li>Highest percentage scored</li>
  *     <li>Lowest percentage scored</li>
+ *     <li>Top-N / bottom-N merit lists, overall and per department</li>
+ *     <li>A student's rank and percentile within their department</li>
  * </ul>
  * <p>
+ * Departments are compared like the database compares them (case-insensitively),
+ * so merit lists and department ranks agree on who belongs together.
+ * Rankings order students by percentage (highest first) and break ties on
+ * {@code roll_no} (ascending, by code point in both Java and SQL), so every
+ * list is deterministic and agrees with the department ranks.
+ * <p>
  * This class is mainly used by the {@link UI} layer when the user selects
  * the "Statistics" option in the main menu.
  */
 public class AdminService {
 
-    /** Active database connection used to execute SQL queries. */
-    private Connection conn;
+    /** Routes the (read-only) statistics queries; see {@link ConnectionRouter}. */
+    private final ConnectionRouter router;
 
     /**
      * Constructs an {@code AdminService} instance with the specified database connection.
@@ -31,7 +47,17 @@ public class AdminService {
      * @param conn Active {@link Connection} object
      */
     public AdminService(Connection conn) {
-        this.conn = conn;
+        this(ConnectionRouter.single(conn));
+    }
+
+    /**
+     * Constructs an {@code AdminService} that runs its queries on a replica when
+     * {@code router} has a healthy one, so reporting does not load the primary.
+     *
+     * @param router {@link ConnectionRouter} for this session
+     */
+    public AdminService(ConnectionRouter router) {
+        this.router = router;
     }
 
     // ===========================================================
@@ -46,7 +72,7 @@ public class AdminService {
      */
     public int getTotalStudents() throws SQLException {
         String sql = "SELECT COUNT(*) AS total FROM students";
-        try (Statement st = conn.createStatement();
+        try (Statement st = router.read().createStatement();
              ResultSet rs = st.executeQuery(sql)) {
             if (rs.next())
                 return rs.getInt("total");
@@ -66,7 +92,7 @@ public class AdminService {
      */
     public double getHighestMarks() throws SQLException {
         String sql = "SELECT MAX(percentage) AS max_marks FROM students";
-        try (Statement st = conn.createStatement();
+        try (Statement st = router.read().createStatement();
              ResultSet rs = st.executeQuery(sql)) {
 
             if (rs.next())
@@ -87,7 +113,7 @@ public class AdminService {
      */
     public double getLowestMarks() throws SQLException {
         String sql = "SELECT MIN(percentage) AS min_marks FROM students";
-        try (Statement st = conn.createStatement();
+        try (Statement st = router.read().createStatement();
              ResultSet rs = st.executeQuery(sql)) {
 
             if (rs.next())
@@ -95,4 +121,204 @@ public class AdminService {
         }
         return 0;
     }
+
+    // ===========================================================
+    // =============== RANKINGS / MERIT LISTS ====================
+    // ===========================================================
+
+    /**
+     * A student's position in a ranking.
+     *
+     * @param rank       1-based rank (1 = highest percentage)
+     * @param rollNo     Roll number
+     * @param name       Student name
+     * @param department Department
+     * @param percentage Percentage
+     */
+    public record RankedStudent(int rank, String rollNo, String name, String department, double percentage) {
+    }
+
+    /**
+     * A student's standing within their department.
+     *
+     * @param rank       1-based rank within the department
+     * @param total      Number of students in the department
+     * @param percentile Share of the department ranked at or below this student (0–100]
+     */
+    public record DepartmentRank(int rank, int total, double percentile) {
+    }
+
+    /**
+     * Ranking order: higher percentage first, then lower roll number first.
+     * Roll numbers compare by code point, like the {@code CAST(roll_no AS BINARY)}
+     * tie-breaks in SQL, not by the column's case-insensitive collation.
+     */
+    private static final Comparator<RankedStudent> BEST_FIRST =
+            Comparator.comparingDouble(RankedStudent::percentage).reversed()
+                      .thenComparing(RankedStudent::rollNo);
+
+    /** Key used for the single overall list when not grouping by department. */
+    private static final String ALL = "";
+
+    /**
+     * Returns the {@code n} highest-ranked students overall.
+     *
+     * @param n Number of students
+     * @return Students ordered best first
+     * @throws SQLException if a database access error occurs
+     */
+    public List<RankedStudent> getTopN(int n) throws SQLException {
+        return rank(collect(n, true, false), n, true).getOrDefault(ALL, List.of());
+    }
+
+    /**
+     * Returns the {@code n} lowest-ranked students overall.
+     *
+     * @param n Number of students
+     * @return Students ordered worst first
+     * @throws SQLException if a database access error occurs
+     */
+    public List<RankedStudent> getBottomN(int n) throws SQLException {
+        return rank(collect(n, false, false), n, false).getOrDefault(ALL, List.of());
+    }
+
+    /**
+     * Returns the {@code n} highest-ranked students of every department.
+     *
+     * @param n Number of students per department
+     * @return Department → students ordered best first (departments sorted by name,
+     *         students without a department first under a {@code null} key)
+     * @throws SQLException if a database access error occurs
+     */
+    public Map<String, List<RankedStudent>> getTopNByDepartment(int n) throws SQLException {
+        return rank(collect(n, true, true), n, true);
+    }
+
+    /**
+     * Returns the {@code n} lowest-ranked students of every department.
+     *
+     * @param n Number of students per department
+     * @return Department → students ordered worst first (departments sorted by name,
+     *         students without a department first under a {@code null} key)
+     * @throws SQLException if a database access error occurs
+     */
+    public Map<String, List<RankedStudent>> getBottomNByDepartment(int n) throws SQLException {
+        return rank(collect(n, false, true), n, false);
+    }
+
+    /**
+     * Returns a student's rank and percentile within their department.
+     * <p>
+     * Computed by a single indexed self-join over the student's department,
+     * so it does not scan other departments.
+     *
+     * @param rollNo Roll number of the student
+     * @return The {@link DepartmentRank}, or {@code null} if the student does not exist
+     * @throws SQLException if a database access error occurs
+     */
+    public DepartmentRank getDepartmentRank(String rollNo) throws SQLException {
+        String sql = "SELECT COUNT(*) AS total, "
+                   + "SUM(o.percentage > s.percentage OR (o.percentage = s.percentage "
+                   + "AND CAST(o.roll_no AS BINARY) < CAST(s.roll_no AS BINARY))) AS ahead "
+                   + "FROM students s JOIN students o ON o.department <=> s.department "
+                   + "WHERE s.roll_no = ?";
+        try (PreparedStatement ps = router.read().prepareStatement(sql)) {
+            ps.setString(1, rollNo);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt("total") == 0)
+                    return null;
+                int total = rs.getInt("total");
+                int rank = rs.getInt("ahead") + 1;
+                return new DepartmentRank(rank, total, (total - rank + 1) * 100.0 / total);
+            }
+        }
+    }
+
+    /**
+     * The candidates of one merit list before ranking.
+     *
+     * @param name Department as first seen ({@code null} for no department, {@code ""} for the overall list)
+     * @param size Number of students in the group
+     * @param kept The {@code n} best (or worst) students of the group, in no particular order
+     */
+    record Group(String name, int size, List<RankedStudent> kept) {
+    }
+
+    /**
+     * Streams {@code students} once and keeps, per group, a bounded heap of
+     * the {@code n} best (or worst) students seen so far, so memory is
+     * O(groups × n) rather than O(students).
+     *
+     * @param n            List length per group
+     * @param best         {@code true} for top lists, {@code false} for bottom lists
+     * @param byDepartment {@code true} to group by department, {@code false} for one overall list
+     * @return Group key (the department's collation weight, or {@code ""}) → candidates
+     */
+    Map<String, Group> collect(int n, boolean best, boolean byDepartment) throws SQLException {
+        if (n <= 0)
+            throw new IllegalArgumentException("n must be positive");
+
+        // The heap head is the entry that would be dropped first
+        Comparator<RankedStudent> keepOrder = best ? BEST_FIRST : BEST_FIRST.reversed();
+        Comparator<RankedStudent> heapOrder = keepOrder.reversed();
+
+        // Groups are keyed by the department's collation weight, so "CSE" and "cse" form one
+        // department as in getDepartmentRank; a NULL department gets the null key
+        Map<String, PriorityQueue<RankedStudent>> heaps = new HashMap<>();
+        Map<String, Integer> sizes = new HashMap<>();
+        Map<String, String> names = new HashMap<>();
+
+        String sql = "SELECT roll_no, name, department, percentage, HEX(WEIGHT_STRING(department)) FROM students";
+        try (Statement st = router.read().createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(Integer.MIN_VALUE); // MySQL: stream rows instead of buffering the table
+            try (ResultSet rs = st.executeQuery(sql)) {
+                while (rs.next()) {
+                    String dept = rs.getString(3);
+                    String group = byDepartment ? rs.getString(5) : ALL;
+                    names.putIfAbsent(group, byDepartment ? dept : ALL);
+                    RankedStudent candidate = new RankedStudent(0, rs.getString(1), rs.getString(2), dept,
+                            rs.getDouble(4));
+
+                    sizes.merge(group, 1, Integer::sum);
+                    PriorityQueue<RankedStudent> heap = heaps.computeIfAbsent(group,
+                            g -> new PriorityQueue<>(n + 1, heapOrder));
+                    if (heap.size() < n) {
+                        heap.add(candidate);
+                    } else if (keepOrder.compare(candidate, heap.peek()) < 0) {
+                        heap.poll();
+                        heap.add(candidate);
+                    }
+                }
+            }
+        }
+
+        Map<String, Group> groups = new HashMap<>();
+        for (Map.Entry<String, PriorityQueue<RankedStudent>> e : heaps.entrySet())
+            groups.put(e.getKey(), new Group(names.get(e.getKey()), sizes.get(e.getKey()), List.copyOf(e.getValue())));
+        return groups;
+    }
+
+    /**
+     * Orders the candidates of each group, keeps the first {@code n} and
+     * numbers them; bottom lists are numbered from the end of the group.
+     *
+     * @return Department → ranked list (best or worst first), sorted by department
+     */
+    static Map<String, List<RankedStudent>> rank(Map<String, Group> groups, int n, boolean best) {
+        Comparator<RankedStudent> keepOrder = best ? BEST_FIRST : BEST_FIRST.reversed();
+        Map<String, List<RankedStudent>> result = new TreeMap<>(Comparator.nullsFirst(Comparator.naturalOrder()));
+        for (Group g : groups.values()) {
+            List<RankedStudent> list = new ArrayList<>(g.kept());
+            list.sort(keepOrder);
+            int size = g.size();
+            List<RankedStudent> ranked = new ArrayList<>(Math.min(n, list.size()));
+            for (int i = 0; i < Math.min(n, list.size()); i++) {
+                RankedStudent r = list.get(i);
+                int rank = best ? i + 1 : size - i;
+                ranked.add(new RankedStudent(rank, r.rollNo(), r.name(), r.department(), r.percentage()));
+            }
+            result.put(g.name(), ranked);
+        }
+        return result;
+    }
 }
@@ -0,0 +1,376 @@
+package in.sp.main;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The {@code AuditLog} class keeps an append-only audit trail of every student
+ * mutation made through {@link StudentDao}, without adding a synchronous write
+ * to the caller's path.
+ * <p>
+ * Mutations are published as events into a bounded, lock-free ring buffer
+ * (multi-producer, single-consumer). A background writer thread drains the
+ * buffer and group-commits events in batches to an append-only file, one
+ * tab-separated line per event:
+ * <pre>
+ *     timestamp  actor  type  roll_no  details
+ * </pre>
+ * Durability is configurable with {@link Durability}. If the buffer is full,
+ * producers wait for free space rather than dropping events. If the writer
+ * fails (e.g. the disk is full), events can no longer be written: they are
+ * dropped and counted instead, the failure is reported by {@link #getMetrics()}
+ * and rethrown by {@link #close()}.
+ * <p>
+ * Register the log with {@link StudentDao#addListener(StudentListener)} and
+ * close it on shutdown to flush and sync the remaining events.
+ */
+public class AuditLog implements StudentListener, AutoCloseable {
+
+    /** When the audit file is forced to stable storage. */
+    public enum Durability {
+        /** Never fsync explicitly; the OS flushes the page cache when it likes. */
+        NONE,
+        /** Fsync at most once per configured interval (group commit over time). */
+        INTERVAL,
+        /** Fsync after every written batch. */
+        EVERY_BATCH
+    }
+
+    /**
+     * Point-in-time metrics of the audit pipeline.
+     *
+     * @param queueDepth     Events published but not yet written
+     * @param published      Total events published
+     * @param written        Total events written to the file
+     * @param batches        Number of batches written
+     * @param fsyncs         Number of fsync calls
+     * @param producerWaits  Times a producer had to wait because the buffer was full
+     * @param dropped        Events lost because the writer failed
+     * @param lastBatchLagMs Age of the oldest event in the last batch when it was written
+     * @param maxLagMs       Largest batch lag observed
+     * @param failure        Why the writer stopped, or {@code null} while it is healthy
+     */
+    public record Metrics(long queueDepth, long published, long written, long batches, long fsyncs,
+                          long producerWaits, long dropped, long lastBatchLagMs, long maxLagMs,
+                          IOException failure) {
+    }
+
+    /** A single audit event. */
+    private record Event(long timeMillis, String actor, ChangeType type, String rollNo, String details) {
+    }
+
+    /** Maximum number of events written per batch. */
+    private static final int MAX_BATCH = 512;
+
+    /** Producer back-off while the buffer is full. */
+    private static final long FULL_PARK_NANOS = 200_000;
+
+    /** Longest writer sleep when the buffer is empty; producers wake it earlier. */
+    private static final long IDLE_PARK_NANOS = 1_000_000_000L;
+
+    private final RingBuffer buffer;
+    private final FileChannel channel;
+    private final Durability durability;
+    private final long fsyncIntervalMillis;
+    private final Thread writer;
+    private volatile boolean running = true;
+    /** Set while the writer is parked on an empty buffer, so producers know to wake it. */
+    private volatile boolean idle;
+    private volatile IOException failure;
+    private volatile String actor = "-";
+
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong producerWaits = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long written;
+    private volatile long batches;
+    private volatile long fsyncs;
+    private volatile long lastBatchLagMs;
+    private volatile long maxLagMs;
+
+    /**
+     * Opens (or creates) an audit file and starts the background writer.
+     *
+     * @param file                Audit file; events are appended
+     * @param capacity            Ring buffer capacity (rounded up to a power of two)
+     * @param durability          Fsync policy
+     * @param fsyncIntervalMillis Interval for {@link Durability#INTERVAL}
+     * @throws IOException if the file cannot be opened
+     */
+    public AuditLog(Path file, int capacity, Durability durability, long fsyncIntervalMillis) throws IOException {
+        this.buffer = new RingBuffer(capacity);
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.durability = durability;
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+        this.writer = new Thread(this::drainLoop, "audit-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Opens an audit file with a 64K-event buffer and fsync once per second.
+     *
+     * @param file Audit file; events are appended
+     * @return A running {@code AuditLog}
+     * @throws IOException if the file cannot be opened
+     */
+    public static AuditLog open(Path file) throws IOException {
+        return new AuditLog(file, 1 << 16, Durability.INTERVAL, 1000);
+    }
+
+    /** @param actor Name recorded with subsequent events (e.g. the logged-in admin) */
+    public void setActor(String actor) {
+        this.actor = actor;
+    }
+
+    // ===========================================================
+    // =============== PRODUCER SIDE =============================
+    // ===========================================================
+
+    @Override
+    public void onStudentChanged(ChangeType type, String rollNo, Student s) {
+        String details = s == null ? "" :
+                "name=" + s.getName() + ";dept=" + s.getDepartment() + ";email=" + s.getEmail()
+                + ";phone=" + s.getPhone() + ";sub1=" + s.getSub1() + ";sub2=" + s.getSub2()
+                + ";sub3=" + s.getSub3() + ";pct=" + s.getPercentage() + ";grade=" + s.getGrade();
+        publish(new Event(System.currentTimeMillis(), actor, type, rollNo, details));
+    }
+
+    /**
+     * Enqueues an event, waiting for space if the buffer is full. Once the
+     * writer has failed nothing drains the buffer any more, so the event is
+     * dropped and counted instead.
+     */
+    private void publish(Event e) {
+        if (!running)
+            throw new IllegalStateException("Audit log is closed");
+        if (failure != null) {
+            dropped.incrementAndGet();
+            return;
+        }
+        if (!buffer.offer(e)) {
+            producerWaits.incrementAndGet();
+            int spins = 0;
+            while (!buffer.offer(e)) {
+                if (failure != null) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+                if (++spins < 100)
+                    Thread.onSpinWait();
+                else
+                    LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+        }
+        published.incrementAndGet();
+        if (idle)
+            LockSupport.unpark(writer);
+    }
+
+    // ===========================================================
+    // =============== WRITER SIDE ===============================
+    // ===========================================================
+
+    private void drainLoop() {
+        StringBuilder text = new StringBuilder(64 * 1024);
+        ByteBuffer bytes = ByteBuffer.allocateDirect(64 * 1024);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        long lastSync = System.currentTimeMillis();
+        boolean unsynced = false;
+
+        try {
+            while (true) {
+                int n = 0;
+                long oldest = Long.MAX_VALUE;
+                Event e;
+                while (n < MAX_BATCH && (e = buffer.poll()) != null) {
+                    append(text, e);
+                    oldest = Math.min(oldest, e.timeMillis());
+                    n++;
+                }
+
+                long now = System.currentTimeMillis();
+                if (n > 0) {
+                    writeFully(text, bytes, encoder);
+                    text.setLength(0);
+                    written += n;
+                    batches++;
+                    lastBatchLagMs = now - oldest;
+                    maxLagMs = Math.max(maxLagMs, lastBatchLagMs);
+                    unsynced = true;
+                }
+
+                if (unsynced && (durability == Durability.EVERY_BATCH
+                        || (durability == Durability.INTERVAL && now - lastSync >= fsyncIntervalMillis))) {
+                    channel.force(false);
+                    fsyncs++;
+                    lastSync = now;
+                    unsynced = false;
+                }
+
+                if (n == 0) {
+                    if (!running && buffer.isEmpty())
+                        break;
+                    // Sleep until a producer (or close) unparks us, or the next interval fsync is due.
+                    // Re-checking after setting idle means an event published meanwhile is not missed.
+                    idle = true;
+                    if (buffer.isEmpty() && running) {
+                        long sleepNanos = unsynced && durability == Durability.INTERVAL
+                                ? Math.max(1, lastSync + fsyncIntervalMillis - now) * 1_000_000L
+                                : IDLE_PARK_NANOS;
+                        LockSupport.parkNanos(Math.min(sleepNanos, IDLE_PARK_NANOS));
+                    }
+                    idle = false;
+                }
+            }
+            if (unsynced && durability != Durability.NONE) {
+                channel.force(false);
+                fsyncs++;
+            }
+        } catch (IOException | RuntimeException ex) {
+            failure = ex instanceof IOException io ? io : new IOException(ex);
+            // Events still queued will never be written
+            while (buffer.poll() != null)
+                dropped.incrementAndGet();
+            System.err.println("Audit log writer failed: " + ex);
+        }
+    }
+
+    private static void append(StringBuilder sb, Event e) {
+        sb.append(Instant.ofEpochMilli(e.timeMillis())).append('\t')
+          .append(e.actor()).append('\t')
+          .append(e.type()).append('\t')
+          .append(e.rollNo()).append('\t')
+          .append(e.details()).append('\n');
+    }
+
+    /** Encodes the batch into the reusable direct buffer and writes it in as few syscalls as possible. */
+    private void writeFully(CharSequence text, ByteBuffer bytes, CharsetEncoder encoder) throws IOException {
+        CharBuffer chars = CharBuffer.wrap(text);
+        encoder.reset();
+        while (true) {
+            CoderResult r = encoder.encode(chars, bytes, true);
+            if (r.isUnderflow())
+                r = encoder.flush(bytes);
+            bytes.flip();
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+            bytes.clear();
+            if (r.isUnderflow())
+                return;
+        }
+    }
+
+    // ===========================================================
+    // =============== METRICS / SHUTDOWN ========================
+    // ===========================================================
+
+    /** @return Current pipeline metrics */
+    public Metrics getMetrics() {
+        return new Metrics(buffer.size(), published.get(), written, batches, fsyncs,
+                producerWaits.get(), dropped.get(), lastBatchLagMs, maxLagMs, failure);
+    }
+
+    /**
+     * Stops accepting events, drains and syncs everything already published,
+     * and closes the file.
+     *
+     * @throws IOException if the file cannot be closed, or the failure that
+     *                     stopped the writer (events were lost then)
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+        IOException f = failure;
+        if (f != null)
+            throw new IOException("Audit log writer failed, " + dropped.get() + " events dropped", f);
+    }
+
+    // ===========================================================
+    // =============== LOCK-FREE RING BUFFER =====================
+    // ===========================================================
+
+    /**
+     * Bounded multi-producer / single-consumer queue (Vyukov style).
+     * Each slot carries a sequence number that tells producers and the consumer
+     * whether the slot is free or filled for a given lap, so no locks are needed.
+     */
+    private static final class RingBuffer {
+
+        private final Object[] slots;
+        private final AtomicLongArray sequence;
+        private final int mask;
+        private final AtomicLong tail = new AtomicLong();
+        private volatile long head;
+
+        RingBuffer(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            slots = new Object[size];
+            sequence = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++)
+                sequence.set(i, i);
+            mask = size - 1;
+        }
+
+        boolean offer(Object e) {
+            long pos = tail.get();
+            while (true) {
+                int idx = (int) (pos & mask);
+                long diff = sequence.get(idx) - pos;
+                if (diff == 0) {
+                    if (tail.compareAndSet(pos, pos + 1)) {
+                        slots[idx] = e;
+                        sequence.lazySet(idx, pos + 1);
+                        return true;
+                    }
+                    pos = tail.get();
+                } else if (diff < 0) {
+                    return false; // full
+                } else {
+                    pos = tail.get();
+                }
+            }
+        }
+
+        /** Single consumer only. */
+        @SuppressWarnings("unchecked")
+        <T> T poll() {
+            long pos = head;
+            int idx = (int) (pos & mask);
+            if (sequence.get(idx) != pos + 1)
+                return null; // empty, or producer still writing the slot
+            T e = (T) slots[idx];
+            slots[idx] = null;
+            sequence.lazySet(idx, pos + mask + 1);
+            head = pos + 1;
+            return e;
+        }
+
+        long size() {
+            return Math.max(0, tail.get() - head);
+        }
+
+        boolean isEmpty() {
+            return size() == 0;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package in.sp.main;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The {@code BloomFilter} class is a compact probabilistic set of strings.
+ * <p>
+ * {@link #mightContain(String)} never returns {@code false} for a string that
+ * was added, and returns {@code true} for a string that was not added with
+ * roughly the configured false-positive probability, as long as no more than
+ * the expected number of strings have been added. Strings cannot be removed.
+ * <p>
+ * The filter is sized from the expected number of entries {@code n} and the
+ * target false-positive probability {@code p}:
+ * {@code m = -n·ln(p) / ln(2)²} bits and {@code k = (m/n)·ln(2)} hash
+ * functions, derived from one 64-bit hash by double hashing. Bits are set
+ * with compare-and-set, so concurrent adds and lookups are safe.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+    private final long capacity;
+    private final AtomicLong added = new AtomicLong();
+
+    /**
+     * Creates an empty filter.
+     *
+     * @param expectedEntries        Number of entries the filter is sized for (at least 1)
+     * @param falsePositiveProbability Target false-positive rate at that size, e.g. {@code 0.01}
+     */
+    public BloomFilter(long expectedEntries, double falsePositiveProbability) {
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1)
+            throw new IllegalArgumentException("falsePositiveProbability must be between 0 and 1");
+        long n = Math.max(1, expectedEntries);
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveProbability) / (ln2 * ln2));
+        long wordCount = Math.max(1, (m + 63) / 64);
+        if (wordCount > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Filter too large: " + m + " bits");
+        this.words = new AtomicLongArray((int) wordCount);
+        this.bits = wordCount * 64;
+        this.hashes = Math.max(1, (int) Math.round((double) bits / n * ln2));
+        this.capacity = n;
+    }
+
+    /**
+     * Adds a string.
+     *
+     * @param value String to add
+     */
+    public void put(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            int w = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long old;
+            while (((old = words.get(w)) & mask) == 0 && !words.compareAndSet(w, old, old | mask)) {
+                // Retry: another thread changed the word
+            }
+        }
+        added.incrementAndGet();
+    }
+
+    /**
+     * @param value String to test
+     * @return {@code false} if the string was definitely never added, {@code true} if it may have been
+     */
+    public boolean mightContain(String value) {
+        long h1 = hash(value);
+        long h2 = mix(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + i * h2, bits);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /** @return Number of {@link #put} calls so far (duplicates included) */
+    public long size() {
+        return added.get();
+    }
+
+    /** @return Number of entries the filter was sized for */
+    public long capacity() {
+        return capacity;
+    }
+
+    /** @return {@code true} once more entries were added than the filter was sized for */
+    public boolean isSaturated() {
+        return added.get() > capacity;
+    }
+
+    /** @return Size of the bit array in bytes */
+    public long sizeInBytes() {
+        return bits / 8;
+    }
+
+    /** 64-bit FNV-1a over the UTF-16 code units, finalised with {@link #mix(long)}. */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /** MurmurHash3 finaliser: spreads every input bit over the whole word. */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
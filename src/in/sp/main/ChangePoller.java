@@ -0,0 +1,403 @@
+package in.sp.main;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code ChangePoller} class keeps in-process caches coherent across
+ * application instances that share one database.
+ * <p>
+ * Every mutation made through {@link StudentDao} (and every row written by
+ * {@link RosterSyncService}) appends a row to {@code student_changes} in the
+ * same transaction: roll number, kind of change and the id of the writing
+ * instance. The poller reads that log incrementally by {@code seq}, in
+ * batches, on its own connection. Students changed by other instances are
+ * reloaded from the primary with one {@code IN} query per batch and passed to
+ * the registered {@link StudentListener}s with their current row (a roll
+ * number that no longer exists is reported as
+ * {@link StudentListener.ChangeType#DELETE}). Changes made by this instance
+ * were already seen locally and are skipped. Staleness is thus bounded by the
+ * poll interval, without full reloads.
+ * <p>
+ * {@code AUTO_INCREMENT} values are allocated at insert time but become
+ * visible at commit, so a smaller {@code seq} may appear after a larger one
+ * was read. Missing numbers below the highest {@code seq} read are therefore
+ * remembered and looked up again on later polls, for up to
+ * {@link #GAP_TIMEOUT_MILLIS} (after that they are taken to be rolled back).
+ * <p>
+ * With a {@link ShardSet}, every shard has its own log and the poller
+ * follows all of them, each by its own {@code seq}. Students are reloaded
+ * through a {@link ShardedStudentDao}, so a student that moved between shards
+ * is reported with its row on the new shard whichever log is read first.
+ * <p>
+ * The poller starts at the end of the log, so caches should be loaded after
+ * it was created. Rows older than {@link #RETENTION_MILLIS} are purged in
+ * small chunks now and then.
+ */
+public class ChangePoller implements AutoCloseable {
+
+    /** Identifies the change rows written by this JVM. */
+    static final String INSTANCE_ID = UUID.randomUUID().toString();
+
+    /** Appends one row to the change log; bind with {@link #bindChange}. */
+    static final String RECORD_SQL = "INSERT INTO student_changes(roll_no, change_type, instance_id) VALUES(?,?,?)";
+
+    /** Changes read per query. */
+    private static final int BATCH_SIZE = 500;
+
+    /** How long a missing {@code seq} is waited for before it is taken to be rolled back. */
+    static final long GAP_TIMEOUT_MILLIS = 60_000;
+
+    /** Most missing {@code seq} values tracked at once (a large rolled-back batch leaves many). */
+    private static final int MAX_GAPS = 10_000;
+
+    /** Age after which change rows are purged. */
+    static final long RETENTION_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    /** Time between purges. */
+    private static final long PURGE_INTERVAL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    /** Rows deleted per purge statement, to keep lock times short. */
+    private static final int PURGE_CHUNK = 10_000;
+
+    /**
+     * Counters of the poller.
+     *
+     * @param lastSeq   Highest {@code seq} applied (summed over the logs of all shards)
+     * @param applied   Changes of other instances passed to listeners
+     * @param skipped   Changes of this instance, ignored
+     * @param openGaps  Missing {@code seq} values still being waited for
+     * @param lastLagMs Age of the newest change applied by the last poll, when it was applied
+     */
+    public record Metrics(long lastSeq, long applied, long skipped, int openGaps, long lastLagMs) {
+    }
+
+    /** A change log followed by the poller, and the poller's position in it. */
+    private static final class Log {
+        final Connection conn;
+
+        /** Missing {@code seq} → time it was first noticed. */
+        final Map<Long, Long> gaps = new LinkedHashMap<>();
+        long lastSeq;
+
+        Log(Connection conn) throws SQLException {
+            this.conn = conn;
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(seq), 0) FROM student_changes")) {
+                rs.next();
+                this.lastSeq = rs.getLong(1);
+            }
+        }
+    }
+
+    /** One log per database: a single one, or one per shard. */
+    private final List<Log> logs;
+
+    /** The shards followed, or {@code null} for a single database. */
+    private final ShardSet shards;
+    private final StudentDao reader;
+    private final String instanceId;
+    private final List<StudentListener> listeners = new CopyOnWriteArrayList<>();
+    private long lastPurge = System.currentTimeMillis();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile long lastLagMs;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a poller positioned at the current end of the change log.
+     *
+     * @param conn Connection to the primary, used only by this poller
+     * @throws SQLException if the log cannot be read
+     */
+    public ChangePoller(Connection conn) throws SQLException {
+        this(conn, INSTANCE_ID);
+    }
+
+    /**
+     * Creates a poller positioned at the current end of the change log.
+     *
+     * @param conn       Connection to the primary, used only by this poller
+     * @param instanceId Changes written with this id are skipped
+     * @throws SQLException if the log cannot be read
+     */
+    ChangePoller(Connection conn, String instanceId) throws SQLException {
+        this(List.of(conn), null, new StudentDao(conn), instanceId);
+    }
+
+    /**
+     * Creates a poller positioned at the current end of every shard's change log.
+     *
+     * @param shards Shards to follow, used only by this poller (closed with it)
+     * @throws SQLException if a log cannot be read
+     */
+    public ChangePoller(ShardSet shards) throws SQLException {
+        this(connections(shards), shards, new ShardedStudentDao(shards), INSTANCE_ID);
+    }
+
+    private ChangePoller(List<Connection> conns, ShardSet shards, StudentDao reader, String instanceId)
+            throws SQLException {
+        List<Log> list = new ArrayList<>(conns.size());
+        for (Connection c : conns)
+            list.add(new Log(c));
+        this.logs = List.copyOf(list);
+        this.shards = shards;
+        this.reader = reader;
+        this.instanceId = instanceId;
+    }
+
+    private static List<Connection> connections(ShardSet shards) {
+        List<Connection> conns = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++)
+            conns.add(shards.connection(i));
+        return conns;
+    }
+
+    /**
+     * Registers a listener that receives the changes of other instances.
+     * Listeners are called on the polling thread.
+     *
+     * @param listener The {@link StudentListener} to add
+     */
+    public void addListener(StudentListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Polls every {@code intervalMillis} on a daemon thread. Errors are
+     * retried on the next tick.
+     *
+     * @param intervalMillis Time between polls; the bound on staleness
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null)
+            return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "sms-change-poller");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Change poll failed: " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads all changes since the last poll, in batches, and passes those of
+     * other instances to the listeners.
+     *
+     * @return Number of changes passed to listeners
+     * @throws SQLException if the log or the students cannot be read
+     */
+    public synchronized int poll() throws SQLException {
+        int total = 0;
+        for (Log log : logs)
+            total += poll(log);
+        purgeIfDue();
+        return total;
+    }
+
+    private int poll(Log log) throws SQLException {
+        int total = 0;
+        if (!log.gaps.isEmpty())
+            total += apply(readGaps(log));
+        while (true) {
+            List<Change> batch = readAfter(log, log.lastSeq);
+            if (batch.isEmpty())
+                break;
+            long expected = log.lastSeq + 1;
+            long now = System.currentTimeMillis();
+            for (Change c : batch) {
+                for (long missing = expected; missing < c.seq() && log.gaps.size() < MAX_GAPS; missing++)
+                    log.gaps.put(missing, now);
+                expected = c.seq() + 1;
+            }
+            log.lastSeq = batch.get(batch.size() - 1).seq();
+            total += apply(batch);
+            if (batch.size() < BATCH_SIZE)
+                break;
+        }
+        expireGaps(log);
+        return total;
+    }
+
+    /** @return Current counters */
+    public synchronized Metrics getMetrics() {
+        long lastSeq = 0;
+        int openGaps = 0;
+        for (Log log : logs) {
+            lastSeq += log.lastSeq;
+            openGaps += log.gaps.size();
+        }
+        return new Metrics(lastSeq, applied.get(), skipped.get(), openGaps, lastLagMs);
+    }
+
+    /** Stops polling and closes the connection (or the shard set). */
+    @Override
+    public void close() throws SQLException {
+        synchronized (this) {
+            if (scheduler != null)
+                scheduler.shutdownNow();
+        }
+        if (shards != null)
+            shards.close();
+        else
+            logs.get(0).conn.close();
+    }
+
+    // ===========================================================
+    // =============== WRITING ===================================
+    // ===========================================================
+
+    /**
+     * Binds the parameters of {@link #RECORD_SQL}.
+     *
+     * @param ps     Statement prepared from {@link #RECORD_SQL}
+     * @param rollNo Roll number of the changed student
+     * @param type   Kind of change
+     * @throws SQLException if binding fails
+     */
+    static void bindChange(PreparedStatement ps, String rollNo, StudentListener.ChangeType type) throws SQLException {
+        ps.setString(1, rollNo);
+        ps.setString(2, type.name());
+        ps.setString(3, INSTANCE_ID);
+    }
+
+    // ===========================================================
+    // =============== READING ===================================
+    // ===========================================================
+
+    /** One row of {@code student_changes}. */
+    private record Change(long seq, String rollNo, StudentListener.ChangeType type, String instanceId,
+                          long changedAt) {
+    }
+
+    private static List<Change> readAfter(Log log, long seq) throws SQLException {
+        String sql = "SELECT seq, roll_no, change_type, instance_id, changed_at FROM student_changes "
+                   + "WHERE seq > ? ORDER BY seq LIMIT " + BATCH_SIZE;
+        try (PreparedStatement ps = log.conn.prepareStatement(sql)) {
+            ps.setLong(1, seq);
+            return read(ps);
+        }
+    }
+
+    /** Looks up the missing {@code seq} values again; the ones found are no longer gaps. */
+    private static List<Change> readGaps(Log log) throws SQLException {
+        List<Change> found = new ArrayList<>();
+        List<Long> open = new ArrayList<>(log.gaps.keySet());
+        for (int from = 0; from < open.size(); from += BATCH_SIZE) {
+            List<Long> chunk = open.subList(from, Math.min(open.size(), from + BATCH_SIZE));
+            StringBuilder sql = new StringBuilder(
+                    "SELECT seq, roll_no, change_type, instance_id, changed_at FROM student_changes WHERE seq IN (");
+            for (int i = 0; i < chunk.size(); i++)
+                sql.append(i == 0 ? "?" : ",?");
+            sql.append(')');
+            try (PreparedStatement ps = log.conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < chunk.size(); i++)
+                    ps.setLong(i + 1, chunk.get(i));
+                found.addAll(read(ps));
+            }
+        }
+        for (Change c : found)
+            log.gaps.remove(c.seq());
+        return found;
+    }
+
+    private static List<Change> read(PreparedStatement ps) throws SQLException {
+        List<Change> changes = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next())
+                changes.add(new Change(rs.getLong(1), rs.getString(2),
+                        StudentListener.ChangeType.valueOf(rs.getString(3)), rs.getString(4),
+                        rs.getTimestamp(5).getTime()));
+        }
+        return changes;
+    }
+
+    // ===========================================================
+    // =============== APPLYING ==================================
+    // ===========================================================
+
+    /**
+     * Reloads the students named by the foreign changes of a batch and
+     * notifies listeners once per roll number.
+     */
+    private int apply(List<Change> batch) throws SQLException {
+        Map<String, StudentListener.ChangeType> latest = new LinkedHashMap<>();
+        long newest = 0;
+        for (Change c : batch) {
+            if (instanceId.equals(c.instanceId())) {
+                skipped.incrementAndGet();
+                continue;
+            }
+            latest.remove(c.rollNo()); // keep the order of the last change
+            latest.put(c.rollNo(), c.type());
+            newest = Math.max(newest, c.changedAt());
+        }
+        if (latest.isEmpty())
+            return 0;
+
+        // Listeners get the current row, not the logged kind of change: a change
+        // that became visible late (see gaps) must not undo a newer one
+        Map<String, Student> current = new HashMap<>();
+        for (Student s : reader.getStudentsByRollNos(new ArrayList<>(latest.keySet())))
+            current.put(s.getRollNo(), s);
+
+        for (Map.Entry<String, StudentListener.ChangeType> e : latest.entrySet()) {
+            Student s = current.get(e.getKey());
+            StudentListener.ChangeType type = s == null ? StudentListener.ChangeType.DELETE
+                    : e.getValue() == StudentListener.ChangeType.INSERT ? StudentListener.ChangeType.INSERT
+                    : StudentListener.ChangeType.UPDATE;
+            for (StudentListener l : listeners)
+                l.onStudentChanged(type, e.getKey(), s);
+        }
+        applied.addAndGet(latest.size());
+        lastLagMs = Math.max(0, System.currentTimeMillis() - newest);
+        return latest.size();
+    }
+
+    /** Forgets gaps that were waited for longer than {@link #GAP_TIMEOUT_MILLIS}. */
+    private static void expireGaps(Log log) {
+        long cutoff = System.currentTimeMillis() - GAP_TIMEOUT_MILLIS;
+        for (Iterator<Long> it = log.gaps.values().iterator(); it.hasNext(); )
+            if (it.next() < cutoff)
+                it.remove();
+    }
+
+    /** Deletes change rows older than {@link #RETENTION_MILLIS}, at most once per {@link #PURGE_INTERVAL_MILLIS}. */
+    private void purgeIfDue() throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastPurge < PURGE_INTERVAL_MILLIS)
+            return;
+        lastPurge = now;
+        String sql = "DELETE FROM student_changes WHERE changed_at < ? LIMIT " + PURGE_CHUNK;
+        for (Log log : logs) {
+            try (PreparedStatement ps = log.conn.prepareStatement(sql)) {
+                ps.setTimestamp(1, new Timestamp(now - RETENTION_MILLIS));
+                while (ps.executeUpdate() == PURGE_CHUNK) {
+                    // Next chunk
+                }
+            }
+        }
+    }
+}
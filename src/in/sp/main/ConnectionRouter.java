@@ -0,0 +1,280 @@
+package in.sp.main;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The {@code ConnectionRouter} class splits database traffic between a primary
+ * (which takes all writes) and zero or more read replicas.
+ * <p>
+ * {@link #write()} always returns the primary. {@link #read()} returns a
+ * healthy replica, chosen round-robin, except during the sticky window after
+ * a write: then reads also go to the primary, so a session always sees its
+ * own writes even if replication has not caught up yet (read-your-writes).
+ * <p>
+ * A replica is healthy when its connection is valid and its replication lag
+ * ({@code Seconds_Behind_Source}) is known and at most the configured maximum.
+ * Health is checked lazily on the reading thread, at most once per check
+ * interval per replica. When no replica is healthy, reads fall back to the
+ * primary.
+ * <p>
+ * With no replicas the router simply hands out the primary for everything,
+ * which is what {@link #single(Connection)} is for.
+ */
+public class ConnectionRouter implements AutoCloseable {
+
+    /** Default time reads stay on the primary after a write. */
+    public static final long DEFAULT_STICKY_MILLIS = 5_000;
+
+    /** Default maximum replication lag for a replica to serve reads. */
+    public static final int DEFAULT_MAX_LAG_SECONDS = 3;
+
+    /** Default minimum time between two health checks of the same replica. */
+    public static final long DEFAULT_CHECK_INTERVAL_MILLIS = 2_000;
+
+    /**
+     * Point-in-time view of a replica.
+     *
+     * @param index      Replica index (0-based, in configuration order)
+     * @param healthy    Whether the replica currently serves reads
+     * @param lagSeconds Last observed replication lag ({@code -1} if unknown)
+     * @param reads      Reads routed to this replica so far
+     */
+    public record ReplicaStatus(int index, boolean healthy, long lagSeconds, long reads) {
+    }
+
+    /** A replica connection with its last known health. */
+    private static final class Replica {
+        final Connection conn;
+        volatile boolean healthy;
+        volatile long lagSeconds = -1;
+        volatile long checkedAt;
+        final AtomicInteger reads = new AtomicInteger();
+
+        Replica(Connection conn) {
+            this.conn = conn;
+        }
+    }
+
+    private final Connection primary;
+    private final List<Replica> replicas;
+    private final long stickyMillis;
+    private final int maxLagSeconds;
+    private final long checkIntervalMillis;
+
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile long lastWriteAt;
+    private final AtomicInteger primaryReads = new AtomicInteger();
+
+    /**
+     * Creates a router.
+     *
+     * @param primary             Connection that takes all writes
+     * @param replicas            Read replica connections (may be empty)
+     * @param stickyMillis        How long reads stay on the primary after a write
+     * @param maxLagSeconds       Maximum replication lag for a replica to serve reads
+     * @param checkIntervalMillis Minimum time between health checks of one replica
+     */
+    public ConnectionRouter(Connection primary, List<Connection> replicas, long stickyMillis, int maxLagSeconds,
+                            long checkIntervalMillis) {
+        this.primary = primary;
+        List<Replica> list = new ArrayList<>(replicas.size());
+        for (Connection c : replicas)
+            list.add(new Replica(c));
+        this.replicas = List.copyOf(list);
+        this.stickyMillis = stickyMillis;
+        this.maxLagSeconds = maxLagSeconds;
+        this.checkIntervalMillis = checkIntervalMillis;
+    }
+
+    /**
+     * Creates a router with the default sticky window, lag limit and check interval.
+     *
+     * @param primary  Connection that takes all writes
+     * @param replicas Read replica connections (may be empty)
+     */
+    public ConnectionRouter(Connection primary, List<Connection> replicas) {
+        this(primary, replicas, DEFAULT_STICKY_MILLIS, DEFAULT_MAX_LAG_SECONDS, DEFAULT_CHECK_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param conn The only connection
+     * @return A router that sends reads and writes to {@code conn}
+     */
+    public static ConnectionRouter single(Connection conn) {
+        return new ConnectionRouter(conn, List.of());
+    }
+
+    // ===========================================================
+    // =============== ROUTING ===================================
+    // ===========================================================
+
+    /**
+     * Returns the primary for a write and starts (or extends) the sticky window.
+     *
+     * @return The primary connection
+     */
+    public Connection write() {
+        markWrite();
+        return primary;
+    }
+
+    /**
+     * Starts (or extends) the sticky window for writes made on the primary
+     * without going through {@link #write()}, e.g. by bulk services.
+     */
+    public void markWrite() {
+        if (!replicas.isEmpty())
+            lastWriteAt = System.currentTimeMillis();
+    }
+
+    /** @return The primary connection, without affecting the sticky window */
+    public Connection primary() {
+        return primary;
+    }
+
+    /**
+     * Returns a connection for a read-only operation.
+     *
+     * @return A healthy replica, or the primary during the sticky window or if none is healthy
+     */
+    public Connection read() {
+        if (replicas.isEmpty())
+            return primary;
+        long now = System.currentTimeMillis();
+        if (now - lastWriteAt < stickyMillis) {
+            primaryReads.incrementAndGet();
+            return primary;
+        }
+
+        int n = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), n);
+        for (int i = 0; i < n; i++) {
+            Replica r = replicas.get((start + i) % n);
+            if (isHealthy(r, now)) {
+                r.reads.incrementAndGet();
+                return r.conn;
+            }
+        }
+        primaryReads.incrementAndGet();
+        return primary;
+    }
+
+    // ===========================================================
+    // =============== HEALTH CHECKS =============================
+    // ===========================================================
+
+    private boolean isHealthy(Replica r, long now) {
+        if (now - r.checkedAt >= checkIntervalMillis) {
+            synchronized (r) {
+                if (now - r.checkedAt >= checkIntervalMillis)
+                    check(r, now);
+            }
+        }
+        return r.healthy;
+    }
+
+    private void check(Replica r, long now) {
+        long lag = -1;
+        try {
+            if (r.conn.isValid(1))
+                lag = replicationLag(r.conn);
+        } catch (SQLException e) {
+            lag = -1;
+        }
+        r.lagSeconds = lag;
+        r.healthy = lag >= 0 && lag <= maxLagSeconds;
+        r.checkedAt = now;
+    }
+
+    /**
+     * Reads the replication lag of a replica.
+     *
+     * @return Lag in seconds, or {@code -1} if replication is stopped or not configured
+     */
+    private static long replicationLag(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery("SHOW REPLICA STATUS")) {
+                return lagOf(rs, "Seconds_Behind_Source");
+            } catch (SQLException e) {
+                // MySQL before 8.0.22
+                try (ResultSet rs = st.executeQuery("SHOW SLAVE STATUS")) {
+                    return lagOf(rs, "Seconds_Behind_Master");
+                }
+            }
+        }
+    }
+
+    private static long lagOf(ResultSet rs, String column) throws SQLException {
+        if (!rs.next())
+            return -1;
+        long lag = rs.getLong(column);
+        return rs.wasNull() ? -1 : lag;
+    }
+
+    /**
+     * Checks every replica now, regardless of the check interval.
+     *
+     * @return Status of each replica
+     */
+    public List<ReplicaStatus> checkReplicas() {
+        long now = System.currentTimeMillis();
+        for (Replica r : replicas) {
+            synchronized (r) {
+                check(r, now);
+            }
+        }
+        return getReplicaStatus();
+    }
+
+    /** @return Last known status of each replica */
+    public List<ReplicaStatus> getReplicaStatus() {
+        List<ReplicaStatus> list = new ArrayList<>(replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica r = replicas.get(i);
+            list.add(new ReplicaStatus(i, r.healthy, r.lagSeconds, r.reads.get()));
+        }
+        return list;
+    }
+
+    /** @return Number of reads served by the primary (sticky window or no healthy replica) */
+    public long getPrimaryReads() {
+        return primaryReads.get();
+    }
+
+    /** @return Number of configured replicas */
+    public int replicaCount() {
+        return replicas.size();
+    }
+
+    /**
+     * Closes the replicas and the primary.
+     *
+     * @throws SQLException if a connection cannot be closed
+     */
+    @Override
+    public void close() throws SQLException {
+        SQLException failure = null;
+        for (Replica r : replicas) {
+            try {
+                r.conn.close();
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        try {
+            primary.close();
+        } catch (SQLException e) {
+            if (failure != null)
+                e.addSuppressed(failure);
+            failure = e;
+        }
+        if (failure != null)
+            throw failure;
+    }
+}
@@ -0,0 +1,347 @@
+package in.sp.main;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * The {@code DataGenerator} class produces realistic, reproducible synthetic
+ * {@link Student} records for load and performance testing.
+ * <p>
+ * The same seed always yields the same students in the same order:
+ * <ul>
+ *     <li>Department sizes follow a Zipf distribution, so a few departments
+ *     (CSE, ECE, ...) are much larger than the rest.</li>
+ *     <li>First and last names are drawn from Zipf-weighted lists, so common
+ *     names repeat the way they do in a real roster.</li>
+ *     <li>Marks are normally distributed around a per-department mean, with a
+ *     per-student ability term shared by all subjects so the three subjects
+ *     are correlated. Percentage and grade are derived with the
+ *     {@link GradingScheme#standard() standard scheme}.</li>
+ * </ul>
+ * Students are generated lazily by an {@link Iterator}, so any number of rows
+ * can be produced in constant memory. {@link #load} writes them, and their
+ * {@code student_marks} rows, with batched multi-row inserts and one commit
+ * per chunk; {@link #writeCsv} writes a
+ * roster file in the {@link RosterSyncService} format instead.
+ * <p>
+ * Usage:
+ * <pre>
+ *     java in.sp.main.DataGenerator [count] [seed] [firstIndex] [csvFile]
+ * </pre>
+ * Defaults: 100000 students, seed 42, first index 1, load into the database.
+ * Use a different {@code firstIndex} to append to an already generated set
+ * without roll number or email collisions.
+ */
+public class DataGenerator {
+
+    /** Rows per JDBC batch (sent as one multi-row insert with {@code rewriteBatchedStatements}). */
+    public static final int DEFAULT_BATCH_SIZE = 1_000;
+
+    /** Rows per transaction during {@link #load}. */
+    public static final int DEFAULT_COMMIT_SIZE = 20_000;
+
+    /** Department codes, most populous first. */
+    static final String[] DEPARTMENTS = {
+            "CSE", "ECE", "MECH", "CIVIL", "EEE", "IT", "CHEM", "BIOTECH",
+            "AERO", "MBA", "MCA", "PHY", "MATH", "ARCH"
+    };
+
+    static final String[] FIRST_NAMES = {
+            "Rahul", "Priya", "Amit", "Sneha", "Rohan", "Pooja", "Vikram", "Anjali", "Arjun", "Neha",
+            "Suresh", "Kavya", "Aditya", "Divya", "Karan", "Meera", "Sanjay", "Ritu", "Nikhil", "Swati",
+            "Raj", "Aishwarya", "Manoj", "Shreya", "Deepak", "Nisha", "Harsh", "Komal", "Varun", "Isha",
+            "Yash", "Tanvi", "Omkar", "Payal", "Siddharth", "Aarti", "Gaurav", "Lakshmi", "Pranav", "Sakshi"
+    };
+
+    static final String[] LAST_NAMES = {
+            "Patil", "Sharma", "Kumar", "Singh", "Deshmukh", "Joshi", "Patel", "Reddy", "Nair", "Gupta",
+            "Kulkarni", "Iyer", "Verma", "Pawar", "Shinde", "Rao", "Mehta", "Chavan", "Jadhav", "Pillai",
+            "Bhat", "Menon", "Yadav", "Kadam", "Agarwal", "More", "Naik", "Mishra", "Saxena", "Shetty",
+            "Gaikwad", "Banerjee", "Das", "Chopra", "Malhotra", "Thakur", "Pandey", "Bose", "Kapoor", "Dubey"
+    };
+
+    /** Zipf exponents: departments are more skewed than names. */
+    private static final double DEPARTMENT_SKEW = 1.1;
+    private static final double NAME_SKEW = 0.8;
+
+    /** Spread of a student's overall ability and of each subject around it. */
+    private static final double ABILITY_SD = 10.0;
+    private static final double SUBJECT_SD = 8.0;
+
+    private final long seed;
+    private final GradingScheme scheme = GradingScheme.standard();
+
+    private final double[] departmentCdf = zipfCdf(DEPARTMENTS.length, DEPARTMENT_SKEW);
+    private final double[] firstNameCdf = zipfCdf(FIRST_NAMES.length, NAME_SKEW);
+    private final double[] lastNameCdf = zipfCdf(LAST_NAMES.length, NAME_SKEW);
+
+    /** Mean percentage per department, between 58 and 74. */
+    private final double[] departmentMean = new double[DEPARTMENTS.length];
+
+    /**
+     * Creates a generator.
+     *
+     * @param seed Random seed; equal seeds give identical data
+     */
+    public DataGenerator(long seed) {
+        this.seed = seed;
+        for (int d = 0; d < DEPARTMENTS.length; d++)
+            departmentMean[d] = 58 + (d * 7) % 17;
+    }
+
+    // ===========================================================
+    // =============== GENERATION ================================
+    // ===========================================================
+
+    /**
+     * Returns a lazy sequence of students with indexes {@code first .. first+count-1}.
+     * Roll numbers ({@code R000000001}, ...) and emails are unique per index.
+     *
+     * @param first Index of the first student (1-based)
+     * @param count Number of students
+     * @return Iterator generating the students on demand
+     */
+    public Iterator<Student> students(long first, long count) {
+        SplittableRandom rnd = new SplittableRandom(seed ^ (first * 0x9E3779B97F4A7C15L));
+        return new Iterator<>() {
+            private long next = first;
+
+            @Override
+            public boolean hasNext() {
+                return next < first + count;
+            }
+
+            @Override
+            public Student next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return generate(rnd, next++);
+            }
+        };
+    }
+
+    private Student generate(SplittableRandom rnd, long index) {
+        int dept = pick(departmentCdf, rnd);
+        String firstName = FIRST_NAMES[pick(firstNameCdf, rnd)];
+        String lastName = LAST_NAMES[pick(lastNameCdf, rnd)];
+
+        double ability = departmentMean[dept] + gaussian(rnd) * ABILITY_SD;
+        double sub1 = marks(ability, rnd);
+        double sub2 = marks(ability, rnd);
+        double sub3 = marks(ability, rnd);
+        double percentage = GradingScheme.percentage(sub1, sub2, sub3);
+
+        String rollNo = rollNo(index);
+        String email = (firstName + "." + lastName + "." + index + "@example.edu").toLowerCase(Locale.ROOT);
+        String phone = String.valueOf(6_000_000_000L + rnd.nextLong(4_000_000_000L));
+
+        return new Student(firstName + " " + lastName, rollNo, DEPARTMENTS[dept], email, phone,
+                sub1, sub2, sub3, percentage, scheme.grade(percentage));
+    }
+
+    /** {@code R} followed by the index zero-padded to nine digits. */
+    static String rollNo(long index) {
+        String digits = Long.toString(index);
+        return "R" + "000000000".substring(Math.min(9, digits.length())) + digits;
+    }
+
+    /** Whole marks, clamped to 0–100. */
+    private static double marks(double ability, SplittableRandom rnd) {
+        double m = Math.rint(ability + gaussian(rnd) * SUBJECT_SD);
+        return Math.max(0, Math.min(100, m));
+    }
+
+    /** Standard normal variate (Box–Muller). */
+    private static double gaussian(SplittableRandom rnd) {
+        double u = 1.0 - rnd.nextDouble(); // (0, 1]
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * rnd.nextDouble());
+    }
+
+    /** Cumulative Zipf weights 1/rank^s, normalised to 1. */
+    private static double[] zipfCdf(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1.0 / Math.pow(i + 1, s);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++)
+            cdf[i] /= sum;
+        return cdf;
+    }
+
+    private static int pick(double[] cdf, SplittableRandom rnd) {
+        int i = Arrays.binarySearch(cdf, rnd.nextDouble());
+        return Math.min(i >= 0 ? i : -i - 1, cdf.length - 1);
+    }
+
+    // ===========================================================
+    // =============== OUTPUT ====================================
+    // ===========================================================
+
+    /**
+     * Result of a bulk load.
+     *
+     * @param rows      Rows inserted
+     * @param elapsedMs Wall-clock time of the load
+     */
+    public record LoadResult(long rows, long elapsedMs) {
+
+        /** @return Insert throughput in rows per second */
+        public double rowsPerSecond() {
+            return elapsedMs == 0 ? rows : rows * 1000.0 / elapsedMs;
+        }
+    }
+
+    /**
+     * Inserts students with batched statements, committing every {@code commitSize} rows.
+     * Each student's marks are also written to {@code student_marks} against
+     * the subjects of its department, which are created with the defaults of
+     * {@link MarksDao#getSubjects(String)} where none exist yet.
+     * <p>
+     * For tens of millions of rows, loading is fastest into an empty table
+     * before {@link SchemaMigrator} has created the secondary indexes.
+     *
+     * @param conn       Active {@link Connection} object
+     * @param students   Students to insert
+     * @param batchSize  Rows per JDBC batch
+     * @param commitSize Rows per transaction (rounded up to whole batches)
+     * @return Number of rows and elapsed time
+     * @throws SQLException if an insert fails; the current chunk is rolled back
+     */
+    public static LoadResult load(Connection conn, Iterator<Student> students, int batchSize, int commitSize)
+            throws SQLException {
+        String sql = "INSERT INTO students(name, roll_no, department, email, phone, sub1, sub2, sub3, percentage, grade) "
+                   + "VALUES(?,?,?,?,?,?,?,?,?,?)";
+        String marksSql = "INSERT INTO student_marks(student_id, subject_id, marks) "
+                        + "SELECT id, ?, ? FROM students WHERE roll_no=?";
+        MarksDao marksDao = new MarksDao(conn);
+        Map<String, List<MarksDao.Subject>> subjectsByDept = new HashMap<>();
+        long start = System.currentTimeMillis();
+        long rows = 0;
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             PreparedStatement marksPs = conn.prepareStatement(marksSql)) {
+            int inBatch = 0;
+            int inTx = 0;
+            while (students.hasNext()) {
+                Student s = students.next();
+                ps.setString(1, s.getName());
+                ps.setString(2, s.getRollNo());
+                ps.setString(3, s.getDepartment());
+                ps.setString(4, s.getEmail());
+                ps.setString(5, s.getPhone());
+                ps.setDouble(6, s.getSub1());
+                ps.setDouble(7, s.getSub2());
+                ps.setDouble(8, s.getSub3());
+                ps.setDouble(9, s.getPercentage());
+                ps.setString(10, s.getGrade());
+                ps.addBatch();
+
+                List<MarksDao.Subject> subjects = subjectsByDept.get(s.getDepartment());
+                if (subjects == null) {
+                    subjects = marksDao.getSubjects(s.getDepartment());
+                    subjectsByDept.put(s.getDepartment(), subjects);
+                }
+                double[] marks = s.getMarks();
+                for (int i = 0; i < Math.min(marks.length, subjects.size()); i++) {
+                    marksPs.setInt(1, subjects.get(i).id());
+                    marksPs.setDouble(2, marks[i]);
+                    marksPs.setString(3, s.getRollNo());
+                    marksPs.addBatch();
+                }
+                rows++;
+                if (++inBatch == batchSize) {
+                    ps.executeBatch();
+                    marksPs.executeBatch(); // after the students it refers to
+                    inTx += inBatch;
+                    inBatch = 0;
+                    if (inTx >= commitSize) {
+                        conn.commit();
+                        inTx = 0;
+                    }
+                }
+            }
+            if (inBatch > 0) {
+                ps.executeBatch();
+                marksPs.executeBatch();
+            }
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return new LoadResult(rows, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Writes students as a roster CSV ({@code roll_no,name,department,email,phone,sub1,sub2,sub3}).
+     *
+     * @param file     Target file (overwritten)
+     * @param students Students to write
+     * @return Number of rows written
+     * @throws IOException if the file cannot be written
+     */
+    public static long writeCsv(Path file, Iterator<Student> students) throws IOException {
+        long rows = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("roll_no,name,department,email,phone,sub1,sub2,sub3\n");
+            StringBuilder line = new StringBuilder(128);
+            while (students.hasNext()) {
+                Student s = students.next();
+                line.setLength(0);
+                line.append(s.getRollNo()).append(',').append(s.getName()).append(',')
+                    .append(s.getDepartment()).append(',').append(s.getEmail()).append(',')
+                    .append(s.getPhone()).append(',').append(s.getSub1()).append(',')
+                    .append(s.getSub2()).append(',').append(s.getSub3()).append('\n');
+                out.append(line);
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Generates students into the database or a CSV file.
+     *
+     * @param args Optional {@code count seed firstIndex csvFile}
+     * @throws Exception if the data cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        long count = args.length > 0 ? Long.parseLong(args[0]) : 100_000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        long first = args.length > 2 ? Long.parseLong(args[2]) : 1;
+
+        Iterator<Student> students = new DataGenerator(seed).students(first, count);
+        if (args.length > 3) {
+            long start = System.currentTimeMillis();
+            long rows = writeCsv(Path.of(args[3]), students);
+            System.out.println("Wrote " + rows + " students to " + args[3] + " in "
+                    + (System.currentTimeMillis() - start) + " ms");
+            return;
+        }
+
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            LoadResult r = load(conn, students, DEFAULT_BATCH_SIZE, DEFAULT_COMMIT_SIZE);
+            System.out.printf("Loaded %,d students in %,d ms (%,.0f rows/s)%n", r.rows(), r.elapsedMs(),
+                    r.rowsPerSecond());
+        }
+    }
+}
@@ -3,6 +3,9 @@ package in.sp.main;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 
 /**
  * The {@code DatabaseConnection} class manages the creation of JDBC connections
@@ -22,8 +25,35 @@ import java.sql.SQLException;
  */
 public class DatabaseConnection {
 
-    /** JDBC URL of the MySQL database (includes timezone parameter). */
-    private static final String URL = "jdbc:mysql://localhost:3306/studentdb?serverTimezone=UTC";
+    /**
+     * JDBC URL of the MySQL database (includes timezone parameter).
+     * {@code rewriteBatchedStatements} lets the driver send JDBC batches as
+     * multi-row statements instead of one round trip per row.
+     * {@code cachePrepStmts} keeps the parsed form of each SQL text per
+     * connection, so preparing a statement again (as every DAO call does) is
+     * cheap once the statement has been used, e.g. by the startup warm-up.
+     */
+    private static final String URL = "jdbc:mysql://localhost:3306/studentdb?serverTimezone=UTC&rewriteBatchedStatements=true"
+                                    + "&cachePrepStmts=true&prepStmtCacheSize=256&prepStmtCacheSqlLimit=2048";
+
+    /**
+     * System property listing the JDBC URLs of the shards, comma-separated
+     * (see {@link ShardSet}). Shards use the same credentials as {@link #URL},
+     * which keeps the login data either way.
+     */
+    public static final String SHARD_URLS_PROPERTY = "sms.shard.urls";
+
+    /**
+     * System property naming the {@link ShardSet.Routing} of the shards
+     * ({@code DEPARTMENT} if not set).
+     */
+    public static final String SHARD_ROUTING_PROPERTY = "sms.shard.routing";
+
+    /**
+     * System property listing the JDBC URLs of read replicas, comma-separated
+     * (see {@link ConnectionRouter}). Replicas use the same credentials as {@link #URL}.
+     */
+    public static final String REPLICA_URLS_PROPERTY = "sms.replica.urls";
 
     /** Username for database authentication. */
     private static final String USER = "root";
@@ -40,4 +70,77 @@ public class DatabaseConnection {
     public static Connection getConnection() throws SQLException {
         return DriverManager.getConnection(URL, USER, PASSWORD);
     }
+
+    /**
+     * Opens a {@link ConnectionRouter} with a connection to {@link #URL} as the
+     * primary and one connection per replica listed in the
+     * {@value #REPLICA_URLS_PROPERTY} system property (none if it is not set).
+     *
+     * @return A router for one application session
+     * @throws SQLException if any connection fails (already opened ones are closed)
+     */
+    public static ConnectionRouter getRouter() throws SQLException {
+        Connection primary = getConnection();
+        try {
+            return new ConnectionRouter(primary, openAll(System.getProperty(REPLICA_URLS_PROPERTY)));
+        } catch (SQLException e) {
+            primary.close();
+            throw e;
+        }
+    }
+
+    /** @return {@code true} if {@value #SHARD_URLS_PROPERTY} lists any shard */
+    public static boolean isSharded() {
+        String urls = System.getProperty(SHARD_URLS_PROPERTY);
+        return urls != null && !urls.isBlank();
+    }
+
+    /**
+     * Opens one connection per shard listed in the {@value #SHARD_URLS_PROPERTY}
+     * system property, routed as {@value #SHARD_ROUTING_PROPERTY} says.
+     * Each call opens connections of its own.
+     *
+     * @return The shard set, or {@code null} if no shards are configured
+     * @throws SQLException if any connection fails or the shard directory does
+     *         not match the configuration (already opened connections are closed)
+     */
+    public static ShardSet getShardSet() throws SQLException {
+        List<Connection> shards = openAll(System.getProperty(SHARD_URLS_PROPERTY));
+        if (shards.isEmpty())
+            return null;
+        try {
+            String routing = System.getProperty(SHARD_ROUTING_PROPERTY, ShardSet.Routing.DEPARTMENT.name());
+            return new ShardSet(shards, ShardSet.Routing.valueOf(routing.trim().toUpperCase(Locale.ROOT)));
+        } catch (SQLException | RuntimeException e) {
+            for (Connection c : shards) {
+                try {
+                    c.close();
+                } catch (SQLException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /** Opens one connection per comma-separated URL; closes them all if one fails. */
+    private static List<Connection> openAll(String urls) throws SQLException {
+        List<Connection> conns = new ArrayList<>();
+        if (urls == null || urls.isBlank())
+            return conns;
+        try {
+            for (String url : urls.split(","))
+                conns.add(DriverManager.getConnection(url.trim(), USER, PASSWORD));
+        } catch (SQLException e) {
+            for (Connection c : conns) {
+                try {
+                    c.close();
+                } catch (SQLException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw e;
+        }
+        return conns;
+    }
 }
@@ -0,0 +1,390 @@
+package in.sp.main;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The {@code FuzzyNameIndex} class provides typo-tolerant lookup of students by
+ * name, for cases where {@code LIKE '%x%'} finds nothing because of a misspelling.
+ * <p>
+ * Names are lower-cased and split into words, and every distinct word is stored
+ * in a sorted character trie together with the students using it. Each query
+ * word runs a Levenshtein automaton over the trie: the edit-distance row of a
+ * prefix is computed once for all words sharing it, and a branch is abandoned
+ * as soon as no extension can stay within {@code k} edits. The per-word hits
+ * are then intersected, so "raj patl" finds "Raj Patil" in either word order.
+ * Distinct words are far fewer than students and almost every branch dies
+ * within two or three characters, so a query touches only a tiny part of the
+ * index.
+ * <p>
+ * The index lives in memory. It is filled by one streamed scan of
+ * {@code (roll_no, name)} and kept in sync as a {@link StudentListener}
+ * registered on {@link StudentDao}. Register it before {@link #fill(List)}:
+ * changes reported during the scan are held back and applied after it, so
+ * none is lost and none is overwritten by an older scanned row.
+ */
+public class FuzzyNameIndex implements StudentListener {
+
+    /**
+     * A fuzzy match.
+     *
+     * @param rollNo   Roll number of the matching student
+     * @param name     Indexed name of the student
+     * @param distance Total edit distance between the query words and the closest name words
+     */
+    public record Match(String rollNo, String name, int distance) {
+    }
+
+    /** Trie node; children are kept sorted by character. */
+    private static final class Node {
+        private static final char[] NO_KEYS = new char[0];
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        char[] keys = NO_KEYS;
+        Node[] children = NO_CHILDREN;
+
+        /** Students having the word that ends at this node ({@code null} if none). */
+        Set<String> rolls;
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0)
+                return children[i];
+            i = -i - 1;
+            Node child = new Node();
+            char[] k = new char[keys.length + 1];
+            Node[] ch = new Node[children.length + 1];
+            System.arraycopy(keys, 0, k, 0, i);
+            System.arraycopy(children, 0, ch, 0, i);
+            k[i] = c;
+            ch[i] = child;
+            System.arraycopy(keys, i, k, i + 1, keys.length - i);
+            System.arraycopy(children, i, ch, i + 1, children.length - i);
+            keys = k;
+            children = ch;
+            return child;
+        }
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+    }
+
+    private final Node root = new Node();
+
+    /** Number of distinct words currently used by at least one student. */
+    private int wordCount;
+
+    /** Roll number → indexed name, needed to unindex on update/delete. */
+    private final Map<String, String> names = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /** A change reported while {@link #fill} was scanning. */
+    private record Change(ChangeType type, String rollNo, String name) {
+    }
+
+    /** Changes held back during {@link #fill}, or {@code null} outside it (guarded by {@link #lock}). */
+    private List<Change> deferred;
+
+    /**
+     * Builds an index over all students with one streamed scan.
+     *
+     * @param conn Active {@link Connection} object
+     * @return The populated index
+     * @throws SQLException if the scan fails
+     */
+    public static FuzzyNameIndex load(Connection conn) throws SQLException {
+        FuzzyNameIndex index = new FuzzyNameIndex();
+        index.fill(conn);
+        return index;
+    }
+
+    /**
+     * Adds every student to the index with one streamed scan. Changes
+     * reported through {@link #onStudentChanged} meanwhile are applied after
+     * the scan, in order, since they may be newer than the rows it read.
+     *
+     * @param conn Connection used only for the scan
+     * @throws SQLException if the scan fails
+     */
+    public void fill(Connection conn) throws SQLException {
+        fill(List.of(conn));
+    }
+
+    /**
+     * Like {@link #fill(Connection)}, scanning each connection in turn (e.g.
+     * every shard); changes are held back until all scans are done.
+     *
+     * @param conns Connections used only for the scans
+     * @throws SQLException if a scan fails
+     */
+    public void fill(List<Connection> conns) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            deferred = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        try {
+            String sql = "SELECT roll_no, name FROM students";
+            for (Connection conn : conns) {
+                try (Statement st = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    st.setFetchSize(Integer.MIN_VALUE); // MySQL: stream rows instead of buffering the table
+                    try (ResultSet rs = st.executeQuery(sql)) {
+                        while (rs.next())
+                            put(rs.getString(1), rs.getString(2));
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().lock();
+            try {
+                List<Change> changes = deferred;
+                deferred = null;
+                for (Change c : changes)
+                    apply(c.type(), c.rollNo(), c.name());
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    // ===========================================================
+    // =============== MAINTENANCE ===============================
+    // ===========================================================
+
+    /**
+     * Indexes (or re-indexes) a student's name.
+     *
+     * @param rollNo Roll number
+     * @param name   Student name
+     */
+    public void put(String rollNo, String name) {
+        lock.writeLock().lock();
+        try {
+            String old = names.put(rollNo, name);
+            if (old != null) {
+                if (old.equals(name))
+                    return;
+                for (String word : wordsOf(old))
+                    unlink(word, rollNo);
+            }
+            for (String word : wordsOf(name))
+                link(word, rollNo);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a student from the index.
+     *
+     * @param rollNo Roll number
+     */
+    public void remove(String rollNo) {
+        lock.writeLock().lock();
+        try {
+            String old = names.remove(rollNo);
+            if (old != null) {
+                for (String word : wordsOf(old))
+                    unlink(word, rollNo);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onStudentChanged(ChangeType type, String rollNo, Student s) {
+        String name = s == null ? null : s.getName();
+        lock.writeLock().lock();
+        try {
+            if (deferred != null)
+                deferred.add(new Change(type, rollNo, name));
+            else
+                apply(type, rollNo, name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void apply(ChangeType type, String rollNo, String name) {
+        if (type == ChangeType.DELETE)
+            remove(rollNo);
+        else if (name != null)
+            put(rollNo, name);
+    }
+
+    /** @return Number of indexed students */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return Number of distinct name words in the index */
+    public int wordCount() {
+        lock.readLock().lock();
+        try {
+            return wordCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void link(String word, String rollNo) {
+        Node node = root;
+        for (int i = 0; i < word.length(); i++)
+            node = node.childOrCreate(word.charAt(i));
+        if (node.rolls == null)
+            node.rolls = new HashSet<>(2);
+        if (node.rolls.isEmpty())
+            wordCount++;
+        node.rolls.add(rollNo);
+    }
+
+    /** Removes the posting; the (now possibly empty) trie path is kept for reuse. */
+    private void unlink(String word, String rollNo) {
+        Node node = root;
+        for (int i = 0; i < word.length() && node != null; i++)
+            node = node.child(word.charAt(i));
+        if (node != null && node.rolls != null && node.rolls.remove(rollNo) && node.rolls.isEmpty())
+            wordCount--;
+    }
+
+    // ===========================================================
+    // =============== SEARCH ====================================
+    // ===========================================================
+
+    /**
+     * Finds students for whom every word of {@code query} matches some word of
+     * their name, with at most {@code maxDistance} edits in total.
+     *
+     * @param query       Name as typed by the operator
+     * @param maxDistance Maximum edit distance {@code k}
+     * @param limit       Maximum number of matches
+     * @return Matches ordered by distance, then name, then roll number
+     */
+    public List<Match> search(String query, int maxDistance, int limit) {
+        String q = normalise(query);
+        if (q.isEmpty())
+            return List.of();
+
+        lock.readLock().lock();
+        try {
+            // Intersect per-word hits, summing each student's best distance per word
+            Map<String, Integer> best = null;
+            for (String word : q.split(" ")) {
+                Map<String, Integer> hits = matchWord(word, maxDistance);
+                if (best == null) {
+                    best = hits;
+                } else {
+                    Map<String, Integer> next = new HashMap<>();
+                    for (Map.Entry<String, Integer> e : best.entrySet()) {
+                        Integer d = hits.get(e.getKey());
+                        if (d != null && e.getValue() + d <= maxDistance)
+                            next.put(e.getKey(), e.getValue() + d);
+                    }
+                    best = next;
+                }
+                if (best.isEmpty())
+                    return List.of();
+            }
+
+            List<Match> matches = new ArrayList<>(best.size());
+            for (Map.Entry<String, Integer> e : best.entrySet())
+                matches.add(new Match(e.getKey(), names.get(e.getKey()), e.getValue()));
+            matches.sort((a, b) -> a.distance() != b.distance() ? Integer.compare(a.distance(), b.distance())
+                    : a.name().compareToIgnoreCase(b.name()) != 0 ? a.name().compareToIgnoreCase(b.name())
+                    : a.rollNo().compareTo(b.rollNo()));
+            return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs the Levenshtein automaton for one query word over the trie.
+     * Must be called with the read lock held.
+     *
+     * @return Roll number → smallest distance of any of the student's words to {@code q}
+     */
+    private Map<String, Integer> matchWord(String q, int maxDistance) {
+        Map<String, Integer> hits = new HashMap<>();
+        int[][] rows = new int[q.length() + maxDistance + 1][];
+        rows[0] = new int[q.length() + 1];
+        for (int i = 0; i <= q.length(); i++)
+            rows[0][i] = i;
+        for (int i = 0; i < root.keys.length; i++)
+            walk(root.children[i], root.keys[i], 1, q, maxDistance, rows, hits);
+        return hits;
+    }
+
+    /**
+     * Depth-first step: computes the row for the prefix ending in {@code c} at
+     * depth {@code p} and descends while the row can still lead to a match.
+     */
+    private static void walk(Node node, char c, int p, String q, int maxDistance, int[][] rows,
+                             Map<String, Integer> hits) {
+        if (p >= rows.length)
+            return; // longer than |q| + k: cannot match
+        if (rows[p] == null)
+            rows[p] = new int[q.length() + 1];
+        int[] prev = rows[p - 1];
+        int[] cur = rows[p];
+
+        cur[0] = p;
+        int min = p;
+        for (int i = 1; i < cur.length; i++) {
+            int cost = q.charAt(i - 1) == c ? 0 : 1;
+            int v = Math.min(Math.min(cur[i - 1] + 1, prev[i] + 1), prev[i - 1] + cost);
+            cur[i] = v;
+            if (v < min)
+                min = v;
+        }
+        if (min > maxDistance)
+            return; // no extension of this prefix can come within k edits
+
+        int d = cur[q.length()];
+        if (d <= maxDistance && node.rolls != null) {
+            for (String roll : node.rolls)
+                hits.merge(roll, d, Math::min);
+        }
+        for (int i = 0; i < node.keys.length; i++)
+            walk(node.children[i], node.keys[i], p + 1, q, maxDistance, rows, hits);
+    }
+
+    // ===========================================================
+    // =============== TEXT HELPERS ==============================
+    // ===========================================================
+
+    private static String normalise(String name) {
+        return name == null ? "" : name.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    /** The distinct words of a name. */
+    private static Set<String> wordsOf(String name) {
+        String n = normalise(name);
+        Set<String> words = new HashSet<>(4);
+        if (!n.isEmpty())
+            words.addAll(Arrays.asList(n.split(" ")));
+        return words;
+    }
+}
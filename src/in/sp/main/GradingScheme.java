@@ -0,0 +1,75 @@
+package in.sp.main;
+
+/**
+ * The {@code GradingScheme} interface defines how a percentage is converted
+ * into a letter grade in the Student Management System (SMS).
+ * <p>
+ * Implementations are pluggable, so the grading policy can be changed without
+ * touching the {@link UI} or the stored student records by hand. The
+ * {@link RegradeService} applies a scheme to every student in one bulk pass.
+ *
+ * @see ThresholdGradingScheme
+ */
+public interface GradingScheme {
+
+    /**
+     * Returns a short, human readable name of the scheme (e.g. {@code "Standard"}).
+     *
+     * @return Name of the grading scheme
+     */
+    String getName();
+
+    /**
+     * Determines the grade for the given percentage.
+     *
+     * @param percentage Calculated percentage (0–100)
+     * @return Corresponding grade
+     */
+    String grade(double percentage);
+
+    /**
+     * Returns the default scheme used by the application:
+     * A ≥ 90, B ≥ 75, C ≥ 60, D ≥ 45, otherwise F.
+     *
+     * @return The standard {@link GradingScheme}
+     */
+    static GradingScheme standard() {
+        return ThresholdGradingScheme.STANDARD;
+    }
+
+    /**
+     * Calculates the percentage from three subject marks, rounded to two
+     * decimal places to match the {@code DECIMAL(5,2)} column of {@code students}.
+     *
+     * @param s1 Subject 1 marks
+     * @param s2 Subject 2 marks
+     * @param s3 Subject 3 marks
+     * @return Average marks as a percentage
+     */
+    static double percentage(double s1, double s2, double s3) {
+        return Math.round((s1 + s2 + s3) / 3.0 * 100.0) / 100.0;
+    }
+
+    /**
+     * Calculates a weighted percentage over any number of subjects: the
+     * weighted mean of {@code marks[i] / maxMarks[i]}, times 100, rounded to
+     * two decimal places. With three subjects out of 100 and equal weights this
+     * matches {@link #percentage(double, double, double)}.
+     *
+     * @param marks    Marks per subject
+     * @param maxMarks Maximum marks per subject
+     * @param weights  Relative weight per subject
+     * @return Weighted percentage, or {@code 0} if there are no subjects
+     */
+    static double percentage(double[] marks, double[] maxMarks, double[] weights) {
+        if (marks.length != maxMarks.length || marks.length != weights.length)
+            throw new IllegalArgumentException("marks, maxMarks and weights must have the same length");
+        double sum = 0;
+        double totalWeight = 0;
+        for (int i = 0; i < marks.length; i++) {
+            sum += weights[i] * marks[i] / maxMarks[i];
+            totalWeight += weights[i];
+        }
+        return totalWeight == 0 ? 0 : Math.round(sum / totalWeight * 100.0 * 100.0) / 100.0;
+    }
+}
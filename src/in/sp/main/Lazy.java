@@ -0,0 +1,103 @@
+package in.sp.main;
+
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+
+/**
+ * The {@code Lazy} class holds a value that is created on first use, at most
+ * once, even when several threads ask for it at the same time.
+ * <p>
+ * Creation may also be started ahead of time on another thread with
+ * {@link #startIn(Executor)}; a later {@link #get()} then waits for it instead
+ * of creating a second value. If creation fails, nothing is stored and the
+ * next {@link #get()} tries again and reports the error.
+ *
+ * @param <T> Type of the value
+ */
+public final class Lazy<T> {
+
+    /**
+     * Creates a value; may fail with an {@link SQLException}.
+     *
+     * @param <T> Type of the value
+     */
+    @FunctionalInterface
+    public interface SqlSupplier<T> {
+        T get() throws SQLException;
+    }
+
+    private final SqlSupplier<? extends T> supplier;
+    private volatile T value;
+
+    /**
+     * @param supplier Creates the value on first use; must not return {@code null}
+     */
+    public Lazy(SqlSupplier<? extends T> supplier) {
+        this.supplier = supplier;
+    }
+
+    /**
+     * @param value Value that is already available
+     * @return A {@code Lazy} that is initialised with {@code value}
+     */
+    public static <T> Lazy<T> of(T value) {
+        Lazy<T> lazy = new Lazy<>(() -> value);
+        lazy.value = value;
+        return lazy;
+    }
+
+    /**
+     * Returns the value, creating it with the supplier if needed.
+     *
+     * @return The value
+     * @throws SQLException if the value has to be created and creation fails
+     */
+    public T get() throws SQLException {
+        return get(supplier);
+    }
+
+    /**
+     * Returns the value, creating it with {@code init} instead of the default
+     * supplier if it does not exist yet.
+     *
+     * @param init Creates the value; must not return {@code null}
+     * @return The value
+     * @throws SQLException if the value has to be created and creation fails
+     */
+    public T get(SqlSupplier<? extends T> init) throws SQLException {
+        T v = value;
+        if (v != null)
+            return v;
+        synchronized (this) {
+            if (value == null)
+                value = init.get();
+            return value;
+        }
+    }
+
+    /**
+     * Starts creating the value on {@code executor}. A failure is not
+     * reported here; the next {@link #get()} retries and throws it.
+     *
+     * @param executor Executor to create the value on
+     */
+    public void startIn(Executor executor) {
+        executor.execute(() -> {
+            try {
+                get();
+            } catch (SQLException | RuntimeException ignored) {
+                // Reported by the next get()
+            }
+        });
+    }
+
+    /** @return {@code true} once the value exists */
+    public boolean isInitialized() {
+        return value != null;
+    }
+
+    /** @return The value, or {@code null} if it has not been created (yet) */
+    public T getIfInitialized() {
+        return value;
+    }
+}
@@ -0,0 +1,152 @@
+package in.sp.main;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code LockContentionBenchmark} class is a concurrent stress run that
+ * compares optimistic, version-checked updates ({@link StudentDao#patchStudent})
+ * with a pessimistic {@code SELECT ... FOR UPDATE} baseline.
+ * <p>
+ * Each client thread opens its own connection and repeatedly changes the phone
+ * number of a random student from a small "hot" set, so that writers collide.
+ * The run prints completed updates per second, optimistic conflicts (retries)
+ * and failures for both strategies.
+ * <p>
+ * Usage (against a database that already contains students):
+ * <pre>
+ *     java in.sp.main.LockContentionBenchmark [threads] [seconds] [hotRows]
+ * </pre>
+ * Defaults: 8 threads, 10 seconds, 16 hot rows.
+ */
+public class LockContentionBenchmark {
+
+    /**
+     * Runs both strategies and prints a summary line for each.
+     *
+     * @param args Optional {@code threads seconds hotRows}
+     * @throws Exception if the benchmark cannot connect or is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int hotRows = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+
+        List<String> hot = loadHotRolls(hotRows);
+        if (hot.isEmpty()) {
+            System.err.println("No students found; load some data first.");
+            return;
+        }
+        System.out.println("Threads: " + threads + ", duration: " + seconds + " s, hot rows: " + hot.size());
+
+        run("Optimistic (version check)", threads, seconds, hot, true);
+        run("Pessimistic (FOR UPDATE)  ", threads, seconds, hot, false);
+    }
+
+    private static List<String> loadHotRolls(int limit) throws SQLException {
+        List<String> rolls = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getConnection();
+             Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT roll_no FROM students ORDER BY id LIMIT " + limit)) {
+            while (rs.next())
+                rolls.add(rs.getString(1));
+        }
+        return rolls;
+    }
+
+    private static void run(String label, int threads, int seconds, List<String> hot, boolean optimistic)
+            throws InterruptedException {
+        AtomicLong updates = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        AtomicLong failures = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    StudentDao dao = new StudentDao(conn);
+                    ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        String roll = hot.get(rnd.nextInt(hot.size()));
+                        String phone = String.valueOf(9_000_000_000L + rnd.nextInt(1_000_000_000));
+                        try {
+                            if (optimistic)
+                                updateOptimistic(dao, roll, phone, conflicts);
+                            else
+                                updatePessimistic(conn, roll, phone);
+                            updates.incrementAndGet();
+                        } catch (SQLException e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Worker could not connect: " + e.getMessage());
+                } finally {
+                    done.countDown();
+                }
+            });
+            worker.start();
+        }
+        done.await();
+
+        System.out.printf("%s: %,.0f updates/s, %d conflicts, %d failures%n",
+                label, updates.get() / (double) seconds, conflicts.get(), failures.get());
+    }
+
+    /** Read, modify and version-checked write; retries on conflict until it succeeds. */
+    private static void updateOptimistic(StudentDao dao, String roll, String phone, AtomicLong conflicts)
+            throws SQLException {
+        while (true) {
+            Student s = dao.getStudentByRollNo(roll);
+            if (s == null)
+                return;
+            s.setPhone(phone);
+            try {
+                dao.patchStudent(roll, s);
+                return;
+            } catch (StaleStudentException e) {
+                conflicts.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Read with a row lock, write, commit. The change is logged like
+     * {@link StudentDao} logs it, so both sides do the same writes.
+     */
+    private static void updatePessimistic(Connection conn, String roll, String phone) throws SQLException {
+        conn.setAutoCommit(false);
+        try (PreparedStatement lock = conn.prepareStatement("SELECT * FROM students WHERE roll_no=? FOR UPDATE");
+             PreparedStatement upd = conn.prepareStatement(
+                     "UPDATE students SET phone=?, version=version+1 WHERE roll_no=?");
+             PreparedStatement log = conn.prepareStatement(ChangePoller.RECORD_SQL)) {
+            lock.setString(1, roll);
+            try (ResultSet rs = lock.executeQuery()) {
+                if (!rs.next()) {
+                    conn.rollback();
+                    return;
+                }
+            }
+            upd.setString(1, phone);
+            upd.setString(2, roll);
+            upd.executeUpdate();
+            ChangePoller.bindChange(log, roll, StudentListener.ChangeType.UPDATE);
+            log.executeUpdate();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+}
@@ -1,36 +1,170 @@
 package in.sp.main;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The Main class serves as the entry point for the Student Management System (SMS).
  * It establishes a database connection and initializes the user interface (UI)
  * to handle all CRUD operations(insert ,update ,delete ,search,statistics) .
+ * Every student mutation is recorded asynchronously in {@code audit.log}.
+ * <p>
+ * The login prompt is shown immediately. Meanwhile a background thread
+ * connects, applies pending schema migrations and then warms the session up
+ * (see {@link UI#warmUp(Connection)}); set {@code -Dsms.warmup=false} to skip
+ * the warm-up. Startup timings are shown with the first result and under
+ * Statistics.
+ * <p>
+ * A {@link ChangePoller} on its own connection follows the changes other
+ * instances make, so the in-memory indexes stay current.
+ * <p>
+ * With {@code -Dsms.shard.urls} set, the student data lives on those shards
+ * (see {@link ShardSet}); every shard is migrated at startup, the poller
+ * follows all of them on a shard set of its own, and the warm-up is skipped.
  */
 
 public class Main {
-	
+
+    /** System property that disables the background warm-up when set to {@code false}. */
+    public static final String WARM_UP_PROPERTY = "sms.warmup";
+
+    /** Time between polls of the change log; the bound on cache staleness. */
+    private static final long CHANGE_POLL_MILLIS = 2_000;
+
 	   /**
      * The main method initializes the database connection and launches the application UI.
      *
      * @param args Command-line arguments (not used)
      */
-	
+
     public static void main(String[] args) {
-    	// Try-with-resources automatically closes the database connection after use
-        try (Connection conn = DatabaseConnection.getConnection()) {
-        	
-        	 // Initialize the User Interface with an active database connection
-            UI ui = new UI(conn); 
-            
+        StartupTimer timer = StartupTimer.sinceProcessStart();
+        ExecutorService background = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "sms-startup");
+            t.setDaemon(true);
+            return t;
+        });
+
+        // Connect and bring the schema (indexes, columns) up to date in the
+        // background; reads may go to replicas (sms.replica.urls)
+        Lazy<ConnectionRouter> router = new Lazy<>(() -> {
+            ConnectionRouter r = DatabaseConnection.getRouter();
+            try {
+                for (String migration : new SchemaMigrator(r.primary()).migrate())
+                    System.out.println("Applied schema migration " + migration);
+            } catch (SQLException e) {
+                r.close();
+                throw e;
+            }
+            timer.mark(StartupTimer.CONNECTED);
+            return r;
+        });
+        router.startIn(background);
+
+        // Student data spread over shards (sms.shard.urls), each brought up to date like the main database
+        Lazy<ShardSet> shards = !DatabaseConnection.isSharded() ? null : new Lazy<>(() -> {
+            router.get();
+            ShardSet set = DatabaseConnection.getShardSet();
+            try {
+                set.migrateAll();
+            } catch (SQLException e) {
+                set.close();
+                throw e;
+            }
+            return set;
+        });
+        if (shards != null)
+            shards.startIn(background);
+
+        // Follows other instances' changes; created before any cache is loaded
+        Lazy<ChangePoller> changes = new Lazy<>(() -> {
+            router.get();
+            if (shards != null) {
+                shards.get();
+                ShardSet own = DatabaseConnection.getShardSet();
+                try {
+                    ChangePoller poller = new ChangePoller(own);
+                    poller.start(CHANGE_POLL_MILLIS);
+                    return poller;
+                } catch (SQLException e) {
+                    own.close();
+                    throw e;
+                }
+            }
+            Connection conn = DatabaseConnection.getConnection();
+            try {
+                ChangePoller poller = new ChangePoller(conn);
+                poller.start(CHANGE_POLL_MILLIS);
+                return poller;
+            } catch (SQLException e) {
+                conn.close();
+                throw e;
+            }
+        });
+        changes.startIn(background);
+
+    	// Try-with-resources flushes the audit log after use
+        try (AuditLog auditLog = AuditLog.open(Path.of("audit.log"))) {
+
+        	 // Initialize the User Interface; services are created on first use
+            UI ui = new UI(router, shards, changes, auditLog, timer);
+
+            // Runs after the connection and poller tasks on the same thread
+            if (!"false".equalsIgnoreCase(System.getProperty(WARM_UP_PROPERTY)))
+                background.execute(() -> {
+                    // Own, read-only connection: the warm-up never shares a transaction with the UI
+                    try (Connection warm = DatabaseConnection.getConnection()) {
+                        warm.setReadOnly(true);
+                        ui.warmUp(warm);
+                    } catch (SQLException e) {
+                        timer.setNote("warm-up skipped: " + e.getMessage());
+                    }
+                });
+
             // Start the user interaction loop (menu-driven operations)
-            ui.start();           
-        } 
-        catch (SQLException e) 
+            ui.start();
+        }
+        catch (SQLException e)
         {
         	  // Handles database connection failures or SQL-related issues
             System.err.println("Database connection failed: " + e.getMessage());
         }
+        catch (IOException e)
+        {
+            // Handles failures opening or closing the audit log
+            System.err.println("Audit log error: " + e.getMessage());
+        }
+        finally
+        {
+            background.shutdownNow();
+            ChangePoller poller = changes.getIfInitialized();
+            if (poller != null) {
+                try {
+                    poller.close();
+                } catch (SQLException e) {
+                    System.err.println("Closing the change poller failed: " + e.getMessage());
+                }
+            }
+            ShardSet set = shards == null ? null : shards.getIfInitialized();
+            if (set != null) {
+                try {
+                    set.close();
+                } catch (SQLException e) {
+                    System.err.println("Closing the shards failed: " + e.getMessage());
+                }
+            }
+            ConnectionRouter r = router.getIfInitialized();
+            if (r != null) {
+                try {
+                    r.close();
+                } catch (SQLException e) {
+                    System.err.println("Closing the database connection failed: " + e.getMessage());
+                }
+            }
+        }
     }
 }
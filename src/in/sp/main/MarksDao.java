@@ -0,0 +1,378 @@
+package in.sp.main;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@code MarksDao} class manages per-subject marks stored in the
+ * normalised {@code subjects} and {@code student_marks} tables, so each
+ * department can have any number of subjects.
+ * <p>
+ * A department's subjects are numbered by {@code position} (1, 2, ...) and a
+ * student's marks are held on {@link Student} as a packed array in the same
+ * order (see {@link Student#getMarks()}). Each subject has a weight, maximum
+ * marks and pass marks; the percentage is the weighted mean of
+ * {@code marks / max_marks} (see {@link GradingScheme#percentage(double[], double[], double[])}).
+ * <p>
+ * The legacy {@code sub1..sub3} columns of {@code students} keep mirroring
+ * the first three subjects, so existing queries and indexes keep working.
+ * Marks for a page of students are loaded with one query
+ * ({@link #loadMarks(List)}), never one query per student.
+ */
+public class MarksDao {
+
+    /** Subjects created for a department that has none configured yet. */
+    static final int DEFAULT_SUBJECTS = 3;
+
+    /** Default pass marks (out of 100) of a subject. */
+    static final double DEFAULT_PASS_MARKS = 35;
+
+    /**
+     * A subject taught in a department.
+     *
+     * @param id         Database id
+     * @param department Department the subject belongs to
+     * @param position   1-based position in the department's marks array
+     * @param name       Subject name
+     * @param weight     Relative weight in the percentage
+     * @param maxMarks   Maximum obtainable marks
+     * @param passMarks  Minimum marks to pass
+     */
+    public record Subject(int id, String department, int position, String name, double weight, double maxMarks,
+                          double passMarks) {
+    }
+
+    /**
+     * Aggregate results of one subject.
+     *
+     * @param subject   The subject
+     * @param students  Number of students with marks in the subject
+     * @param mean      Mean marks
+     * @param max       Highest marks
+     * @param min       Lowest marks
+     * @param passRate  Share of students at or above the pass marks (0–100)
+     */
+    public record SubjectStats(Subject subject, int students, double mean, double max, double min, double passRate) {
+    }
+
+    /** Active database connection used for executing SQL statements. */
+    private Connection conn;
+
+    /** Department → subjects ordered by position. Subjects change rarely. */
+    private final Map<String, List<Subject>> subjectCache = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a {@code MarksDao} with the specified database connection.
+     *
+     * @param conn Active {@link Connection} object
+     */
+    public MarksDao(Connection conn) {
+        this.conn = conn;
+    }
+
+    // ===========================================================
+    // =============== SUBJECTS ==================================
+    // ===========================================================
+
+    /**
+     * Returns the subjects of a department, creating the default three
+     * ({@code Subject 1..3}, equal weight, out of 100) if it has none yet.
+     *
+     * @param department Department name ({@code null} is stored as {@code ""})
+     * @return Subjects ordered by position
+     * @throws SQLException if the subjects cannot be read or created
+     */
+    public List<Subject> getSubjects(String department) throws SQLException {
+        String dept = department == null ? "" : department;
+        List<Subject> subjects = findSubjects(dept);
+        if (subjects.isEmpty()) {
+            String sql = "INSERT IGNORE INTO subjects(department, position, name, weight, max_marks, pass_marks) "
+                       + "VALUES(?,?,?,1,100,?)";
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                for (int p = 1; p <= DEFAULT_SUBJECTS; p++) {
+                    ps.setString(1, dept);
+                    ps.setInt(2, p);
+                    ps.setString(3, "Subject " + p);
+                    ps.setDouble(4, DEFAULT_PASS_MARKS);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+            subjects = readSubjects(dept);
+        }
+        subjectCache.put(dept, subjects);
+        return subjects;
+    }
+
+    /**
+     * Returns the subjects of a department without creating any; use this
+     * where nothing may be written (dry runs, warm-up).
+     *
+     * @param department Department name ({@code null} is stored as {@code ""})
+     * @return Subjects ordered by position, or an empty list if none are configured yet
+     * @throws SQLException if the subjects cannot be read
+     */
+    public List<Subject> findSubjects(String department) throws SQLException {
+        String dept = department == null ? "" : department;
+        List<Subject> cached = subjectCache.get(dept);
+        if (cached != null)
+            return cached;
+        List<Subject> subjects = readSubjects(dept);
+        if (!subjects.isEmpty())
+            subjectCache.put(dept, subjects);
+        return subjects;
+    }
+
+    /**
+     * Adds a subject at the end of a department's list.
+     *
+     * @param department Department name
+     * @param name       Subject name
+     * @param weight     Relative weight (positive)
+     * @param maxMarks   Maximum obtainable marks (positive)
+     * @param passMarks  Minimum marks to pass
+     * @return The new subject
+     * @throws SQLException if the subject cannot be stored
+     */
+    public Subject addSubject(String department, String name, double weight, double maxMarks, double passMarks)
+            throws SQLException {
+        if (weight <= 0 || maxMarks <= 0)
+            throw new IllegalArgumentException("weight and maxMarks must be positive");
+        String dept = department == null ? "" : department;
+        int position = getSubjects(dept).size() + 1;
+        String sql = "INSERT INTO subjects(department, position, name, weight, max_marks, pass_marks) VALUES(?,?,?,?,?,?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, dept);
+            ps.setInt(2, position);
+            ps.setString(3, name);
+            ps.setDouble(4, weight);
+            ps.setDouble(5, maxMarks);
+            ps.setDouble(6, passMarks);
+            ps.executeUpdate();
+        } finally {
+            subjectCache.remove(dept);
+        }
+        return getSubjects(dept).get(position - 1);
+    }
+
+    private List<Subject> readSubjects(String dept) throws SQLException {
+        String sql = "SELECT id, department, position, name, weight, max_marks, pass_marks "
+                   + "FROM subjects WHERE department=? ORDER BY position";
+        List<Subject> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, dept);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    list.add(new Subject(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getString(4),
+                            rs.getDouble(5), rs.getDouble(6), rs.getDouble(7)));
+            }
+        }
+        return List.copyOf(list);
+    }
+
+    // ===========================================================
+    // =============== MARKS =====================================
+    // ===========================================================
+
+    /**
+     * Loads the marks of a page of students with a single query and stores
+     * them on each {@link Student} (by subject position). Students must have
+     * been read from the database so their ids are set.
+     *
+     * @param page Students to fill in
+     * @throws SQLException if the query fails
+     */
+    public void loadMarks(List<Student> page) throws SQLException {
+        if (page.isEmpty())
+            return;
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT m.student_id, sj.position, m.marks FROM student_marks m "
+              + "JOIN subjects sj ON sj.id = m.subject_id WHERE m.student_id IN (");
+        for (int i = 0; i < page.size(); i++)
+            sql.append(i == 0 ? "?" : ",?");
+        sql.append(')');
+
+        Map<Integer, double[]> byId = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < page.size(); i++)
+                ps.setInt(i + 1, page.get(i).getId());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int position = rs.getInt(2);
+                    double[] marks = byId.get(rs.getInt(1));
+                    if (marks == null || marks.length < position) {
+                        double[] grown = new double[Math.max(position, DEFAULT_SUBJECTS)];
+                        if (marks != null)
+                            System.arraycopy(marks, 0, grown, 0, marks.length);
+                        marks = grown;
+                        byId.put(rs.getInt(1), marks);
+                    }
+                    marks[position - 1] = rs.getDouble(3);
+                }
+            }
+        }
+        for (Student s : page) {
+            double[] marks = byId.get(s.getId());
+            if (marks != null)
+                s.loadMarks(marks);
+        }
+    }
+
+    /**
+     * Replaces a student's per-subject marks in one transaction: the marks of
+     * the department's subjects are upserted and marks of any other subject
+     * (e.g. after a department change) are removed. Nothing is written for an
+     * unknown roll number.
+     * <p>
+     * This does not touch the {@code students} row; to change marks together
+     * with the percentage, version and change log, use
+     * {@link StudentDao#addStudent(Student, List)} or
+     * {@link StudentDao#patchStudent(String, Student, List)}.
+     *
+     * @param rollNo   Roll number of the student
+     * @param subjects Subjects of the student's department, as returned by {@link #getSubjects(String)}
+     * @param marks    Marks in subject order ({@code marks.length} must equal {@code subjects.size()})
+     * @throws IllegalArgumentException if a mark is negative or above the subject's maximum
+     * @throws SQLException if the marks cannot be written; nothing is changed then
+     */
+    public void saveMarks(String rollNo, List<Subject> subjects, double[] marks) throws SQLException {
+        validate(subjects, marks);
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            writeMarks(conn, rollNo, subjects, marks);
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Checks that there is one mark per subject and that each lies between 0
+     * and the subject's maximum marks.
+     *
+     * @param subjects Subjects in position order
+     * @param marks    Marks in the same order
+     * @throws IllegalArgumentException if the marks do not fit the subjects
+     */
+    static void validate(List<Subject> subjects, double[] marks) {
+        if (marks.length != subjects.size())
+            throw new IllegalArgumentException("Expected " + subjects.size() + " marks, got " + marks.length);
+        for (int i = 0; i < marks.length; i++) {
+            Subject sj = subjects.get(i);
+            if (!(marks[i] >= 0 && marks[i] <= sj.maxMarks()))
+                throw new IllegalArgumentException(sj.name() + " marks must be between 0 and " + sj.maxMarks()
+                        + ", got " + marks[i]);
+        }
+    }
+
+    /**
+     * Writes a student's marks on {@code conn} within the caller's transaction
+     * (see {@link #saveMarks}).
+     */
+    static void writeMarks(Connection conn, String rollNo, List<Subject> subjects, double[] marks)
+            throws SQLException {
+        validate(subjects, marks);
+        String upsertSql = "INSERT INTO student_marks(student_id, subject_id, marks) "
+                         + "SELECT id, ?, ? FROM students WHERE roll_no=? "
+                         + "ON DUPLICATE KEY UPDATE marks=VALUES(marks)";
+        StringBuilder deleteSql = new StringBuilder(
+                "DELETE m FROM student_marks m JOIN students s ON s.id = m.student_id WHERE s.roll_no=?");
+        if (!subjects.isEmpty()) {
+            deleteSql.append(" AND m.subject_id NOT IN (");
+            for (int i = 0; i < subjects.size(); i++)
+                deleteSql.append(i == 0 ? "?" : ",?");
+            deleteSql.append(')');
+        }
+
+        try (PreparedStatement upsert = conn.prepareStatement(upsertSql);
+             PreparedStatement delete = conn.prepareStatement(deleteSql.toString())) {
+            for (int i = 0; i < marks.length; i++) {
+                upsert.setInt(1, subjects.get(i).id());
+                upsert.setDouble(2, marks[i]);
+                upsert.setString(3, rollNo);
+                upsert.addBatch();
+            }
+            upsert.executeBatch();
+
+            delete.setString(1, rollNo);
+            for (int i = 0; i < subjects.size(); i++)
+                delete.setInt(i + 2, subjects.get(i).id());
+            delete.executeUpdate();
+        }
+    }
+
+    // ===========================================================
+    // =============== AGGREGATES ================================
+    // ===========================================================
+
+    /**
+     * Computes mean, max, min and pass rate of every subject of a department
+     * in one grouped query (served by the {@code (subject_id, marks)} index).
+     *
+     * @param department Department name
+     * @return One entry per subject, ordered by position
+     * @throws SQLException if the query fails
+     */
+    public List<SubjectStats> getSubjectStats(String department) throws SQLException {
+        String sql = "SELECT sj.id, COUNT(m.marks), AVG(m.marks), MAX(m.marks), MIN(m.marks), "
+                   + "SUM(m.marks >= sj.pass_marks) "
+                   + "FROM subjects sj LEFT JOIN student_marks m ON m.subject_id = sj.id "
+                   + "WHERE sj.department=? GROUP BY sj.id";
+        Map<Integer, SubjectStats> byId = new HashMap<>();
+        List<Subject> subjects = getSubjects(department);
+        Map<Integer, Subject> subjectById = new HashMap<>();
+        for (Subject sj : subjects)
+            subjectById.put(sj.id(), sj);
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, department == null ? "" : department);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Subject sj = subjectById.get(rs.getInt(1));
+                    if (sj == null)
+                        continue;
+                    int n = rs.getInt(2);
+                    double passRate = n == 0 ? 0 : rs.getInt(6) * 100.0 / n;
+                    byId.put(sj.id(), new SubjectStats(sj, n, rs.getDouble(3), rs.getDouble(4), rs.getDouble(5),
+                            Math.round(passRate * 100.0) / 100.0));
+                }
+            }
+        }
+
+        List<SubjectStats> list = new ArrayList<>(subjects.size());
+        for (Subject sj : subjects) {
+            SubjectStats st = byId.get(sj.id());
+            list.add(st != null ? st : new SubjectStats(sj, 0, 0, 0, 0, 0));
+        }
+        return list;
+    }
+
+    /**
+     * Weighted percentage of a marks array for the given subjects.
+     *
+     * @param subjects Subjects in position order
+     * @param marks    Marks in the same order
+     * @return Percentage rounded to two decimals
+     */
+    public static double percentage(List<Subject> subjects, double[] marks) {
+        double[] max = new double[subjects.size()];
+        double[] weights = new double[subjects.size()];
+        for (int i = 0; i < subjects.size(); i++) {
+            max[i] = subjects.get(i).maxMarks();
+            weights[i] = subjects.get(i).weight();
+        }
+        return GradingScheme.percentage(marks, max, weights);
+    }
+}
@@ -0,0 +1,587 @@
+package in.sp.main;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The {@code QueryPlanCheck} class guards against query plan regressions: it
+ * runs {@code EXPLAIN} for every statement issued by {@link StudentDao},
+ * {@link AdminService}, {@link MarksDao} and {@link LoginService} and checks the access type,
+ * index and estimated row count of each table access against expectations.
+ * <p>
+ * The statements are not copied here. Every public operation is called on a
+ * connection wrapper that explains each statement just before it runs, with
+ * the parameters bound exactly as the service bound them. So generated SQL
+ * (patches, criteria searches, {@code IN} lists) is covered, and so is a
+ * parameter bound with the wrong type: a number compared with the
+ * {@code VARCHAR} {@code roll_no} column turns the unique lookup into a
+ * full scan.
+ * <p>
+ * Writes run for real inside one transaction that is rolled back at the end;
+ * the services' own commits and rollbacks are suppressed until then.
+ * <p>
+ * Usage:
+ * <pre>
+ *     java in.sp.main.QueryPlanCheck [students] [seed]
+ * </pre>
+ * Migrates the schema and, if {@code students} is empty, seeds it with
+ * {@link DataGenerator} (default 50000 students, seed 42) so the optimizer
+ * sees realistic statistics. The plans are printed and written to
+ * {@code bench-results/}; the exit status is 1 if any check failed, so the
+ * check can gate a build.
+ */
+public class QueryPlanCheck {
+
+    /** Students seeded into an empty table. */
+    public static final int DEFAULT_STUDENTS = 50_000;
+
+    /** Access types that read a bounded set of rows through an index. */
+    private static final Set<String> INDEX_LOOKUP = Set.of("system", "const", "eq_ref", "ref", "range");
+
+    /** First {@link DataGenerator} index of the students inserted by the checks (never seeded). */
+    private static final long FRESH_INDEX = 900_000_001L;
+
+    /** Department created by the checks (never seeded), so its subjects start out missing. */
+    private static final String FRESH_DEPARTMENT = "Plan Check";
+
+    /** Upper bound on the subjects of one department, for the row estimates of marks lookups. */
+    private static final int MAX_SUBJECTS = 20;
+
+    /**
+     * Allowance on top of twice the actual row count for the estimate of a
+     * range or index scan; InnoDB samples index pages, so small ranges are
+     * estimated coarsely.
+     */
+    private static final long ESTIMATE_SLACK = 50;
+
+    // ===========================================================
+    // =============== EXPECTATIONS ==============================
+    // ===========================================================
+
+    /**
+     * Allowed plan for one table of a statement.
+     *
+     * @param table   Table name or alias as shown by {@code EXPLAIN}
+     * @param types   Allowed access types
+     * @param key     Index that must be used, or {@code null} for a full table scan
+     * @param maxRows Largest acceptable row estimate
+     */
+    record Expectation(String table, Set<String> types, String key, long maxRows) {
+
+        @Override
+        public String toString() {
+            return table + ": " + String.join("/", new TreeSet<>(types))
+                    + (key == null ? "" : " on " + key) + (maxRows == Long.MAX_VALUE ? "" : ", rows <= " + maxRows);
+        }
+    }
+
+    /** Index lookup ({@code const} .. {@code range}) on {@code key} reading at most {@code maxRows} rows. */
+    static Expectation lookup(String table, String key, long maxRows) {
+        return new Expectation(table, INDEX_LOOKUP, key, maxRows);
+    }
+
+    /** Full scan of an index, e.g. for {@code COUNT(*)}. */
+    static Expectation indexScan(String table, String key) {
+        return new Expectation(table, Set.of("index"), key, Long.MAX_VALUE);
+    }
+
+    /** Intended full table scan (listings, leading-wildcard {@code LIKE}, single-pass rankings). */
+    static Expectation tableScan(String table) {
+        return new Expectation(table, Set.of("ALL"), null, Long.MAX_VALUE);
+    }
+
+    /**
+     * Actual sizes of the ranges the non-unique lookups read, counted before
+     * the checks run. Their row estimate bounds are derived from these, so a
+     * plan that reads far more than the query selects fails even when it
+     * uses the expected index.
+     *
+     * @param department  Students in the sample student's department
+     * @param deptAbove60 Students of that department at 60% or above
+     * @param above95     Students at 95% or above
+     */
+    record Selectivity(long department, long deptAbove60, long above95) {
+
+        /**
+         * @param conn Unwrapped connection
+         * @param dept Department of the sample student
+         * @return The counts for the current data
+         */
+        static Selectivity of(Connection conn, String dept) throws SQLException {
+            String deptSql = "SELECT COUNT(*), COALESCE(SUM(percentage >= 60), 0) FROM students WHERE department=?";
+            String topSql = "SELECT COUNT(*) FROM students WHERE percentage >= 95";
+            try (PreparedStatement d = conn.prepareStatement(deptSql);
+                 Statement t = conn.createStatement()) {
+                d.setString(1, dept);
+                try (ResultSet rd = d.executeQuery();
+                     ResultSet rt = t.executeQuery(topSql)) {
+                    rd.next();
+                    rt.next();
+                    return new Selectivity(rd.getLong(1), rd.getLong(2), rt.getLong(1));
+                }
+            }
+        }
+    }
+
+    /** @return Largest acceptable row estimate for a scan that selects {@code rows} rows */
+    static long estimateFor(long rows) {
+        return 2 * rows + ESTIMATE_SLACK;
+    }
+
+    /** An operation to run against the explaining connection. */
+    @FunctionalInterface
+    interface Call {
+        void run() throws SQLException;
+    }
+
+    /**
+     * One checked operation. Every table access of every statement it issues
+     * must match an expectation for that table; statements that touch no
+     * table (e.g. {@code MIN}/{@code MAX} answered from an index) and plain
+     * {@code INSERT}s always pass.
+     */
+    record Check(String name, Call call, List<Expectation> expected) {
+    }
+
+    // ===========================================================
+    // =============== PLANS =====================================
+    // ===========================================================
+
+    /** One row of {@code EXPLAIN} output. */
+    record PlanRow(String selectType, String table, String type, String key, long rows, String extra) {
+    }
+
+    /** A statement as issued by a service, with its plan. */
+    record Capture(String sql, List<PlanRow> plan) {
+    }
+
+    /** A parameter setter call recorded from a service, e.g. {@code setString(1, "R1")}. */
+    record Bind(Method setter, Object[] args) {
+    }
+
+    /**
+     * Returns the plan of {@code sql} with the given parameters bound.
+     *
+     * @param conn  Unwrapped connection to explain on
+     * @param sql   Statement text
+     * @param binds Parameter setters recorded from the service, replayed in order
+     */
+    static List<PlanRow> explain(Connection conn, String sql, Iterable<Bind> binds) throws SQLException {
+        List<PlanRow> plan = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (Bind bind : binds) {
+                try {
+                    bind.setter().invoke(ps, bind.args());
+                } catch (ReflectiveOperationException e) {
+                    throw new SQLException("Cannot bind parameter for EXPLAIN", e);
+                }
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long rows = rs.getLong("rows");
+                    plan.add(new PlanRow(rs.getString("select_type"), rs.getString("table"),
+                            rs.getString("type"), rs.getString("key"), rows, rs.getString("Extra")));
+                }
+            }
+        }
+        return plan;
+    }
+
+    /** @return {@code true} for statements {@code EXPLAIN} accepts */
+    private static boolean explainable(String sql) {
+        String verb = sql.stripLeading().split("\\s", 2)[0].toUpperCase(Locale.ROOT);
+        return Set.of("SELECT", "INSERT", "UPDATE", "DELETE", "REPLACE").contains(verb);
+    }
+
+    /**
+     * Wraps a connection so every statement prepared or executed through it
+     * is explained (on the real connection) right before it runs.
+     * {@code commit}, {@code rollback} and {@code setAutoCommit} are ignored,
+     * keeping all work in the caller's transaction.
+     */
+    static final class ExplainingConnection implements InvocationHandler {
+        private final Connection conn;
+        private final List<Capture> captured;
+
+        private ExplainingConnection(Connection conn, List<Capture> captured) {
+            this.conn = conn;
+            this.captured = captured;
+        }
+
+        /**
+         * @param conn     Connection to wrap; must have auto-commit off
+         * @param captured Receives one {@link Capture} per explained statement
+         * @return The explaining connection
+         */
+        static Connection wrap(Connection conn, List<Capture> captured) {
+            return (Connection) Proxy.newProxyInstance(QueryPlanCheck.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, new ExplainingConnection(conn, captured));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            return switch (method.getName()) {
+                case "commit", "rollback", "setAutoCommit" -> null;
+                case "prepareStatement" -> wrap(PreparedStatement.class, call(method, args), (String) args[0]);
+                case "createStatement" -> wrap(Statement.class, call(method, args), null);
+                default -> call(method, args);
+            };
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(conn, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private Object wrap(Class<?> type, Object statement, String sql) {
+            return Proxy.newProxyInstance(QueryPlanCheck.class.getClassLoader(), new Class<?>[] {type},
+                    new StatementHandler(statement, sql));
+        }
+
+        /** Records parameter setters and explains before each execution. */
+        private final class StatementHandler implements InvocationHandler {
+            private final Object statement;
+            private final String sql;
+            private final TreeMap<Integer, Bind> binds = new TreeMap<>();
+            private boolean batchExplained;
+
+            StatementHandler(Object statement, String sql) {
+                this.statement = statement;
+                this.sql = sql;
+            }
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                String name = method.getName();
+                if (method.getDeclaringClass() == PreparedStatement.class && name.startsWith("set"))
+                    binds.put((Integer) args[0], new Bind(method, args));
+                else if (name.equals("clearParameters"))
+                    binds.clear();
+                else if (name.equals("addBatch") && args == null && !batchExplained) {
+                    record(sql);
+                    batchExplained = true;
+                } else if (name.startsWith("execute") && !name.equals("executeBatch")) {
+                    record(args != null && args.length > 0 && args[0] instanceof String s ? s : sql);
+                }
+                try {
+                    return method.invoke(statement, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+
+            private void record(String text) throws SQLException {
+                if (text != null && explainable(text))
+                    captured.add(new Capture(text, explain(conn, text, binds.values())));
+            }
+        }
+    }
+
+    // ===========================================================
+    // =============== CHECKS ====================================
+    // ===========================================================
+
+    /**
+     * Builds the checks for every public operation of the four services.
+     *
+     * @param conn     Explaining connection
+     * @param counts   Actual range sizes for the sample's department
+     * @param sample   An existing student
+     * @param seed     Seed for the students inserted by the checks
+     */
+    static List<Check> checks(Connection conn, Selectivity counts, Student sample, long seed) {
+        StudentDao dao = new StudentDao(conn);
+        AdminService admin = new AdminService(conn);
+        MarksDao marks = new MarksDao(conn);
+        LoginService login = new LoginService(conn);
+
+        String roll = sample.getRollNo();
+        String dept = sample.getDepartment();
+        Iterator<Student> fresh = new DataGenerator(seed).students(FRESH_INDEX, 3);
+        Student added = fresh.next();
+        List<Student> batch = List.of(fresh.next(), fresh.next());
+        // Each student of the department has one marks row per subject and
+        // ranks against the others of it, so both read about one department
+        long ofDepartment = estimateFor(counts.department());
+
+        Expectation byRoll = lookup("students", "roll_no", 1);
+        Expectation subjectsOfDept = lookup("subjects", "uk_subjects_dept_pos", MAX_SUBJECTS);
+        // Replacing a student's marks: upsert through the roll number, then delete the others
+        List<Expectation> writeMarks = List.of(byRoll, lookup("s", "roll_no", 1),
+                lookup("m", "PRIMARY", MAX_SUBJECTS));
+        List<Check> checks = new ArrayList<>();
+
+        // StudentDao: writes (the change log INSERT has no access path to check)
+        checks.add(new Check("StudentDao.addStudent", () -> dao.addStudent(added), List.of()));
+        checks.add(new Check("StudentDao.addStudents", () -> dao.addStudents(batch), List.of()));
+        checks.add(new Check("StudentDao.updateStudent",
+                () -> dao.updateStudent(roll, sample), List.of(byRoll)));
+        checks.add(new Check("StudentDao.updateStudentChecked",
+                () -> dao.updateStudentChecked(roll, dao.getStudentByRollNo(roll)), List.of(byRoll)));
+        checks.add(new Check("StudentDao.patchStudent", () -> {
+            Student s = dao.getStudentByRollNo(roll);
+            s.setPhone("9000000000");
+            dao.patchStudent(roll, s);
+        }, List.of(byRoll)));
+        checks.add(new Check("StudentDao.updateWithRetry",
+                () -> dao.updateWithRetry(roll, s -> s.setPhone("9000000001"), 3), List.of(byRoll)));
+        checks.add(new Check("StudentDao.deleteStudentChecked (stale)", () -> {
+            try {
+                dao.deleteStudentChecked(roll, -1);
+            } catch (StaleStudentException expected) {
+                // Also covers the follow-up existence check
+            }
+        }, List.of(byRoll)));
+        checks.add(new Check("StudentDao.deleteStudent",
+                () -> dao.deleteStudent(added.getRollNo()), List.of(byRoll)));
+        checks.add(new Check("StudentDao.addStudent (with marks)", () -> {
+            List<MarksDao.Subject> subjects = marks.getSubjects(added.getDepartment());
+            added.setMarks(marksFor(subjects));
+            dao.addStudent(added, subjects);
+        }, concat(List.of(subjectsOfDept), writeMarks)));
+        checks.add(new Check("StudentDao.patchStudent (with marks)", () -> {
+            Student s = dao.getStudentByRollNo(roll);
+            List<MarksDao.Subject> subjects = marks.getSubjects(dept);
+            s.setMarks(marksFor(subjects));
+            dao.patchStudent(roll, s, subjects);
+        }, concat(List.of(subjectsOfDept), writeMarks)));
+
+        // StudentDao: reads
+        checks.add(new Check("StudentDao.getAllStudents", dao::getAllStudents, List.of(tableScan("students"))));
+        checks.add(new Check("StudentDao.getStudentByRollNo", () -> dao.getStudentByRollNo(roll), List.of(byRoll)));
+        checks.add(new Check("StudentDao.searchByRollno", () -> dao.searchByRollno(roll), List.of(byRoll)));
+        checks.add(new Check("StudentDao.getStudentsByRollNos",
+                () -> dao.getStudentsByRollNos(List.of(roll, batch.get(0).getRollNo(), batch.get(1).getRollNo())),
+                List.of(lookup("students", "roll_no", 3))));
+        checks.add(new Check("StudentDao.search (department, min %, best first)",
+                () -> dao.search(new StudentCriteria().department(dept).minPercentage(60)
+                        .sortBy(StudentCriteria.SortField.PERCENTAGE, true).limit(20)),
+                List.of(lookup("students", "idx_students_dept_pct", estimateFor(counts.deptAbove60())))));
+        checks.add(new Check("StudentDao.search (min %)",
+                () -> dao.search(new StudentCriteria().minPercentage(95)),
+                List.of(lookup("students", "idx_students_percentage", estimateFor(counts.above95())))));
+        checks.add(new Check("StudentDao.searchByName", () -> dao.searchByName("Raj"),
+                List.of(tableScan("students"))));
+        checks.add(new Check("StudentDao.searchByDepartment", () -> dao.searchByDepartment(dept),
+                List.of(tableScan("students"))));
+        checks.add(new Check("StudentDao.searchByMarksRange", () -> dao.searchByMarksRange(95),
+                List.of(lookup("students", "idx_students_percentage", estimateFor(counts.above95())))));
+
+        // AdminService
+        checks.add(new Check("AdminService.getTotalStudents", admin::getTotalStudents,
+                List.of(indexScan("students", "idx_students_percentage"))));
+        checks.add(new Check("AdminService.getHighestMarks", admin::getHighestMarks, List.of()));
+        checks.add(new Check("AdminService.getLowestMarks", admin::getLowestMarks, List.of()));
+        checks.add(new Check("AdminService.getTopN", () -> admin.getTopN(10), List.of(tableScan("students"))));
+        checks.add(new Check("AdminService.getBottomN", () -> admin.getBottomN(10), List.of(tableScan("students"))));
+        checks.add(new Check("AdminService.getTopNByDepartment", () -> admin.getTopNByDepartment(5),
+                List.of(tableScan("students"))));
+        checks.add(new Check("AdminService.getBottomNByDepartment", () -> admin.getBottomNByDepartment(5),
+                List.of(tableScan("students"))));
+        checks.add(new Check("AdminService.getDepartmentRank", () -> admin.getDepartmentRank(roll),
+                List.of(lookup("s", "roll_no", 1), lookup("o", "idx_students_dept_pct", ofDepartment))));
+
+        // MarksDao (reads the subjects and marks written by the checks above)
+        checks.add(new Check("MarksDao.findSubjects", () -> new MarksDao(conn).findSubjects(dept),
+                List.of(subjectsOfDept)));
+        checks.add(new Check("MarksDao.getSubjects (creates defaults)",
+                () -> marks.getSubjects(FRESH_DEPARTMENT), List.of(subjectsOfDept)));
+        checks.add(new Check("MarksDao.addSubject",
+                () -> marks.addSubject(FRESH_DEPARTMENT, "Plan Check Lab", 1, 50, 20), List.of(subjectsOfDept)));
+        checks.add(new Check("MarksDao.saveMarks", () -> {
+            List<MarksDao.Subject> subjects = marks.getSubjects(dept);
+            marks.saveMarks(roll, subjects, marksFor(subjects));
+        }, concat(List.of(subjectsOfDept), writeMarks)));
+        checks.add(new Check("MarksDao.loadMarks", () -> marks.loadMarks(
+                        dao.getStudentsByRollNos(List.of(roll, added.getRollNo(), batch.get(0).getRollNo()))),
+                List.of(lookup("students", "roll_no", 3), lookup("m", "PRIMARY", 3L * MAX_SUBJECTS),
+                        lookup("sj", "PRIMARY", 1))));
+        checks.add(new Check("MarksDao.getSubjectStats", () -> marks.getSubjectStats(dept),
+                List.of(subjectsOfDept, lookup("sj", "uk_subjects_dept_pos", MAX_SUBJECTS),
+                        lookup("m", "idx_student_marks_subject", ofDepartment))));
+
+        // LoginService
+        checks.add(new Check("LoginService.authenticate", () -> login.authenticate("admin", "not-the-password"),
+                List.of(lookup("admin_users", "username", 1))));
+        return checks;
+    }
+
+    /** @return Valid marks for {@code subjects}: half of each subject's maximum */
+    private static double[] marksFor(List<MarksDao.Subject> subjects) {
+        double[] marks = new double[subjects.size()];
+        for (int i = 0; i < marks.length; i++)
+            marks[i] = subjects.get(i).maxMarks() / 2;
+        return marks;
+    }
+
+    private static List<Expectation> concat(List<Expectation> a, List<Expectation> b) {
+        List<Expectation> all = new ArrayList<>(a);
+        all.addAll(b);
+        return all;
+    }
+
+    /**
+     * @return Why {@code capture} violates the expectations, one line per table access
+     *         (empty if it does not)
+     */
+    static List<String> violations(Capture capture, List<Expectation> expected) {
+        List<String> problems = new ArrayList<>();
+        for (PlanRow row : capture.plan()) {
+            if (row.table() == null || "INSERT".equals(row.selectType()))
+                continue;
+            Expectation e = expected.stream().filter(x -> x.table().equals(row.table())).findFirst().orElse(null);
+            String actual = row.table() + ": " + row.type() + (row.key() == null ? "" : " on " + row.key())
+                    + ", rows " + row.rows();
+            if (e == null)
+                problems.add("unexpected access " + actual);
+            else if (!e.types().contains(row.type()) || !Objects.equals(e.key(), row.key()) || row.rows() > e.maxRows())
+                problems.add("expected " + e + ", got " + actual);
+        }
+        return problems;
+    }
+
+    // ===========================================================
+    // =============== DRIVER ====================================
+    // ===========================================================
+
+    /**
+     * Seeds the database if needed, checks every plan and writes the report.
+     *
+     * @param args Optional {@code students seed}
+     * @throws Exception if the database cannot be prepared or the report cannot be written
+     */
+    public static void main(String[] args) throws Exception {
+        int seedCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_STUDENTS;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+
+        int failed;
+        try (Connection conn = DatabaseConnection.getConnection()) {
+            for (String migration : new SchemaMigrator(conn).migrate())
+                System.out.println("Applied schema migration " + migration);
+            if (countStudents(conn) == 0) {
+                DataGenerator.LoadResult r = DataGenerator.load(conn, new DataGenerator(seed).students(1, seedCount),
+                        DataGenerator.DEFAULT_BATCH_SIZE, DataGenerator.DEFAULT_COMMIT_SIZE);
+                System.out.printf("Seeded %,d students in %,d ms%n", r.rows(), r.elapsedMs());
+            }
+            try (Statement st = conn.createStatement()) {
+                st.execute("ANALYZE TABLE students, subjects, student_marks, admin_users"); // fresh index statistics for the row estimates
+            }
+            long students = countStudents(conn);
+            Student sample = firstStudent(conn);
+            if (sample == null) {
+                System.err.println("No students to check against.");
+                System.exit(1);
+                return;
+            }
+
+            Selectivity counts = Selectivity.of(conn, sample.getDepartment());
+            List<String> report = new ArrayList<>();
+            report.add("# students=" + students + " seed=" + seed + " " + counts);
+            conn.setAutoCommit(false);
+            try {
+                failed = run(conn, counts, sample, seed, report);
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            write(report);
+        }
+        if (failed > 0) {
+            System.err.println(failed + " query plan check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All query plan checks passed");
+    }
+
+    /** Runs all checks inside the caller's transaction; returns the number that failed. */
+    private static int run(Connection conn, Selectivity counts, Student sample, long seed, List<String> report)
+            throws SQLException {
+        List<Capture> captured = new ArrayList<>();
+        List<Check> checks = checks(ExplainingConnection.wrap(conn, captured), counts, sample, seed);
+        int failed = 0;
+        for (Check check : checks) {
+            captured.clear();
+            List<String> problems = new ArrayList<>();
+            try {
+                check.call().run();
+            } catch (SQLException | RuntimeException e) {
+                problems.add("failed to run: " + e);
+            }
+            if (captured.isEmpty() && problems.isEmpty())
+                problems.add("issued no statement");
+            for (Capture c : captured)
+                problems.addAll(violations(c, check.expected()));
+
+            String status = problems.isEmpty() ? "OK" : "FAIL";
+            System.out.printf("%-4s %s%n", status, check.name());
+            problems.forEach(p -> System.out.println("     " + p));
+            if (!problems.isEmpty())
+                failed++;
+
+            report.add("");
+            report.add("== " + check.name() + " [" + status + "]");
+            problems.forEach(p -> report.add("!! " + p));
+            for (Capture c : captured) {
+                report.add(c.sql());
+                report.add(String.format("   %-8s %-12s %-8s %-24s %10s  %s", "select", "table", "type", "key", "rows",
+                        "extra"));
+                for (PlanRow r : c.plan())
+                    report.add(String.format("   %-8s %-12s %-8s %-24s %10d  %s", r.selectType(),
+                            Objects.toString(r.table(), "-"), Objects.toString(r.type(), "-"),
+                            Objects.toString(r.key(), "-"), r.rows(), Objects.toString(r.extra(), "")));
+            }
+        }
+        System.out.println((checks.size() - failed) + " of " + checks.size() + " checks passed");
+        return failed;
+    }
+
+    private static long countStudents(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM students")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static Student firstStudent(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT * FROM students ORDER BY id LIMIT 1")) {
+            return rs.next() ? StudentDao.mapStudent(rs) : null;
+        }
+    }
+
+    private static void write(List<String> report) throws IOException {
+        Files.createDirectories(WorkloadDriver.RESULTS_DIR);
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path file = WorkloadDriver.RESULTS_DIR.resolve("query-plans-" + stamp + ".txt");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            report.forEach(out::println);
+        }
+        System.out.println("Plans written to " + file);
+    }
+}
@@ -0,0 +1,215 @@
+package in.sp.main;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The {@code RegradeService} class recomputes the percentage and grade of every
+ * student in the {@code students} table using a given {@link GradingScheme}.
+ * <p>
+ * The table is read in chunks ordered by primary key (keyset pagination), so
+ * memory stays bounded regardless of table size. Each chunk is copied into
+ * primitive arrays, recomputed in a tight loop, and only the rows whose
+ * percentage or grade actually changed are written back as one JDBC batch.
+ * Every chunk is committed in its own transaction, together with a
+ * {@code student_changes} row per rewritten student (see {@link ChangePoller});
+ * listeners registered with {@link #addListener(StudentListener)} are
+ * notified of those students once the chunk has committed.
+ * <p>
+ * Students with per-subject marks in {@code student_marks} get the weighted
+ * percentage of all their subjects (one grouped query per chunk, see
+ * {@link MarksDao}); the others fall back to {@code sub1..sub3}.
+ */
+public class RegradeService {
+
+    /** Default number of rows read, recomputed and committed per chunk. */
+    public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    /** Stored percentages are {@code DECIMAL(5,2)}; smaller differences are not changes. */
+    private static final double EPSILON = 0.001;
+
+    /** Active database connection used for reading and writing student rows. */
+    private Connection conn;
+
+    /** Notified after each committed chunk (caches, audit log). */
+    private final List<StudentListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructs a {@code RegradeService} with the specified database connection.
+     *
+     * @param conn Active {@link Connection} object
+     */
+    public RegradeService(Connection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Registers a listener to be notified of every student a regrade rewrites.
+     *
+     * @param listener The {@link StudentListener} to add
+     */
+    public void addListener(StudentListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Summary of a bulk regrade run.
+     *
+     * @param scanned   Number of rows examined
+     * @param changed   Number of rows whose percentage or grade was rewritten
+     * @param chunks    Number of committed chunks
+     * @param elapsedMs Wall clock duration in milliseconds
+     */
+    public record Result(int scanned, int changed, int chunks, long elapsedMs) {
+    }
+
+    /**
+     * Regrades all students using {@link #DEFAULT_CHUNK_SIZE}.
+     *
+     * @param scheme Grading scheme to apply
+     * @return A {@link Result} describing the run
+     * @throws SQLException if a database access error occurs
+     */
+    public Result regradeAll(GradingScheme scheme) throws SQLException {
+        return regradeAll(scheme, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Recomputes percentage and grade for every student and writes back the
+     * changed rows in batched, chunk-sized transactions.
+     * <p>
+     * If a chunk fails it is rolled back; chunks committed before the failure
+     * remain applied, and re-running the regrade is safe because unchanged
+     * rows are skipped.
+     *
+     * @param scheme    Grading scheme to apply
+     * @param chunkSize Number of rows per chunk / transaction
+     * @return A {@link Result} describing the run
+     * @throws SQLException if a database access error occurs
+     */
+    public Result regradeAll(GradingScheme scheme, int chunkSize) throws SQLException {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("chunkSize must be positive");
+
+        String selectSql = "SELECT id, sub1, sub2, sub3, percentage, grade, roll_no, name, department, email, phone "
+                         + "FROM students "
+                         + "WHERE id > ? ORDER BY id LIMIT ?";
+        String weightedSql = "SELECT m.student_id, SUM(sj.weight * m.marks / sj.max_marks), SUM(sj.weight) "
+                           + "FROM student_marks m JOIN subjects sj ON sj.id = m.subject_id "
+                           + "WHERE m.student_id > ? AND m.student_id <= ? GROUP BY m.student_id";
+        String updateSql = "UPDATE students SET percentage=?, grade=?, version=version+1 WHERE id=?";
+
+        // Reused chunk buffers
+        int[] ids = new int[chunkSize];
+        double[] s1 = new double[chunkSize];
+        double[] s2 = new double[chunkSize];
+        double[] s3 = new double[chunkSize];
+        double[] oldPct = new double[chunkSize];
+        String[] oldGrade = new String[chunkSize];
+        double[] newPct = new double[chunkSize];
+        String[] newGrade = new String[chunkSize];
+        String[][] text = new String[chunkSize][]; // roll_no, name, department, email, phone
+        int[] written = new int[chunkSize];
+
+        long start = System.currentTimeMillis();
+        int scanned = 0, changed = 0, chunks = 0;
+        int lastId = 0;
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement select = conn.prepareStatement(selectSql);
+             PreparedStatement weighted = conn.prepareStatement(weightedSql);
+             PreparedStatement update = conn.prepareStatement(updateSql);
+             PreparedStatement log = conn.prepareStatement(ChangePoller.RECORD_SQL)) {
+
+            while (true) {
+                // --- Read one chunk into primitive arrays ---
+                int n = 0;
+                select.setInt(1, lastId);
+                select.setInt(2, chunkSize);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        ids[n] = rs.getInt(1);
+                        s1[n] = rs.getDouble(2);
+                        s2[n] = rs.getDouble(3);
+                        s3[n] = rs.getDouble(4);
+                        oldPct[n] = rs.getDouble(5);
+                        oldGrade[n] = rs.getString(6);
+                        text[n] = new String[] {rs.getString(7), rs.getString(8), rs.getString(9),
+                                rs.getString(10), rs.getString(11)};
+                        n++;
+                    }
+                }
+                if (n == 0)
+                    break;
+
+                // --- Recompute ---
+                for (int i = 0; i < n; i++)
+                    newPct[i] = GradingScheme.percentage(s1[i], s2[i], s3[i]);
+                weighted.setInt(1, lastId);
+                weighted.setInt(2, ids[n - 1]);
+                try (ResultSet rs = weighted.executeQuery()) {
+                    while (rs.next()) {
+                        int i = Arrays.binarySearch(ids, 0, n, rs.getInt(1));
+                        double totalWeight = rs.getDouble(3);
+                        if (i >= 0 && totalWeight > 0)
+                            newPct[i] = Math.round(rs.getDouble(2) / totalWeight * 100.0 * 100.0) / 100.0;
+                    }
+                }
+                for (int i = 0; i < n; i++)
+                    newGrade[i] = scheme.grade(newPct[i]);
+
+                // --- Write back only the changed rows ---
+                int pending = 0;
+                for (int i = 0; i < n; i++) {
+                    if (Math.abs(newPct[i] - oldPct[i]) > EPSILON || !newGrade[i].equals(oldGrade[i])) {
+                        update.setDouble(1, newPct[i]);
+                        update.setString(2, newGrade[i]);
+                        update.setInt(3, ids[i]);
+                        update.addBatch();
+                        ChangePoller.bindChange(log, text[i][0], StudentListener.ChangeType.UPDATE);
+                        log.addBatch();
+                        written[pending++] = i;
+                    }
+                }
+                try {
+                    if (pending > 0) {
+                        update.executeBatch();
+                        log.executeBatch();
+                    }
+                    conn.commit();
+                } catch (SQLException e) {
+                    update.clearBatch();
+                    log.clearBatch();
+                    conn.rollback();
+                    throw e;
+                }
+                for (int k = 0; k < pending; k++) {
+                    int i = written[k];
+                    String[] t = text[i];
+                    Student student = new Student(t[1], t[0], t[2], t[3], t[4], s1[i], s2[i], s3[i],
+                            newPct[i], newGrade[i]);
+                    student.setId(ids[i]);
+                    for (StudentListener l : listeners)
+                        l.onStudentChanged(StudentListener.ChangeType.UPDATE, t[0], student);
+                }
+
+                scanned += n;
+                changed += pending;
+                chunks++;
+                lastId = ids[n - 1];
+                if (n < chunkSize)
+                    break;
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+
+        return new Result(scanned, changed, chunks, System.currentTimeMillis() - start);
+    }
+}
@@ -0,0 +1,654 @@
+package in.sp.main;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * The {@code ReportCardGenerator} class writes one plain-text report card per
+ * student (marks per subject, percentage, grade and department rank).
+ * <p>
+ * Work is split into three stages connected by bounded queues, so memory
+ * stays flat however large the table is and the slowest stage sets the pace:
+ * <ol>
+ *     <li><b>Reader</b> (calling thread): streams {@code students} ordered by
+ *     department and rank, numbers each student within their department on
+ *     the fly, loads marks one page at a time through {@link MarksDao} and
+ *     hands the page on.</li>
+ *     <li><b>Renderers</b> ({@code parallelism} threads): format each card
+ *     into a {@link StringBuilder} owned by the thread and reused for every
+ *     card.</li>
+ *     <li><b>Writer</b> (one thread): writes cards as files into a directory,
+ *     or as entries of zip archives, and records finished roll numbers in a
+ *     manifest.</li>
+ * </ol>
+ * <p>
+ * <b>Resuming:</b> the manifest ({@value #MANIFEST} in the output directory,
+ * or {@code name-manifest.txt} next to a zip target) lists every roll number whose card is safely on disk; it is forced to disk
+ * after each page. A rerun reads it and skips those students, so after a
+ * crash only the cards of the interrupted page are produced again. A zip
+ * archive cannot be appended to once its writer dies (the central directory
+ * is written last), so zip output is split into parts of
+ * {@link #ZIP_PART_SIZE} cards and a part's roll numbers enter the manifest
+ * only when the part is closed; an unfinished part is overwritten on resume.
+ * <p>
+ * The reader needs two connections: one is held by the streaming scan,
+ * the other serves the marks queries.
+ */
+public class ReportCardGenerator {
+
+    /** Name of the resume manifest inside the output directory. */
+    static final String MANIFEST = "manifest.txt";
+
+    /** Students per page handed from the reader to the renderers. */
+    private static final int PAGE_SIZE = 500;
+
+    /** Cards per zip part. */
+    static final int ZIP_PART_SIZE = 50_000;
+
+    /** Width of a rendered card, for rules and centred titles. */
+    private static final int WIDTH = 56;
+
+    /**
+     * A page of students in department-rank order.
+     *
+     * @param students Students of the page, marks loaded
+     * @param ranks    Department rank of each student
+     * @param totals   Size of each student's department
+     * @param subjects Subjects of each department on the page
+     */
+    private record Page(List<Student> students, int[] ranks, int[] totals,
+                        Map<String, List<MarksDao.Subject>> subjects) {
+    }
+
+    /**
+     * A rendered card.
+     *
+     * @param rollNo  Roll number of the student
+     * @param name    File or entry name
+     * @param content UTF-8 text of the card
+     */
+    private record Card(String rollNo, String name, byte[] content) {
+    }
+
+    /** Marks the end of the stream on both queues. */
+    private static final Page END_OF_PAGES = new Page(List.of(), new int[0], new int[0], Map.of());
+    private static final List<Card> END_OF_CARDS = List.of();
+
+    /**
+     * Outcome of one run.
+     *
+     * @param scanned      Students read from the table
+     * @param written      Cards written in this run
+     * @param skipped      Students skipped because the manifest already lists them
+     * @param bytes        Bytes of card text written
+     * @param parallelism  Number of rendering threads
+     * @param readerWaitMs Time the reader was blocked on a full queue (renderers are the bottleneck)
+     * @param writerWaitMs Time the writer waited on an empty queue (reader or renderers are the bottleneck)
+     * @param elapsedMs    Wall-clock time of the run
+     */
+    public record Report(long scanned, long written, long skipped, long bytes, int parallelism,
+                         long readerWaitMs, long writerWaitMs, long elapsedMs) {
+
+        /** @return Cards written per second */
+        public double cardsPerSecond() {
+            return elapsedMs == 0 ? 0 : written * 1000.0 / elapsedMs;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(elapsedMs, 1) / 1000.0;
+            return "Report cards: " + written + " written, " + skipped + " already done, " + scanned + " scanned"
+                 + " in " + elapsedMs + " ms (" + Math.round(cardsPerSecond()) + " cards/s, "
+                 + Math.round(bytes / seconds / 1024) + " KiB/s) with " + parallelism + " renderers; "
+                 + "reader blocked " + readerWaitMs + " ms, writer idle " + writerWaitMs + " ms";
+        }
+    }
+
+    private final Connection scanConn;
+    private final MarksDao marksDao;
+    private final int parallelism;
+
+    /** Set by the first failing stage; the others stop at their next queue operation. */
+    private volatile Throwable failure;
+
+    /**
+     * Constructs a generator.
+     *
+     * @param scanConn    Connection held by the streaming scan for the whole run
+     * @param marksConn   Another connection, used for the marks and subjects queries
+     * @param parallelism Number of rendering threads (at least 1)
+     */
+    public ReportCardGenerator(Connection scanConn, Connection marksConn, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        this.scanConn = scanConn;
+        this.marksDao = new MarksDao(marksConn);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Generates the report cards of all students not yet listed in the manifest.
+     *
+     * @param target Output directory, or a path ending in {@code .zip} to write
+     *               zip parts ({@code name-part0001.zip}, ...) next to the manifest
+     * @return Counts and timings of the run
+     * @throws IOException  if the output cannot be written
+     * @throws SQLException if the students cannot be read
+     */
+    public Report generate(Path target) throws IOException, SQLException {
+        boolean zip = target.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".zip");
+        Path dir = zip ? Objects.requireNonNullElse(target.toAbsolutePath().getParent(), Path.of(".")) : target;
+        Files.createDirectories(dir);
+        Path manifestPath = dir.resolve(zip ? baseName(target) + "-" + MANIFEST : MANIFEST);
+        Set<String> done = new HashSet<>();
+        int parts = readManifest(manifestPath, done);
+
+        long start = System.currentTimeMillis();
+        BlockingQueue<Page> pages = new ArrayBlockingQueue<>(parallelism * 2);
+        BlockingQueue<List<Card>> cards = new ArrayBlockingQueue<>(parallelism * 2);
+        ExecutorService renderers = Executors.newFixedThreadPool(parallelism);
+        ExecutorService writerThread = Executors.newSingleThreadExecutor();
+        failure = null;
+
+        try (FileChannel manifest = FileChannel.open(manifestPath, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            Writer writer = zip ? new ZipWriter(manifest, dir, baseName(target), parts)
+                                : new DirectoryWriter(manifest, dir);
+            List<Future<?>> stages = new ArrayList<>();
+            for (int i = 0; i < parallelism; i++)
+                stages.add(renderers.submit(() -> render(pages, cards)));
+            stages.add(writerThread.submit(() -> writer.drain(cards, parallelism)));
+
+            long[] counts = null;
+            try {
+                counts = read(done, pages);
+            } catch (SQLException | RuntimeException e) {
+                fail(e);
+            } finally {
+                for (int i = 0; i < parallelism; i++)
+                    offer(pages, END_OF_PAGES, true);
+                for (Future<?> stage : stages)
+                    awaitQuietly(stage);
+            }
+
+            Throwable t = failure;
+            if (t instanceof IOException io)
+                throw io;
+            if (t instanceof SQLException sql)
+                throw sql;
+            if (t instanceof RuntimeException re)
+                throw re;
+            if (t != null)
+                throw new IllegalStateException("Report card generation failed", t);
+            return new Report(counts[0], writer.written, counts[1], writer.bytes, parallelism,
+                    TimeUnit.NANOSECONDS.toMillis(counts[2]), TimeUnit.NANOSECONDS.toMillis(writer.waitNanos),
+                    System.currentTimeMillis() - start);
+        } finally {
+            renderers.shutdownNow();
+            writerThread.shutdownNow();
+        }
+    }
+
+    // ===========================================================
+    // =============== READER ====================================
+    // ===========================================================
+
+    /**
+     * Streams the table in rank order and puts pages of not-yet-done students on the queue.
+     *
+     * @return {@code {scanned, skipped, nanosBlocked}}
+     */
+    private long[] read(Set<String> done, BlockingQueue<Page> pages) throws SQLException {
+        long scanned = 0;
+        long skipped = 0;
+        long blocked = 0;
+
+        // Department sizes and the scan share one snapshot, so ranks and totals agree
+        boolean autoCommit = scanConn.getAutoCommit();
+        scanConn.setAutoCommit(false);
+        try {
+            // Departments are told apart by their collation weight, as GROUP BY and ORDER BY do,
+            // so "CSE" and "cse" are one department; a NULL department is its own (null key)
+            Map<String, Integer> totals = new HashMap<>();
+            try (Statement st = scanConn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT HEX(WEIGHT_STRING(department)) AS dept_key, COUNT(*) "
+                         + "FROM students GROUP BY dept_key")) {
+                while (rs.next())
+                    totals.put(rs.getString(1), rs.getInt(2));
+            }
+
+            // Ties break on the binary roll number, as in AdminService's rankings
+            String sql = "SELECT id, name, roll_no, department, email, phone, sub1, sub2, sub3, percentage, grade, "
+                       + "HEX(WEIGHT_STRING(department)) AS dept_key "
+                       + "FROM students ORDER BY department, percentage DESC, CAST(roll_no AS BINARY)";
+            List<Student> page = new ArrayList<>(PAGE_SIZE);
+            int[] ranks = new int[PAGE_SIZE];
+            int[] pageTotals = new int[PAGE_SIZE];
+            String deptKey = null;
+            int rank = 0;
+            try (PreparedStatement ps = scanConn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(Integer.MIN_VALUE); // MySQL: stream rows instead of buffering the table
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        scanned++;
+                        String d = rs.getString("department");
+                        String key = rs.getString("dept_key");
+                        rank = scanned == 1 || !Objects.equals(key, deptKey) ? 1 : rank + 1;
+                        deptKey = key;
+                        String rollNo = rs.getString("roll_no");
+                        if (done.contains(rollNo)) {
+                            skipped++;
+                            continue;
+                        }
+                        Student s = new Student(rs.getString("name"), rollNo, d, rs.getString("email"),
+                                rs.getString("phone"), rs.getDouble("sub1"), rs.getDouble("sub2"),
+                                rs.getDouble("sub3"), rs.getDouble("percentage"), rs.getString("grade"));
+                        s.setId(rs.getInt("id"));
+                        ranks[page.size()] = rank;
+                        pageTotals[page.size()] = totals.getOrDefault(key, 0);
+                        page.add(s);
+                        if (page.size() == PAGE_SIZE) {
+                            blocked += handOff(page, ranks, pageTotals, pages);
+                            page = new ArrayList<>(PAGE_SIZE);
+                            ranks = new int[PAGE_SIZE];
+                            pageTotals = new int[PAGE_SIZE];
+                        }
+                    }
+                }
+            }
+            if (!page.isEmpty())
+                blocked += handOff(page, ranks, pageTotals, pages);
+            scanConn.commit();
+        } finally {
+            scanConn.setAutoCommit(autoCommit);
+        }
+        return new long[] {scanned, skipped, blocked};
+    }
+
+    /** Loads the marks of a page and queues it; returns the nanoseconds spent waiting for room. */
+    private long handOff(List<Student> page, int[] ranks, int[] pageTotals, BlockingQueue<Page> pages)
+            throws SQLException {
+        marksDao.loadMarks(page);
+        // Read-only: a department without subjects keeps none (the card lists the marks by position)
+        Map<String, List<MarksDao.Subject>> subjects = new HashMap<>();
+        for (Student s : page) {
+            String dept = s.getDepartment();
+            if (!subjects.containsKey(dept))
+                subjects.put(dept, marksDao.findSubjects(dept));
+        }
+        long t = System.nanoTime();
+        offer(pages, new Page(page, ranks, pageTotals, subjects), false);
+        return System.nanoTime() - t;
+    }
+
+    // ===========================================================
+    // =============== RENDERERS =================================
+    // ===========================================================
+
+    /** Renderer loop: one {@link StringBuilder} per thread, reused for every card. */
+    private Void render(BlockingQueue<Page> pages, BlockingQueue<List<Card>> cards) {
+        StringBuilder sb = new StringBuilder(2048);
+        try {
+            while (true) {
+                Page page = take(pages);
+                if (page == END_OF_PAGES)
+                    break;
+                List<Card> rendered = new ArrayList<>(page.students().size());
+                for (int i = 0; i < page.students().size(); i++) {
+                    Student s = page.students().get(i);
+                    sb.setLength(0);
+                    renderCard(sb, s, page.subjects().get(s.getDepartment()), page.ranks()[i], page.totals()[i]);
+                    rendered.add(new Card(s.getRollNo(), fileName(s.getRollNo()),
+                            sb.toString().getBytes(StandardCharsets.UTF_8)));
+                }
+                offer(cards, rendered, false);
+            }
+        } catch (RuntimeException e) {
+            fail(e);
+            throw e;
+        } finally {
+            offer(cards, END_OF_CARDS, true);
+        }
+        return null;
+    }
+
+    /**
+     * Formats one report card.
+     *
+     * @param sb       Buffer to append to
+     * @param s        Student with marks loaded
+     * @param subjects Subjects of the student's department
+     * @param rank     1-based department rank
+     * @param total    Size of the department
+     */
+    static void renderCard(StringBuilder sb, Student s, List<MarksDao.Subject> subjects, int rank, int total) {
+        rule(sb, '=');
+        pad(sb, "", (WIDTH - 11) / 2).append("REPORT CARD\n");
+        rule(sb, '=');
+        sb.append("Name            : ").append(s.getName()).append('\n');
+        sb.append("Roll No         : ").append(s.getRollNo()).append('\n');
+        sb.append("Department      : ").append(s.getDepartment() == null ? "-" : s.getDepartment()).append('\n');
+        sb.append("Email           : ").append(s.getEmail() == null ? "-" : s.getEmail()).append('\n');
+        rule(sb, '-');
+        pad(sb, "Subject", 28).append("   Marks     Max  Result\n");
+
+        double[] marks = s.getMarks();
+        int rows = Math.max(marks.length, subjects == null ? 0 : subjects.size());
+        for (int i = 0; i < rows; i++) {
+            MarksDao.Subject subject = subjects != null && i < subjects.size() ? subjects.get(i) : null;
+            double max = subject == null ? 100 : subject.maxMarks();
+            double pass = subject == null ? MarksDao.DEFAULT_PASS_MARKS : subject.passMarks();
+            double m = i < marks.length ? marks[i] : 0;
+            pad(sb, subject == null ? "Subject " + (i + 1) : subject.name(), 28);
+            number(sb, m, 8);
+            number(sb, max, 8);
+            sb.append(m >= pass ? "    PASS\n" : "    FAIL\n");
+        }
+        rule(sb, '-');
+        sb.append("Percentage      : ");
+        number(sb, s.getPercentage(), 0).append("%\n");
+        sb.append("Grade           : ").append(s.getGrade()).append('\n');
+        sb.append("Department Rank : ").append(rank).append(" of ").append(total).append('\n');
+        rule(sb, '=');
+    }
+
+    private static void rule(StringBuilder sb, char c) {
+        for (int i = 0; i < WIDTH; i++)
+            sb.append(c);
+        sb.append('\n');
+    }
+
+    /** Appends {@code text} left-aligned in {@code width} columns. */
+    private static StringBuilder pad(StringBuilder sb, String text, int width) {
+        sb.append(text);
+        for (int i = text.length(); i < width; i++)
+            sb.append(' ');
+        return sb;
+    }
+
+    /**
+     * Appends {@code value} with two decimals, right-aligned in {@code width}
+     * columns. Much cheaper than {@link String#format} for millions of cards.
+     */
+    private static StringBuilder number(StringBuilder sb, double value, int width) {
+        long cents = Math.round(Math.abs(value) * 100);
+        int startLen = sb.length();
+        if (value < 0 && cents != 0)
+            sb.append('-');
+        sb.append(cents / 100).append('.');
+        long frac = cents % 100;
+        if (frac < 10)
+            sb.append('0');
+        sb.append(frac);
+        int written = sb.length() - startLen;
+        if (written < width)
+            sb.insert(startLen, " ".repeat(width - written));
+        return sb;
+    }
+
+    /** File name of a student's card; characters unsafe in file names are replaced. */
+    static String fileName(String rollNo) {
+        StringBuilder name = new StringBuilder(rollNo.length() + 4);
+        for (int i = 0; i < rollNo.length(); i++) {
+            char c = rollNo.charAt(i);
+            name.append(Character.isLetterOrDigit(c) || c == '-' || c == '_' ? c : '_');
+        }
+        return name.append(".txt").toString();
+    }
+
+    // ===========================================================
+    // =============== WRITER ====================================
+    // ===========================================================
+
+    /** Writer stage: consumes rendered pages until every renderer has finished. */
+    private abstract class Writer {
+        final FileChannel manifest;
+        long written;
+        long bytes;
+        long waitNanos;
+
+        Writer(FileChannel manifest) {
+            this.manifest = manifest;
+        }
+
+        Long drain(BlockingQueue<List<Card>> cards, int producers) throws IOException {
+            try {
+                int finished = 0;
+                while (finished < producers) {
+                    long t = System.nanoTime();
+                    List<Card> page = take(cards);
+                    waitNanos += System.nanoTime() - t;
+                    if (page == END_OF_CARDS) {
+                        finished++;
+                        continue;
+                    }
+                    write(page);
+                }
+                finish();
+            } catch (IOException | RuntimeException e) {
+                fail(e);
+                throw e;
+            }
+            return written;
+        }
+
+        abstract void write(List<Card> page) throws IOException;
+
+        abstract void finish() throws IOException;
+
+        /** Appends roll numbers (or a comment line) to the manifest and forces it to disk. */
+        void record(List<String> lines) throws IOException {
+            StringBuilder sb = new StringBuilder(lines.size() * 12);
+            for (String line : lines)
+                sb.append(line).append('\n');
+            ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (buf.hasRemaining())
+                manifest.write(buf);
+            manifest.force(false);
+        }
+    }
+
+    /** Writes each card to its own file; a page is recorded once all its files are written. */
+    private final class DirectoryWriter extends Writer {
+        private final Path dir;
+
+        DirectoryWriter(FileChannel manifest, Path dir) {
+            super(manifest);
+            this.dir = dir;
+        }
+
+        @Override
+        void write(List<Card> page) throws IOException {
+            List<String> rolls = new ArrayList<>(page.size());
+            for (Card card : page) {
+                Files.write(dir.resolve(card.name()), card.content());
+                rolls.add(card.rollNo());
+                bytes += card.content().length;
+            }
+            record(rolls);
+            written += page.size();
+        }
+
+        @Override
+        void finish() {
+            // Every page is recorded as soon as it is written
+        }
+    }
+
+    /** Writes cards into zip parts; a part's roll numbers are recorded when it is closed. */
+    private final class ZipWriter extends Writer {
+        private final Path dir;
+        private final String baseName;
+        private int part;
+        private ZipOutputStream zip;
+        private final List<String> pending = new ArrayList<>();
+
+        ZipWriter(FileChannel manifest, Path dir, String baseName, int completedParts) {
+            super(manifest);
+            this.dir = dir;
+            this.baseName = baseName;
+            this.part = completedParts;
+        }
+
+        @Override
+        void write(List<Card> page) throws IOException {
+            for (Card card : page) {
+                if (zip == null) {
+                    part++;
+                    Path file = dir.resolve(baseName + "-part" + String.format("%04d", part) + ".zip");
+                    OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE,
+                            StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                    zip = new ZipOutputStream(new BufferedOutputStream(out, 1 << 16));
+                }
+                zip.putNextEntry(new ZipEntry(card.name()));
+                zip.write(card.content());
+                zip.closeEntry();
+                pending.add(card.rollNo());
+                bytes += card.content().length;
+                if (pending.size() == ZIP_PART_SIZE)
+                    closePart();
+            }
+        }
+
+        @Override
+        void finish() throws IOException {
+            if (zip != null)
+                closePart();
+        }
+
+        private void closePart() throws IOException {
+            zip.close();
+            zip = null;
+            written += pending.size();
+            pending.add(PART_MARK + part);
+            record(pending);
+            pending.clear();
+        }
+    }
+
+    /** Manifest line recording a closed zip part. */
+    private static final String PART_MARK = "#part ";
+
+    /** Loads finished roll numbers from the manifest; returns the number of closed zip parts. */
+    private static int readManifest(Path manifest, Set<String> done) throws IOException {
+        if (!Files.exists(manifest))
+            return 0;
+        int parts = 0;
+        for (String line : Files.readAllLines(manifest, StandardCharsets.UTF_8)) {
+            if (line.startsWith(PART_MARK))
+                parts = Math.max(parts, Integer.parseInt(line.substring(PART_MARK.length()).trim()));
+            else if (!line.isEmpty())
+                done.add(line);
+        }
+        return parts;
+    }
+
+    private static String baseName(Path zipPath) {
+        String name = zipPath.getFileName().toString();
+        return name.substring(0, name.length() - ".zip".length());
+    }
+
+    // ===========================================================
+    // =============== QUEUE HELPERS =============================
+    // ===========================================================
+
+    /** Records the first failure; every stage then stops at its next queue operation. */
+    private void fail(Throwable t) {
+        if (failure == null)
+            failure = t;
+    }
+
+    /**
+     * Puts {@code item} on a bounded queue, waiting for room. Gives up when
+     * another stage has failed; end markers ({@code always}) are then dropped
+     * because nobody is left to read them.
+     */
+    private <T> void offer(BlockingQueue<T> queue, T item, boolean always) {
+        try {
+            while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                if (failure != null) {
+                    if (always)
+                        return;
+                    throw new IllegalStateException("Report card generation aborted", failure);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+    }
+
+    /** Takes the next item, giving up when another stage has failed. */
+    private <T> T take(BlockingQueue<T> queue) {
+        try {
+            T item;
+            while ((item = queue.poll(100, TimeUnit.MILLISECONDS)) == null) {
+                if (failure != null)
+                    throw new IllegalStateException("Report card generation aborted", failure);
+            }
+            return item;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted", e);
+        }
+    }
+
+    /** Waits for a stage to end; its failure, if any, was recorded with {@link #fail}. */
+    private static void awaitQuietly(Future<?> stage) {
+        try {
+            stage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Already recorded as the failure (or caused by it)
+        }
+    }
+
+    /**
+     * Generates report cards for all students.
+     *
+     * @param args Optional {@code target parallelism}: an output directory
+     *             (default {@code report-cards}) or a {@code .zip} path, and
+     *             the number of rendering threads (default: CPU count)
+     * @throws Exception if generation fails
+     */
+    public static void main(String[] args) throws Exception {
+        Path target = Path.of(args.length > 0 ? args[0] : "report-cards");
+        int parallelism = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        try (Connection scan = DatabaseConnection.getConnection();
+             Connection marks = DatabaseConnection.getConnection()) {
+            Report report = new ReportCardGenerator(scan, marks, parallelism).generate(target);
+            System.out.println(report);
+        }
+    }
+}
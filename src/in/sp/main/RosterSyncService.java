@@ -0,0 +1,585 @@
+package in.sp.main;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The {@code RosterSyncService} class brings the {@code students} table in line
+ * with a full roster received from the registrar, writing only real differences.
+ * <p>
+ * The current table is scanned once into a map of {@code roll_no} to a 64-bit
+ * content hash. The incoming roster is then streamed and each row is hashed the
+ * same way: unknown roll numbers become inserts, different hashes become
+ * updates, and roll numbers never seen in the roster become deletes. Only the
+ * changed rows are kept in memory; they are applied as JDBC batches in
+ * chunk-sized transactions (deletes first, then updates, then inserts, so that
+ * freed {@code email} values can be reused). Every written row is also
+ * appended to the {@code student_changes} log in the same transaction, so
+ * other instances pick it up through their {@link ChangePoller}; listeners
+ * registered with {@link #addListener(StudentListener)} are notified of each
+ * row once its chunk has committed, like the listeners of {@link StudentDao}.
+ * <p>
+ * Percentage and grade are always derived from the subject marks, so they are
+ * never taken from the roster. The roster's three marks fill the first three
+ * subjects of the student's department; marks of further subjects are kept
+ * from {@code student_marks} (or 0 for a new student). The percentage is the
+ * weighted one of {@link MarksDao#percentage(List, double[])}, the grade comes
+ * from the supplied {@link GradingScheme}, and every written row's
+ * {@code student_marks} are upserted in the same transaction, so a later
+ * regrade computes the same percentage.
+ *
+ * <p><strong>Roster CSV format</strong> (header line optional):
+ * <pre>
+ * roll_no,name,department,email,phone,sub1,sub2,sub3
+ * </pre>
+ */
+public class RosterSyncService {
+
+    /** Default number of rows per batch / transaction. */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /** Marker stored in the hash map once a roll number has been matched. */
+    private static final long SEEN = 0L;
+
+    /** Active database connection used for reading and writing student rows. */
+    private Connection conn;
+
+    /** Scheme used to derive the grade from the roster marks. */
+    private GradingScheme scheme;
+
+    /** Subjects (weights, max marks) of each department. */
+    private final MarksDao marksDao;
+
+    /** Notified after each committed chunk (caches, audit log). */
+    private final List<StudentListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** A written row whose listeners are notified once its chunk commits. */
+    private record Change(StudentListener.ChangeType type, String rollNo, Student student) {
+    }
+
+    /**
+     * Marks a student already has beyond the roster's three subjects.
+     *
+     * @param department Department the subjects belong to ({@code ""} for none)
+     * @param marks      Marks by position - 1; positions 1..3 are unused
+     */
+    private record KeptMarks(String department, double[] marks) {
+    }
+
+    /**
+     * Constructs a {@code RosterSyncService} with the specified connection and grading scheme.
+     *
+     * @param conn   Active {@link Connection} object
+     * @param scheme {@link GradingScheme} used to derive grades
+     */
+    public RosterSyncService(Connection conn, GradingScheme scheme) {
+        this.conn = conn;
+        this.scheme = scheme;
+        this.marksDao = new MarksDao(conn);
+    }
+
+    /**
+     * Registers a listener to be notified of every row a sync writes.
+     *
+     * @param listener The {@link StudentListener} to add
+     */
+    public void addListener(StudentListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Counts produced by a roster sync.
+     *
+     * @param inserted  Rows present only in the roster
+     * @param updated   Rows present in both but with different content
+     * @param deleted   Rows present only in the table
+     * @param unchanged Rows identical in both
+     * @param applied   {@code true} if the changes were written, {@code false} for a dry run
+     * @param elapsedMs Wall clock duration in milliseconds
+     */
+    public record Report(int inserted, int updated, int deleted, int unchanged, boolean applied, long elapsedMs) {
+
+        @Override
+        public String toString() {
+            return (applied ? "Applied" : "Dry run") + ": " + inserted + " inserted, " + updated + " updated, "
+                    + deleted + " deleted, " + unchanged + " unchanged (" + elapsedMs + " ms)";
+        }
+    }
+
+    // ===========================================================
+    // =============== SYNC ======================================
+    // ===========================================================
+
+    /**
+     * Synchronises the {@code students} table with a roster CSV file.
+     *
+     * @param csv    Path of the roster file
+     * @param apply  {@code true} to write the changes, {@code false} for a dry run
+     * @return A {@link Report} of the differences found
+     * @throws IOException  if the file cannot be read or is malformed
+     * @throws SQLException if a database access error occurs
+     */
+    public Report syncFromCsv(Path csv, boolean apply) throws IOException, SQLException {
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            return sync(new CsvRosterIterator(reader), apply);
+        } catch (UncheckedRosterException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Synchronises the {@code students} table with the given roster.
+     * <p>
+     * The roster is consumed once; only rows that need to be inserted or
+     * updated are retained.
+     *
+     * @param roster Iterator over the complete incoming roster
+     * @param apply  {@code true} to write the changes, {@code false} for a dry run
+     * @return A {@link Report} of the differences found
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the roster contains the same roll number twice
+     */
+    public Report sync(Iterator<Student> roster, boolean apply) throws SQLException {
+        long start = System.currentTimeMillis();
+
+        Map<String, Long> current = loadCurrentHashes();
+        Map<String, KeptMarks> kept = loadKeptMarks();
+        List<Student> inserts = new ArrayList<>();
+        Set<String> insertRolls = new HashSet<>();
+        List<Student> updates = new ArrayList<>();
+        int unchanged = 0;
+        // Per sync, so departments without subjects are looked up once too (MarksDao caches only hits)
+        Map<String, List<MarksDao.Subject>> subjectsByDept = new HashMap<>();
+
+        while (roster.hasNext()) {
+            Student s = roster.next();
+            // Dry runs must not create default subjects, so only read them here
+            String dept = s.getDepartment() == null ? "" : s.getDepartment();
+            List<MarksDao.Subject> subjects = subjectsByDept.get(dept);
+            if (subjects == null) {
+                subjects = marksDao.findSubjects(dept);
+                subjectsByDept.put(dept, subjects);
+            }
+            s.setMarks(rosterMarks(s, subjects.isEmpty() ? MarksDao.DEFAULT_SUBJECTS : subjects.size(),
+                    kept.get(s.getRollNo())));
+            s.setPercentage(subjects.isEmpty()
+                    ? GradingScheme.percentage(s.getSub1(), s.getSub2(), s.getSub3())
+                    : MarksDao.percentage(subjects, s.getMarks()));
+            s.setGrade(scheme.grade(s.getPercentage()));
+
+            // Removing marks the roll number as seen; what remains are deletions
+            Long existing = current.remove(s.getRollNo());
+            if (existing == null) {
+                if (!insertRolls.add(s.getRollNo()))
+                    throw new IllegalArgumentException("Duplicate roll_no in roster: " + s.getRollNo());
+                inserts.add(s);
+            } else if (existing == SEEN) {
+                throw new IllegalArgumentException("Duplicate roll_no in roster: " + s.getRollNo());
+            } else {
+                current.put(s.getRollNo(), SEEN);
+                if (existing != contentHash(s))
+                    updates.add(s);
+                else
+                    unchanged++;
+            }
+        }
+
+        List<String> deletes = new ArrayList<>();
+        for (Map.Entry<String, Long> e : current.entrySet()) {
+            if (e.getValue() != SEEN)
+                deletes.add(e.getKey());
+        }
+
+        if (apply)
+            applyChanges(deletes, updates, inserts);
+
+        return new Report(inserts.size(), updates.size(), deletes.size(), unchanged, apply,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Streams the current table and returns {@code roll_no} → content hash.
+     */
+    private Map<String, Long> loadCurrentHashes() throws SQLException {
+        Map<String, Long> hashes = new HashMap<>();
+        String sql = "SELECT roll_no, name, department, email, phone, sub1, sub2, sub3, percentage, grade FROM students";
+        try (Statement st = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(Integer.MIN_VALUE); // MySQL: stream rows instead of buffering the table
+            try (ResultSet rs = st.executeQuery(sql)) {
+                while (rs.next()) {
+                    long h = contentHash(rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5),
+                            rs.getDouble(6), rs.getDouble(7), rs.getDouble(8), rs.getDouble(9), rs.getString(10));
+                    hashes.put(rs.getString(1), h);
+                }
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Streams the marks students have beyond position 3 in their current department.
+     */
+    private Map<String, KeptMarks> loadKeptMarks() throws SQLException {
+        Map<String, KeptMarks> kept = new HashMap<>();
+        String sql = "SELECT s.roll_no, sj.department, sj.position, m.marks FROM student_marks m "
+                   + "JOIN students s ON s.id = m.student_id JOIN subjects sj ON sj.id = m.subject_id "
+                   + "WHERE sj.position > 3 AND sj.department = COALESCE(s.department, '')";
+        try (Statement st = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(Integer.MIN_VALUE); // MySQL: stream rows instead of buffering the table
+            try (ResultSet rs = st.executeQuery(sql)) {
+                while (rs.next()) {
+                    int position = rs.getInt(3);
+                    KeptMarks k = kept.get(rs.getString(1));
+                    if (k == null || k.marks().length < position) {
+                        double[] grown = new double[position];
+                        if (k != null)
+                            System.arraycopy(k.marks(), 0, grown, 0, k.marks().length);
+                        k = new KeptMarks(rs.getString(2), grown);
+                        kept.put(rs.getString(1), k);
+                    }
+                    k.marks()[position - 1] = rs.getDouble(4);
+                }
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Marks of all {@code count} subjects of a roster student: the roster's
+     * three marks first, then the kept marks if the department is unchanged.
+     */
+    private static double[] rosterMarks(Student s, int count, KeptMarks kept) {
+        double[] roster = {s.getSub1(), s.getSub2(), s.getSub3()};
+        String dept = s.getDepartment() == null ? "" : s.getDepartment();
+        boolean keep = kept != null && kept.department().equals(dept);
+        double[] marks = new double[count];
+        for (int i = 0; i < count; i++) {
+            if (i < roster.length)
+                marks[i] = roster[i];
+            else if (keep && i < kept.marks().length)
+                marks[i] = kept.marks()[i];
+        }
+        return marks;
+    }
+
+    /**
+     * Writes the collected changes in batched, chunk-sized transactions.
+     */
+    private void applyChanges(List<String> deletes, List<Student> updates, List<Student> inserts) throws SQLException {
+        String deleteSql = "DELETE FROM students WHERE roll_no=?";
+        String updateSql = "UPDATE students SET name=?, department=?, sub1=?, sub2=?, sub3=?, "
+                         + "percentage=?, grade=?, email=?, phone=?, version=version+1 WHERE roll_no=?";
+        String insertSql = "INSERT INTO students(name, roll_no, department, email, phone, sub1, sub2, sub3, percentage, grade) "
+                         + "VALUES(?,?,?,?,?,?,?,?,?,?)";
+        String marksSql = "INSERT INTO student_marks(student_id, subject_id, marks) "
+                        + "SELECT id, ?, ? FROM students WHERE roll_no=? "
+                        + "ON DUPLICATE KEY UPDATE marks=VALUES(marks)";
+        String staleMarksSql = "DELETE m FROM student_marks m JOIN students s ON s.id = m.student_id "
+                             + "JOIN subjects sj ON sj.id = m.subject_id WHERE s.roll_no=? AND sj.department <> ?";
+
+        // Create missing default subjects up front, outside the batch transactions
+        Map<String, List<MarksDao.Subject>> subjects = new HashMap<>();
+        for (List<Student> list : List.of(updates, inserts)) {
+            for (Student s : list) {
+                String dept = s.getDepartment() == null ? "" : s.getDepartment();
+                if (!subjects.containsKey(dept))
+                    subjects.put(dept, marksDao.getSubjects(dept));
+            }
+        }
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement del = conn.prepareStatement(deleteSql);
+             PreparedStatement upd = conn.prepareStatement(updateSql);
+             PreparedStatement ins = conn.prepareStatement(insertSql);
+             PreparedStatement marks = conn.prepareStatement(marksSql);
+             PreparedStatement stale = conn.prepareStatement(staleMarksSql);
+             PreparedStatement log = conn.prepareStatement(ChangePoller.RECORD_SQL)) {
+
+            // student_marks of deleted students go with them (ON DELETE CASCADE)
+            List<Change> chunk = new ArrayList<>(DEFAULT_BATCH_SIZE);
+            for (String rollNo : deletes) {
+                del.setString(1, rollNo);
+                del.addBatch();
+                ChangePoller.bindChange(log, rollNo, StudentListener.ChangeType.DELETE);
+                log.addBatch();
+                chunk.add(new Change(StudentListener.ChangeType.DELETE, rollNo, null));
+                flushIfFull(chunk, del, log);
+            }
+            flush(chunk, del, log);
+
+            for (Student s : updates) {
+                upd.setString(1, s.getName());
+                upd.setString(2, s.getDepartment());
+                upd.setDouble(3, s.getSub1());
+                upd.setDouble(4, s.getSub2());
+                upd.setDouble(5, s.getSub3());
+                upd.setDouble(6, s.getPercentage());
+                upd.setString(7, s.getGrade());
+                setNullable(upd, 8, s.getEmail());
+                setNullable(upd, 9, s.getPhone());
+                upd.setString(10, s.getRollNo());
+                upd.addBatch();
+                String dept = s.getDepartment() == null ? "" : s.getDepartment();
+                stale.setString(1, s.getRollNo());
+                stale.setString(2, dept);
+                stale.addBatch();
+                addMarks(marks, s, subjects.get(dept));
+                ChangePoller.bindChange(log, s.getRollNo(), StudentListener.ChangeType.UPDATE);
+                log.addBatch();
+                chunk.add(new Change(StudentListener.ChangeType.UPDATE, s.getRollNo(), s));
+                flushIfFull(chunk, upd, stale, marks, log);
+            }
+            flush(chunk, upd, stale, marks, log);
+
+            for (Student s : inserts) {
+                ins.setString(1, s.getName());
+                ins.setString(2, s.getRollNo());
+                ins.setString(3, s.getDepartment());
+                setNullable(ins, 4, s.getEmail());
+                setNullable(ins, 5, s.getPhone());
+                ins.setDouble(6, s.getSub1());
+                ins.setDouble(7, s.getSub2());
+                ins.setDouble(8, s.getSub3());
+                ins.setDouble(9, s.getPercentage());
+                ins.setString(10, s.getGrade());
+                ins.addBatch();
+                addMarks(marks, s, subjects.get(s.getDepartment() == null ? "" : s.getDepartment()));
+                ChangePoller.bindChange(log, s.getRollNo(), StudentListener.ChangeType.INSERT);
+                log.addBatch();
+                chunk.add(new Change(StudentListener.ChangeType.INSERT, s.getRollNo(), s));
+                flushIfFull(chunk, ins, marks, log);
+            }
+            flush(chunk, ins, marks, log);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Adds one {@code student_marks} upsert per subject of the student's
+     * department to the batch. The marks of {@code s} were sized to these
+     * subjects in {@link #sync}, unless the department had none configured
+     * then; missing marks are written as 0.
+     */
+    private static void addMarks(PreparedStatement ps, Student s, List<MarksDao.Subject> subjects)
+            throws SQLException {
+        double[] marks = s.getMarks();
+        for (int i = 0; i < subjects.size(); i++) {
+            ps.setInt(1, subjects.get(i).id());
+            ps.setDouble(2, i < marks.length ? marks[i] : 0);
+            ps.setString(3, s.getRollNo());
+            ps.addBatch();
+        }
+    }
+
+    /** Executes and commits the batches once {@code chunk} reaches {@link #DEFAULT_BATCH_SIZE} rows. */
+    private void flushIfFull(List<Change> chunk, PreparedStatement... batches) throws SQLException {
+        if (chunk.size() >= DEFAULT_BATCH_SIZE)
+            flush(chunk, batches);
+    }
+
+    /**
+     * Executes whatever is left in the batches, in order (student rows, their
+     * marks, their change-log rows), commits them together and then notifies
+     * the listeners of the rows in {@code chunk}.
+     */
+    private void flush(List<Change> chunk, PreparedStatement... batches) throws SQLException {
+        if (chunk.isEmpty())
+            return;
+        for (PreparedStatement ps : batches)
+            ps.executeBatch();
+        conn.commit();
+        for (Change c : chunk) {
+            for (StudentListener l : listeners)
+                l.onStudentChanged(c.type(), c.rollNo(), c.student());
+        }
+        chunk.clear();
+    }
+
+    private static void setNullable(PreparedStatement ps, int index, String value) throws SQLException {
+        if (value == null)
+            ps.setNull(index, Types.VARCHAR);
+        else
+            ps.setString(index, value);
+    }
+
+    // ===========================================================
+    // =============== CONTENT HASHING ===========================
+    // ===========================================================
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * Computes the content hash of a student (every column except {@code id} and {@code roll_no}).
+     */
+    static long contentHash(Student s) {
+        return contentHash(s.getName(), s.getDepartment(), s.getEmail(), s.getPhone(),
+                s.getSub1(), s.getSub2(), s.getSub3(), s.getPercentage(), s.getGrade());
+    }
+
+    private static long contentHash(String name, String dept, String email, String phone,
+                                    double sub1, double sub2, double sub3, double percentage, String grade) {
+        long h = FNV_OFFSET;
+        h = mix(h, name);
+        h = mix(h, dept);
+        h = mix(h, email);
+        h = mix(h, phone);
+        h = mix(h, Double.doubleToLongBits(sub1));
+        h = mix(h, Double.doubleToLongBits(sub2));
+        h = mix(h, Double.doubleToLongBits(sub3));
+        h = mix(h, Double.doubleToLongBits(percentage));
+        h = mix(h, grade);
+        // Keep SEEN reserved
+        return h == SEEN ? 1 : h;
+    }
+
+    /** FNV-1a over the UTF-16 chars of a string, with a separator so field boundaries matter. */
+    private static long mix(long h, String value) {
+        if (value == null) {
+            h = (h ^ 0xFFFF) * FNV_PRIME;
+        } else {
+            for (int i = 0; i < value.length(); i++)
+                h = (h ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return (h ^ 0x1F) * FNV_PRIME;
+    }
+
+    private static long mix(long h, long bits) {
+        for (int i = 0; i < 8; i++) {
+            h = (h ^ (bits & 0xFF)) * FNV_PRIME;
+            bits >>>= 8;
+        }
+        return h;
+    }
+
+    // ===========================================================
+    // =============== CSV PARSING ===============================
+    // ===========================================================
+
+    /** Carries an {@link IOException} out of {@link Iterator#next()}. */
+    private static class UncheckedRosterException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        UncheckedRosterException(IOException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    /**
+     * Lazily parses roster lines into {@link Student} objects.
+     * Supports double-quoted fields containing commas.
+     */
+    private static class CsvRosterIterator implements Iterator<Student> {
+
+        private final BufferedReader reader;
+        private int lineNo;
+        private Student next;
+
+        CsvRosterIterator(BufferedReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next != null)
+                return true;
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    lineNo++;
+                    if (line.isBlank())
+                        continue;
+                    List<String> f = split(line);
+                    if (lineNo == 1 && f.get(0).equalsIgnoreCase("roll_no"))
+                        continue; // header
+                    next = parse(f);
+                    return true;
+                }
+                return false;
+            } catch (IOException e) {
+                throw new UncheckedRosterException(e);
+            }
+        }
+
+        @Override
+        public Student next() {
+            if (!hasNext())
+                throw new NoSuchElementException();
+            Student s = next;
+            next = null;
+            return s;
+        }
+
+        private Student parse(List<String> f) throws IOException {
+            if (f.size() != 8)
+                throw new IOException("Line " + lineNo + ": expected 8 fields but found " + f.size());
+            try {
+                return new Student(f.get(1), f.get(0), emptyToNull(f.get(2)), emptyToNull(f.get(3)),
+                        emptyToNull(f.get(4)), Double.parseDouble(f.get(5)), Double.parseDouble(f.get(6)),
+                        Double.parseDouble(f.get(7)), 0, null);
+            } catch (NumberFormatException e) {
+                throw new IOException("Line " + lineNo + ": invalid marks", e);
+            }
+        }
+
+        private static String emptyToNull(String value) {
+            return value.isEmpty() ? null : value;
+        }
+
+        private static List<String> split(String line) {
+            List<String> fields = new ArrayList<>(8);
+            StringBuilder cur = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        cur.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        cur.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(cur.toString().trim());
+                    cur.setLength(0);
+                } else {
+                    cur.append(c);
+                }
+            }
+            fields.add(cur.toString().trim());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package in.sp.main;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * The {@code SchemaMigrator} class brings the database schema up to date at
+ * application startup by applying versioned migrations in order.
+ * <p>
+ * Applied migrations are recorded in the {@code schema_history} table, so each
+ * one runs exactly once per database. Migrations are also idempotent on their
+ * own: "already exists" errors for columns, indexes and tables are treated as
+ * success, which lets the runner adopt databases that were changed by hand.
+ * A MySQL named lock keeps several instances from migrating at the same time.
+ * <p>
+ * To change the schema, append a new {@link Migration} to {@link #MIGRATIONS};
+ * never edit one that has already shipped.
+ */
+public class SchemaMigrator {
+
+    /**
+     * A single versioned schema change.
+     *
+     * @param version     Unique, increasing version number
+     * @param description Short description stored in {@code schema_history}
+     * @param statements  DDL/DML statements applied in order
+     */
+    public record Migration(int version, String description, String... statements) {
+
+        /** @return CRC32 over all statements, used to detect edited migrations */
+        long checksum() {
+            CRC32 crc = new CRC32();
+            for (String sql : statements)
+                crc.update(sql.getBytes(StandardCharsets.UTF_8));
+            return crc.getValue();
+        }
+    }
+
+    /** All migrations, in version order. */
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Index percentage (marks range search; covers COUNT/MIN/MAX statistics)",
+                    "CREATE INDEX idx_students_percentage ON students (percentage)"),
+            new Migration(2, "Index department, percentage, roll_no (department filter and ranking)",
+                    "CREATE INDEX idx_students_dept_pct ON students (department, percentage, roll_no)"),
+            new Migration(3, "Add version column for optimistic concurrency",
+                    "ALTER TABLE students ADD COLUMN version INT NOT NULL DEFAULT 0"),
+            new Migration(4, "Normalised per-subject marks (subjects, student_marks), backfilled from sub1..sub3",
+                    "CREATE TABLE subjects ("
+                  + "id INT AUTO_INCREMENT PRIMARY KEY, "
+                  + "department VARCHAR(50) NOT NULL, "
+                  + "position INT NOT NULL, "
+                  + "name VARCHAR(50) NOT NULL, "
+                  + "weight DOUBLE NOT NULL DEFAULT 1, "
+                  + "max_marks DOUBLE NOT NULL DEFAULT 100, "
+                  + "pass_marks DOUBLE NOT NULL DEFAULT 35, "
+                  + "UNIQUE KEY uk_subjects_dept_pos (department, position))",
+                    "CREATE TABLE student_marks ("
+                  + "student_id INT NOT NULL, "
+                  + "subject_id INT NOT NULL, "
+                  + "marks DOUBLE NOT NULL, "
+                  + "PRIMARY KEY (student_id, subject_id), "
+                  + "KEY idx_student_marks_subject (subject_id, marks), "
+                  + "FOREIGN KEY (student_id) REFERENCES students(id) ON DELETE CASCADE, "
+                  + "FOREIGN KEY (subject_id) REFERENCES subjects(id))",
+                    "INSERT IGNORE INTO subjects(department, position, name) "
+                  + "SELECT d.department, p.position, CONCAT('Subject ', p.position) "
+                  + "FROM (SELECT DISTINCT COALESCE(department, '') AS department FROM students) d "
+                  + "CROSS JOIN (SELECT 1 AS position UNION ALL SELECT 2 UNION ALL SELECT 3) p",
+                    "INSERT IGNORE INTO student_marks(student_id, subject_id, marks) "
+                  + "SELECT s.id, sj.id, CASE sj.position WHEN 1 THEN s.sub1 WHEN 2 THEN s.sub2 ELSE s.sub3 END "
+                  + "FROM students s JOIN subjects sj ON sj.department = COALESCE(s.department, '') "
+                  + "AND sj.position <= 3 "
+                  + "WHERE CASE sj.position WHEN 1 THEN s.sub1 WHEN 2 THEN s.sub2 ELSE s.sub3 END IS NOT NULL"),
+            new Migration(5, "Change log of student mutations for cross-instance cache refresh (student_changes)",
+                    "CREATE TABLE student_changes ("
+                  + "seq BIGINT AUTO_INCREMENT PRIMARY KEY, "
+                  + "roll_no VARCHAR(50) NOT NULL, "
+                  + "change_type VARCHAR(6) NOT NULL, "
+                  + "instance_id CHAR(36) NOT NULL, "
+                  + "changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), "
+                  + "KEY idx_student_changes_time (changed_at))")
+    );
+
+    /** MySQL error codes meaning the object a migration creates is already there. */
+    private static final int ER_TABLE_EXISTS = 1050;
+    private static final int ER_DUP_FIELDNAME = 1060;
+    private static final int ER_DUP_KEYNAME = 1061;
+
+    /** Name of the MySQL advisory lock held while migrating. */
+    private static final String LOCK_NAME = "studentdb_schema_migration";
+
+    /** Active database connection used to apply migrations. */
+    private Connection conn;
+
+    /**
+     * Constructs a {@code SchemaMigrator} with the specified database connection.
+     *
+     * @param conn Active {@link Connection} object
+     */
+    public SchemaMigrator(Connection conn) {
+        this.conn = conn;
+    }
+
+    /**
+     * Applies every migration in {@link #MIGRATIONS} that is not yet recorded.
+     *
+     * @return Descriptions of the migrations applied by this call (empty if up to date)
+     * @throws SQLException if a migration fails or the lock cannot be acquired
+     */
+    public List<String> migrate() throws SQLException {
+        return migrate(MIGRATIONS);
+    }
+
+    /**
+     * Applies the given migrations that are not yet recorded, in version order.
+     *
+     * @param migrations Migrations to consider
+     * @return Descriptions of the migrations applied by this call
+     * @throws SQLException if a migration fails or the lock cannot be acquired
+     */
+    public List<String> migrate(List<Migration> migrations) throws SQLException {
+        createHistoryTable();
+        acquireLock();
+        try {
+            Map<Integer, Long> applied = loadHistory();
+            List<String> done = new ArrayList<>();
+
+            for (Migration m : migrations) {
+                Long checksum = applied.get(m.version());
+                if (checksum != null) {
+                    if (checksum != m.checksum())
+                        System.err.println("Warning: migration V" + m.version()
+                                + " was modified after it was applied");
+                    continue;
+                }
+                long start = System.currentTimeMillis();
+                for (String sql : m.statements())
+                    execute(sql);
+                record(m, System.currentTimeMillis() - start);
+                done.add("V" + m.version() + " " + m.description());
+            }
+            return done;
+        } finally {
+            releaseLock();
+        }
+    }
+
+    // ===========================================================
+    // =============== HELPERS ===================================
+    // ===========================================================
+
+    private void createHistoryTable() throws SQLException {
+        String sql = "CREATE TABLE IF NOT EXISTS schema_history ("
+                   + "version INT PRIMARY KEY, "
+                   + "description VARCHAR(200) NOT NULL, "
+                   + "checksum BIGINT NOT NULL, "
+                   + "installed_on TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+                   + "execution_ms INT NOT NULL)";
+        try (Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private Map<Integer, Long> loadHistory() throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version, checksum FROM schema_history")) {
+            while (rs.next())
+                applied.put(rs.getInt(1), rs.getLong(2));
+        }
+        return applied;
+    }
+
+    /** Executes one statement, treating "already exists" errors as success. */
+    private void execute(String sql) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute(sql);
+        } catch (SQLException e) {
+            int code = e.getErrorCode();
+            if (code != ER_TABLE_EXISTS && code != ER_DUP_FIELDNAME && code != ER_DUP_KEYNAME)
+                throw e;
+        }
+    }
+
+    private void record(Migration m, long elapsedMs) throws SQLException {
+        String sql = "INSERT INTO schema_history(version, description, checksum, execution_ms) VALUES(?,?,?,?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setInt(1, m.version());
+            ps.setString(2, m.description());
+            ps.setLong(3, m.checksum());
+            ps.setInt(4, (int) elapsedMs);
+            ps.executeUpdate();
+        }
+    }
+
+    private void acquireLock() throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT GET_LOCK(?, 30)")) {
+            ps.setString(1, LOCK_NAME);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1)
+                    throw new SQLException("Timed out waiting for another instance to finish migrating");
+            }
+        }
+    }
+
+    private void releaseLock() throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            ps.setString(1, LOCK_NAME);
+            ps.executeQuery().close();
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package in.sp.main;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The {@code ShardSet} class describes a set of databases (shards) that
+ * together hold the {@code students} table, and decides which shard owns
+ * each student.
+ * <p>
+ * Two routing functions are supported (see {@link Routing}):
+ * <ul>
+ *     <li>{@link Routing#DEPARTMENT} keeps each department on one shard. The
+ *     department → shard assignment is stored in the {@code shard_directory}
+ *     table on shard 0 and new departments go to the shard with the fewest
+ *     departments. Departments are matched like the database matches them
+ *     (case-insensitively), so "CSE" and "cse" share a shard.</li>
+ *     <li>{@link Routing#ROLL_HASH} spreads students by a hash of the
+ *     lower-cased {@code roll_no}, so roll-number lookups go straight to one
+ *     shard. A department then spans all shards, and each shard keeps its own
+ *     copy of the department's subjects.</li>
+ * </ul>
+ * The routing mode and shard count are also stored in {@code shard_directory}
+ * so an instance started with a different configuration fails fast instead of
+ * misrouting. {@link #scatter(ShardTask)} runs a task on every shard in parallel.
+ * <p>
+ * Every shard has the full schema ({@link #migrateAll()}), including its own
+ * {@code subjects}, {@code student_marks} and {@code student_changes}; a
+ * student's marks and change log entries always live on the student's shard.
+ * <p>
+ * Like {@link StudentDao}, a shard set is meant to be used by one client
+ * thread at a time; parallelism comes from fanning out to different shards.
+ * Components that run on threads of their own (e.g. a {@link ChangePoller})
+ * get a shard set of their own.
+ */
+public class ShardSet implements AutoCloseable {
+
+    /** How students are assigned to shards. */
+    public enum Routing {
+        DEPARTMENT,
+        ROLL_HASH
+    }
+
+    /** Work done against one shard. */
+    @FunctionalInterface
+    public interface ShardTask<T> {
+        T run(int shard, Connection conn) throws SQLException;
+    }
+
+    /** Directory key holding the configuration ({@code routing:shardCount}). */
+    private static final String CONFIG_KEY = "#config";
+
+    private final List<Connection> shards;
+    private final Routing routing;
+    private final ExecutorService pool;
+
+    /** Cached department → shard assignments. */
+    private final Map<String, Integer> directory = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a shard set over the given connections.
+     *
+     * @param shards  One connection per shard; index 0 also holds the directory
+     * @param routing Routing function
+     * @throws SQLException if the directory cannot be read or does not match this configuration
+     */
+    public ShardSet(List<Connection> shards, Routing routing) throws SQLException {
+        if (shards.isEmpty())
+            throw new IllegalArgumentException("At least one shard is required");
+        this.shards = List.copyOf(shards);
+        this.routing = routing;
+        this.pool = Executors.newFixedThreadPool(shards.size(), r -> {
+            Thread t = new Thread(r, "shard-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            loadDirectory();
+        } catch (SQLException e) {
+            pool.shutdownNow();
+            throw e;
+        }
+    }
+
+    /** @return Number of shards */
+    public int size() {
+        return shards.size();
+    }
+
+    /** @return Routing function in use */
+    public Routing getRouting() {
+        return routing;
+    }
+
+    /**
+     * @param shard Shard index
+     * @return Connection of that shard
+     */
+    public Connection connection(int shard) {
+        return shards.get(shard);
+    }
+
+    /**
+     * Applies pending {@link SchemaMigrator} migrations on every shard.
+     *
+     * @throws SQLException if a migration fails on any shard
+     */
+    public void migrateAll() throws SQLException {
+        scatter((shard, conn) -> new SchemaMigrator(conn).migrate());
+    }
+
+    // ===========================================================
+    // =============== ROUTING ===================================
+    // ===========================================================
+
+    /**
+     * Returns the shard that owns (or will own) the given student, assigning
+     * a shard to a new department if needed.
+     *
+     * @param s The student
+     * @return Shard index
+     * @throws SQLException if a new department assignment cannot be stored
+     */
+    public int shardFor(Student s) throws SQLException {
+        return routing == Routing.ROLL_HASH ? hashShard(s.getRollNo()) : departmentShard(s.getDepartment());
+    }
+
+    /**
+     * Returns the shard holding a roll number if the routing function can tell.
+     *
+     * @param rollNo Roll number
+     * @return Shard index, or {@code -1} if every shard must be asked
+     */
+    public int shardForRoll(String rollNo) {
+        return routing == Routing.ROLL_HASH ? hashShard(rollNo) : -1;
+    }
+
+    /**
+     * Returns the shards holding (or about to hold) the subjects and marks of
+     * a department: its own shard under department routing, all of them under
+     * hash routing.
+     *
+     * @param department Department name
+     * @return Shard indexes, ascending
+     * @throws SQLException if a new department assignment cannot be stored
+     */
+    public List<Integer> shardsForDepartment(String department) throws SQLException {
+        if (routing == Routing.DEPARTMENT)
+            return List.of(departmentShard(department));
+        List<Integer> all = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++)
+            all.add(i);
+        return all;
+    }
+
+    /**
+     * Finds the shard that holds a roll number, asking every shard in
+     * parallel unless the routing function can tell.
+     *
+     * @param rollNo Roll number
+     * @return Shard index, or {@code -1} if no shard has the student
+     * @throws SQLException if a lookup fails
+     */
+    public int locate(String rollNo) throws SQLException {
+        int shard = shardForRoll(rollNo);
+        if (shard >= 0)
+            return shard;
+        String sql = "SELECT 1 FROM students WHERE roll_no=?";
+        List<Boolean> hits = scatter((i, conn) -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, rollNo);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        });
+        return hits.indexOf(true);
+    }
+
+    /** Hash of the roll number as the unique index compares it (case-insensitively). */
+    private int hashShard(String rollNo) {
+        return Math.floorMod(rollNo.toLowerCase(Locale.ROOT).hashCode(), shards.size());
+    }
+
+    private int departmentShard(String department) throws SQLException {
+        String key = department == null ? "" : department;
+        Integer shard = directory.get(key);
+        if (shard != null)
+            return shard;
+
+        synchronized (directory) {
+            shard = directory.get(key);
+            if (shard != null)
+                return shard;
+
+            // Least-loaded shard by number of departments
+            Connection catalog = shards.get(0);
+            int[] load = new int[shards.size()];
+            String loadSql = "SELECT shard, COUNT(*) FROM shard_directory WHERE route_key NOT LIKE '" + CONFIG_KEY
+                           + "%' GROUP BY shard";
+            try (Statement st = catalog.createStatement();
+                 ResultSet rs = st.executeQuery(loadSql)) {
+                while (rs.next()) {
+                    if (rs.getInt(1) < load.length)
+                        load[rs.getInt(1)] += rs.getInt(2);
+                }
+            }
+            int chosen = 0;
+            for (int i = 1; i < load.length; i++) {
+                if (load[i] < load[chosen])
+                    chosen = i;
+            }
+
+            // Another instance, or a spelling that differs only in case, may already
+            // own the key: keep whichever row won and read it back under the column's collation
+            String insertSql = "INSERT IGNORE INTO shard_directory(route_key, shard) VALUES(?,?)";
+            try (PreparedStatement ps = catalog.prepareStatement(insertSql)) {
+                ps.setString(1, key);
+                ps.setInt(2, chosen);
+                ps.executeUpdate();
+            }
+            String selectSql = "SELECT shard FROM shard_directory WHERE route_key=?";
+            try (PreparedStatement ps = catalog.prepareStatement(selectSql)) {
+                ps.setString(1, key);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next())
+                        throw new SQLException("No shard recorded for department " + key);
+                    shard = rs.getInt(1);
+                }
+            }
+            directory.put(key, shard);
+            return shard;
+        }
+    }
+
+    private void loadDirectory() throws SQLException {
+        Connection catalog = shards.get(0);
+        try (Statement st = catalog.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS shard_directory ("
+                     + "route_key VARCHAR(50) PRIMARY KEY, shard INT NOT NULL)");
+        }
+
+        String config = routing + ":" + shards.size();
+        try (PreparedStatement ps = catalog.prepareStatement(
+                "INSERT IGNORE INTO shard_directory(route_key, shard) VALUES(?, ?)")) {
+            ps.setString(1, CONFIG_KEY + config);
+            ps.setInt(2, 0);
+            ps.executeUpdate();
+        }
+
+        try (Statement st = catalog.createStatement();
+             ResultSet rs = st.executeQuery("SELECT route_key, shard FROM shard_directory")) {
+            while (rs.next()) {
+                String key = rs.getString(1);
+                if (key.startsWith(CONFIG_KEY)) {
+                    if (!key.equals(CONFIG_KEY + config))
+                        throw new SQLException("Shard directory was created for " + key.substring(CONFIG_KEY.length())
+                                + " but this instance is configured for " + config);
+                    continue;
+                }
+                directory.put(key, rs.getInt(2));
+            }
+        }
+    }
+
+    // ===========================================================
+    // =============== PARALLEL EXECUTION ========================
+    // ===========================================================
+
+    /**
+     * Runs {@code task} on every shard in parallel and returns the results in shard order.
+     *
+     * @param task Work to run against each shard
+     * @param <T>  Result type
+     * @return One result per shard
+     * @throws SQLException the first failure, if any shard fails
+     */
+    public <T> List<T> scatter(ShardTask<T> task) throws SQLException {
+        List<Future<T>> futures = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            int shard = i;
+            futures.add(pool.submit(() -> task.run(shard, shards.get(shard))));
+        }
+
+        List<T> results = new ArrayList<>(shards.size());
+        SQLException failure = null;
+        for (Future<T> f : futures) {
+            try {
+                results.add(f.get());
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                SQLException ex = cause instanceof SQLException se ? se : new SQLException(cause);
+                if (failure == null)
+                    failure = ex;
+                else
+                    failure.addSuppressed(ex);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for shards", e);
+            }
+        }
+        if (failure != null)
+            throw failure;
+        return results;
+    }
+
+    /**
+     * Stops the worker threads and closes all shard connections.
+     *
+     * @throws SQLException if a connection cannot be closed
+     */
+    @Override
+    public void close() throws SQLException {
+        pool.shutdownNow();
+        SQLException failure = null;
+        for (Connection c : shards) {
+            try {
+                c.close();
+            } catch (SQLException e) {
+                if (failure == null)
+                    failure = e;
+                else
+                    failure.addSuppressed(e);
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+}
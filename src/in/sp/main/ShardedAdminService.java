@@ -0,0 +1,172 @@
+package in.sp.main;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code ShardedAdminService} class provides the {@link AdminService}
+ * statistics over a {@link ShardSet}. It can be used wherever an
+ * {@link AdminService} is expected.
+ * <p>
+ * Each statistic runs on all shards in parallel and the partial results are
+ * combined: counts are summed, the highest/lowest percentage is taken over the
+ * non-empty shards only, and merit lists are built from each shard's own top
+ * (or bottom) {@code n} per department, merged by the department's collation
+ * weight and ranked again. A department rank counts the students ahead of the
+ * student on every shard, so it is correct whichever routing function is used.
+ */
+public class ShardedAdminService extends AdminService {
+
+    private final ShardSet shards;
+
+    /** One service per shard, indexed like the shards. */
+    private final List<AdminService> services;
+
+    /**
+     * Constructs a {@code ShardedAdminService} over the given shards.
+     *
+     * @param shards The {@link ShardSet} holding the student data
+     */
+    public ShardedAdminService(ShardSet shards) {
+        super(shards.connection(0));
+        this.shards = shards;
+        List<AdminService> list = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++)
+            list.add(new AdminService(shards.connection(i)));
+        this.services = List.copyOf(list);
+    }
+
+    // ===========================================================
+    // =============== TOTALS / HIGHEST / LOWEST =================
+    // ===========================================================
+
+    /**
+     * Per-shard summary used by the aggregate statistics.
+     *
+     * @param count Number of students on the shard
+     * @param max   Highest percentage (meaningless if {@code count} is 0)
+     * @param min   Lowest percentage (meaningless if {@code count} is 0)
+     */
+    private record Summary(int count, double max, double min) {
+    }
+
+    @Override
+    public int getTotalStudents() throws SQLException {
+        int total = 0;
+        for (Summary s : summaries())
+            total += s.count();
+        return total;
+    }
+
+    @Override
+    public double getHighestMarks() throws SQLException {
+        double max = 0;
+        boolean any = false;
+        for (Summary s : summaries()) {
+            if (s.count() > 0) {
+                max = any ? Math.max(max, s.max()) : s.max();
+                any = true;
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public double getLowestMarks() throws SQLException {
+        double min = 0;
+        boolean any = false;
+        for (Summary s : summaries()) {
+            if (s.count() > 0) {
+                min = any ? Math.min(min, s.min()) : s.min();
+                any = true;
+            }
+        }
+        return min;
+    }
+
+    /** One {@code COUNT/MAX/MIN} per shard; answered from the percentage index. */
+    private List<Summary> summaries() throws SQLException {
+        String sql = "SELECT COUNT(*), MAX(percentage), MIN(percentage) FROM students";
+        return shards.scatter((i, conn) -> {
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery(sql)) {
+                return rs.next() ? new Summary(rs.getInt(1), rs.getDouble(2), rs.getDouble(3))
+                                 : new Summary(0, 0, 0);
+            }
+        });
+    }
+
+    // ===========================================================
+    // =============== RANKINGS / MERIT LISTS ====================
+    // ===========================================================
+
+    /**
+     * Returns a student's rank and percentile within their department, counted over all shards.
+     *
+     * @see AdminService#getDepartmentRank(String)
+     */
+    @Override
+    public DepartmentRank getDepartmentRank(String rollNo) throws SQLException {
+        Student s = null;
+        for (Student hit : shards.scatter((i, conn) -> new StudentDao(conn).getStudentByRollNo(rollNo))) {
+            if (hit != null && s == null)
+                s = hit;
+        }
+        if (s == null)
+            return null;
+
+        String dept = s.getDepartment();
+        double pct = s.getPercentage();
+        String key = s.getRollNo();
+        String sql = "SELECT COUNT(*), "
+                   + "SUM(percentage > ? OR (percentage = ? AND CAST(roll_no AS BINARY) < CAST(? AS BINARY))) "
+                   + "FROM students WHERE department <=> ?";
+        int total = 0;
+        int ahead = 0;
+        for (int[] part : shards.scatter((i, conn) -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setDouble(1, pct);
+                ps.setDouble(2, pct);
+                ps.setString(3, key);
+                ps.setString(4, dept);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? new int[] {rs.getInt(1), rs.getInt(2)} : new int[2];
+                }
+            }
+        })) {
+            total += part[0];
+            ahead += part[1];
+        }
+        int rank = ahead + 1;
+        return new DepartmentRank(rank, total, (total - rank + 1) * 100.0 / total);
+    }
+
+    /**
+     * Collects the candidates of every shard and merges groups with the same
+     * collation weight: sizes are summed and the kept students pooled, so the
+     * {@code n} best of a group are among them whichever shards it spans.
+     * The group's name is the one seen on the lowest-numbered shard.
+     */
+    @Override
+    Map<String, Group> collect(int n, boolean best, boolean byDepartment) throws SQLException {
+        List<Map<String, Group>> parts = shards.scatter((i, conn) -> services.get(i).collect(n, best, byDepartment));
+        Map<String, Group> merged = new HashMap<>();
+        for (Map<String, Group> part : parts) {
+            for (Map.Entry<String, Group> e : part.entrySet()) {
+                merged.merge(e.getKey(), e.getValue(), (a, b) -> {
+                    List<RankedStudent> kept = new ArrayList<>(a.kept().size() + b.kept().size());
+                    kept.addAll(a.kept());
+                    kept.addAll(b.kept());
+                    return new Group(a.name(), a.size() + b.size(), kept);
+                });
+            }
+        }
+        return merged;
+    }
+}
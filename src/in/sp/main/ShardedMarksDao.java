@@ -0,0 +1,192 @@
+package in.sp.main;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code ShardedMarksDao} class offers the {@link MarksDao} operations
+ * over a {@link ShardSet}.
+ * <p>
+ * Subjects and marks live on the shard of the students they belong to (see
+ * {@link ShardSet#shardsForDepartment(String)}). Under hash routing every
+ * shard holds its own copy of a department's subjects; they are created and
+ * added on all shards together, so they match position by position. Subject
+ * ids are local to a shard: the subjects returned here are those of the
+ * department's first shard, and {@link #resolve(int, List)} maps them to the
+ * same positions on another shard.
+ * <p>
+ * Marks of a page of students are loaded with one query per shard involved.
+ * Statistics of a department spread over several shards are combined from
+ * the per-shard figures, weighted by the number of students.
+ */
+public class ShardedMarksDao extends MarksDao {
+
+    private final ShardSet shards;
+
+    /** One DAO per shard, indexed like the shards. */
+    private final List<MarksDao> daos;
+
+    /**
+     * Constructs a {@code ShardedMarksDao} over the given shards.
+     *
+     * @param shards The {@link ShardSet} holding the student data
+     */
+    public ShardedMarksDao(ShardSet shards) {
+        super(shards.connection(0));
+        this.shards = shards;
+        List<MarksDao> list = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++)
+            list.add(new MarksDao(shards.connection(i)));
+        this.daos = List.copyOf(list);
+    }
+
+    // ===========================================================
+    // =============== SUBJECTS ==================================
+    // ===========================================================
+
+    /**
+     * Returns the subjects of a department, creating the defaults on every
+     * shard of the department that has none yet.
+     *
+     * @param department Department name ({@code null} is stored as {@code ""})
+     * @return Subjects of the department's first shard, ordered by position
+     * @throws SQLException if the subjects cannot be read or created
+     */
+    @Override
+    public List<Subject> getSubjects(String department) throws SQLException {
+        List<Subject> subjects = null;
+        for (int shard : shards.shardsForDepartment(department)) {
+            List<Subject> own = daos.get(shard).getSubjects(department);
+            if (subjects == null)
+                subjects = own;
+        }
+        return subjects;
+    }
+
+    @Override
+    public List<Subject> findSubjects(String department) throws SQLException {
+        return daos.get(shards.shardsForDepartment(department).get(0)).findSubjects(department);
+    }
+
+    /**
+     * Adds a subject at the end of the department's list on every shard of
+     * the department.
+     *
+     * @return The new subject as stored on the department's first shard
+     * @see MarksDao#addSubject(String, String, double, double, double)
+     */
+    @Override
+    public Subject addSubject(String department, String name, double weight, double maxMarks, double passMarks)
+            throws SQLException {
+        Subject subject = null;
+        for (int shard : shards.shardsForDepartment(department)) {
+            Subject own = daos.get(shard).addSubject(department, name, weight, maxMarks, passMarks);
+            if (subject == null)
+                subject = own;
+        }
+        return subject;
+    }
+
+    /**
+     * Returns the subjects of {@code shard} at the positions of {@code subjects},
+     * which may have been read from another shard.
+     *
+     * @param shard    Shard index
+     * @param subjects Subjects of one department, in position order
+     * @return The shard's own subjects of that department
+     * @throws SQLException if the shard's subjects cannot be read or differ in number
+     */
+    List<Subject> resolve(int shard, List<Subject> subjects) throws SQLException {
+        if (subjects.isEmpty())
+            return subjects;
+        String dept = subjects.get(0).department();
+        List<Subject> own = daos.get(shard).getSubjects(dept);
+        if (own.size() != subjects.size())
+            throw new SQLException("Shard " + shard + " has " + own.size() + " subjects for department '" + dept
+                    + "', expected " + subjects.size());
+        return own;
+    }
+
+    // ===========================================================
+    // =============== MARKS =====================================
+    // ===========================================================
+
+    /**
+     * Loads the marks of a page of students, one query per shard holding any
+     * of them. Students must have been read through {@link ShardedStudentDao}.
+     *
+     * @param page Students to fill in
+     * @throws SQLException if a query fails
+     */
+    @Override
+    public void loadMarks(List<Student> page) throws SQLException {
+        if (page.isEmpty())
+            return;
+        Map<Integer, List<Student>> byShard = new HashMap<>();
+        for (Student s : page)
+            byShard.computeIfAbsent(shards.shardFor(s), k -> new ArrayList<>()).add(s);
+        shards.scatter((i, conn) -> {
+            List<Student> part = byShard.get(i);
+            if (part != null)
+                daos.get(i).loadMarks(part);
+            return null;
+        });
+    }
+
+    /**
+     * Replaces a student's marks on the shard that holds the student.
+     *
+     * @see MarksDao#saveMarks(String, List, double[])
+     */
+    @Override
+    public void saveMarks(String rollNo, List<Subject> subjects, double[] marks) throws SQLException {
+        validate(subjects, marks);
+        int shard = shards.locate(rollNo);
+        if (shard >= 0)
+            daos.get(shard).saveMarks(rollNo, resolve(shard, subjects), marks);
+    }
+
+    // ===========================================================
+    // =============== AGGREGATES ================================
+    // ===========================================================
+
+    /**
+     * Computes the subject statistics of a department over all of its shards.
+     *
+     * @see MarksDao#getSubjectStats(String)
+     */
+    @Override
+    public List<SubjectStats> getSubjectStats(String department) throws SQLException {
+        List<Integer> owners = shards.shardsForDepartment(department);
+        if (owners.size() == 1)
+            return daos.get(owners.get(0)).getSubjectStats(department);
+
+        List<List<SubjectStats>> parts = shards.scatter((i, conn) -> daos.get(i).getSubjectStats(department));
+        List<SubjectStats> first = parts.get(owners.get(0));
+        List<SubjectStats> merged = new ArrayList<>(first.size());
+        for (int p = 0; p < first.size(); p++) {
+            int n = 0;
+            double sum = 0;
+            double max = 0;
+            double min = 0;
+            long passed = 0;
+            for (List<SubjectStats> part : parts) {
+                SubjectStats st = p < part.size() ? part.get(p) : null;
+                if (st == null || st.students() == 0)
+                    continue;
+                max = n == 0 ? st.max() : Math.max(max, st.max());
+                min = n == 0 ? st.min() : Math.min(min, st.min());
+                n += st.students();
+                sum += st.mean() * st.students();
+                passed += Math.round(st.passRate() * st.students() / 100);
+            }
+            double passRate = n == 0 ? 0 : passed * 100.0 / n;
+            merged.add(new SubjectStats(first.get(p).subject(), n, n == 0 ? 0 : sum / n, max, min,
+                    Math.round(passRate * 100.0) / 100.0));
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,524 @@
+package in.sp.main;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The {@code ShardedStudentDao} class offers the {@link StudentDao} operations
+ * over a {@link ShardSet}, where each shard holds part of the {@code students}
+ * table. It can be used wherever a {@link StudentDao} is expected.
+ * <p>
+ * Inserts go to the shard chosen by the routing function. Roll-number lookups
+ * go to a single shard when the routing function can tell which one (hash
+ * routing) and are otherwise asked of all shards in parallel. Searches always
+ * run on every shard in parallel (scatter) and the partial results are merged
+ * (gather): sorted searches are merged in the order of the criteria and the
+ * limit is applied again after merging, so each shard returns at most
+ * {@code limit} rows.
+ * <p>
+ * Each shard only enforces uniqueness of {@code roll_no} and {@code email}
+ * among its own rows, so inserts and email changes are first checked against
+ * every shard. The check and the write are separate statements on separate
+ * databases: two sessions writing the same value to different shards at the
+ * same moment can both succeed. A {@link UniquenessGuard} cannot be set here.
+ * <p>
+ * An update that changes the department of a student under department routing
+ * moves the student: the new row (with its marks and the next version) is
+ * inserted on the new shard, then the old row is deleted with the same
+ * version check as an in-place update. If that delete does not happen the new
+ * row is removed again. The two shards are separate databases, so the move is
+ * not atomic; for a moment the student exists on both. Listeners see one
+ * {@link StudentListener.ChangeType#UPDATE} for a move, and other instances
+ * see an insert and a delete in the two shards' change logs.
+ */
+public class ShardedStudentDao extends StudentDao {
+
+    /** Values per {@code IN} list of the cross-shard uniqueness check. */
+    private static final int UNIQUE_CHECK_BATCH = 500;
+
+    private final ShardSet shards;
+
+    private final ShardedMarksDao marks;
+
+    /** One DAO per shard, indexed like the shards; they report to this DAO's listeners. */
+    private final List<StudentDao> daos;
+
+    /**
+     * Constructs a {@code ShardedStudentDao} over the given shards.
+     *
+     * @param shards The {@link ShardSet} holding the student data
+     */
+    public ShardedStudentDao(ShardSet shards) {
+        this(shards, new ShardedMarksDao(shards));
+    }
+
+    /**
+     * Constructs a {@code ShardedStudentDao} that resolves subjects through
+     * {@code marks} when a student's marks are written.
+     *
+     * @param shards The {@link ShardSet} holding the student data
+     * @param marks  Marks DAO over the same shards
+     */
+    public ShardedStudentDao(ShardSet shards, ShardedMarksDao marks) {
+        super(shards.connection(0));
+        this.shards = shards;
+        this.marks = marks;
+        List<StudentDao> list = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            StudentDao dao = new StudentDao(shards.connection(i));
+            dao.addListener(forwarder());
+            list.add(dao);
+        }
+        this.daos = List.copyOf(list);
+    }
+
+    /**
+     * Not supported: a {@link UniquenessGuard} sees one database only.
+     * Duplicates are checked on every shard instead (see {@link #conflictOf(Student)}).
+     *
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public void setUniquenessGuard(UniquenessGuard guard) {
+        throw new UnsupportedOperationException("Uniqueness is checked on every shard");
+    }
+
+    // ===========================================================
+    // =============== UNIQUENESS ================================
+    // ===========================================================
+
+    /**
+     * Checks on every shard whether a new student would violate a unique key.
+     *
+     * @param s Student about to be inserted
+     * @return Reason for rejection, or {@code null} if the student can be inserted
+     * @throws SQLException if a lookup fails
+     */
+    public String conflictOf(Student s) throws SQLException {
+        UniquenessGuard.Screening screening = screen(List.of(s));
+        return screening.rejected().isEmpty() ? null : screening.rejected().get(0).reason();
+    }
+
+    /**
+     * Splits a batch into students that can be inserted and students whose
+     * roll number or email is taken on any shard or repeated in the batch.
+     */
+    private UniquenessGuard.Screening screen(List<Student> batch) throws SQLException {
+        List<String> rolls = new ArrayList<>(batch.size());
+        List<String> emails = new ArrayList<>(batch.size());
+        for (Student s : batch) {
+            rolls.add(s.getRollNo());
+            if (s.getEmail() != null)
+                emails.add(s.getEmail());
+        }
+        return UniquenessGuard.split(batch, taken("roll_no", rolls), taken("email", emails));
+    }
+
+    /** Which of {@code values} are present in {@code column} on any shard (lower-cased keys). */
+    private Set<String> taken(String column, List<String> values) throws SQLException {
+        Set<String> found = new HashSet<>();
+        if (values.isEmpty())
+            return found;
+        List<Set<String>> parts = shards.scatter((i, conn) -> {
+            Set<String> own = new HashSet<>();
+            for (int from = 0; from < values.size(); from += UNIQUE_CHECK_BATCH) {
+                List<String> chunk = values.subList(from, Math.min(values.size(), from + UNIQUE_CHECK_BATCH));
+                StringBuilder sql = new StringBuilder("SELECT ").append(column).append(" FROM students WHERE ")
+                        .append(column).append(" IN (");
+                for (int k = 0; k < chunk.size(); k++)
+                    sql.append(k == 0 ? "?" : ",?");
+                sql.append(')');
+                try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                    for (int k = 0; k < chunk.size(); k++)
+                        ps.setString(k + 1, chunk.get(k));
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next())
+                            own.add(UniquenessGuard.key(rs.getString(1)));
+                    }
+                }
+            }
+            return own;
+        });
+        for (Set<String> part : parts)
+            found.addAll(part);
+        return found;
+    }
+
+    /** Throws if a student other than {@code rollNo} uses {@code email} on any shard. */
+    private void checkEmail(String email, String rollNo) throws SQLException {
+        if (email == null)
+            return;
+        String sql = "SELECT 1 FROM students WHERE email=? AND roll_no<>?";
+        List<Boolean> hits = shards.scatter((i, conn) -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, email);
+                ps.setString(2, rollNo);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        });
+        if (hits.contains(true))
+            throw duplicate("email " + email + " already exists");
+    }
+
+    private static SQLIntegrityConstraintViolationException duplicate(String conflict) {
+        return new SQLIntegrityConstraintViolationException("Duplicate " + conflict, "23000", DUPLICATE_KEY);
+    }
+
+    // ===========================================================
+    // =============== WRITES ====================================
+    // ===========================================================
+
+    /**
+     * Inserts a student (and their marks) on the shard chosen by the routing
+     * function, after checking every shard for a duplicate roll number or email.
+     *
+     * @see StudentDao#addStudent(Student, List)
+     */
+    @Override
+    public void addStudent(Student s, List<MarksDao.Subject> subjects) throws SQLException {
+        String conflict = conflictOf(s);
+        if (conflict != null)
+            throw duplicate(conflict);
+        int shard = shards.shardFor(s);
+        daos.get(shard).addStudent(s, subjects == null ? null : marks.resolve(shard, subjects));
+    }
+
+    /**
+     * Inserts many students, one batched transaction per shard. A failure on
+     * one shard leaves the students already inserted on other shards in place.
+     *
+     * @see StudentDao#addStudents(List)
+     */
+    @Override
+    public List<UniquenessGuard.Rejection> addStudents(List<Student> students) throws SQLException {
+        UniquenessGuard.Screening screening = screen(students);
+        Map<Integer, List<Student>> byShard = new TreeMap<>();
+        for (Student s : screening.accepted())
+            byShard.computeIfAbsent(shards.shardFor(s), k -> new ArrayList<>()).add(s);
+        for (Map.Entry<Integer, List<Student>> e : byShard.entrySet())
+            daos.get(e.getKey()).addStudents(e.getValue());
+        return screening.rejected();
+    }
+
+    /**
+     * Blind update of a student, moving the student if its shard changes.
+     * A moved student keeps its marks if they fit the subjects of the new
+     * department, and loses them otherwise.
+     *
+     * @see StudentDao#updateStudent(String, Student)
+     */
+    @Override
+    public boolean updateStudent(String rollNo, Student s) throws SQLException {
+        int from = shards.locate(rollNo);
+        if (from < 0)
+            return false;
+        checkEmail(s.getEmail(), rollNo);
+        int to = target(rollNo, s);
+        if (from == to)
+            return daos.get(from).updateStudent(rollNo, s);
+
+        Student old = daos.get(from).findOnPrimary(rollNo);
+        if (old == null || !move(rollNo, withRollNo(s, rollNo), old, ANY_VERSION, from, to, null))
+            return false;
+        forwarder().onStudentChanged(StudentListener.ChangeType.UPDATE, rollNo, s);
+        return true;
+    }
+
+    /**
+     * Version-checked update of all columns, moving the student if its shard
+     * changes (see {@link #updateStudent(String, Student)} for the marks).
+     *
+     * @see StudentDao#updateStudentChecked(String, Student)
+     */
+    @Override
+    public boolean updateStudentChecked(String rollNo, Student s) throws SQLException {
+        int from = shards.locate(rollNo);
+        if (from < 0)
+            return false;
+        checkEmail(s.getEmail(), rollNo);
+        int to = target(rollNo, s);
+        if (from == to)
+            return daos.get(from).updateStudentChecked(rollNo, s);
+
+        Student old = daos.get(from).findOnPrimary(rollNo);
+        if (old == null)
+            return daos.get(from).failVersionCheck(rollNo, s.getVersion());
+        if (!move(rollNo, withRollNo(s, rollNo), old, s.getVersion(), from, to, null))
+            return false;
+        s.setVersion(s.getVersion() + 1);
+        forwarder().onStudentChanged(StudentListener.ChangeType.UPDATE, rollNo, s);
+        s.clearDirty();
+        return true;
+    }
+
+    /**
+     * Version-checked partial update, moving the student if a department
+     * change gives it a different shard. For a move, the dirty fields of
+     * {@code s} are applied to the current row, which is re-created on the
+     * new shard with the given marks, or else with its current ones if they
+     * fit the subjects of the new department.
+     *
+     * @see StudentDao#patchStudent(String, Student, List)
+     */
+    @Override
+    public boolean patchStudent(String rollNo, Student s, List<MarksDao.Subject> subjects) throws SQLException {
+        if (s.getDirtyMask() == 0 && subjects == null)
+            return false;
+        int from = shards.locate(rollNo);
+        if (from < 0)
+            return false;
+        if (s.isDirty(Student.Field.EMAIL))
+            checkEmail(s.getEmail(), rollNo);
+        int to = s.isDirty(Student.Field.DEPARTMENT) ? target(rollNo, s) : from;
+        if (from == to)
+            return daos.get(from).patchStudent(rollNo, s, subjects == null ? null : marks.resolve(from, subjects));
+
+        if (subjects != null)
+            MarksDao.validate(subjects, s.getMarks());
+        Student old = daos.get(from).findOnPrimary(rollNo);
+        if (old == null)
+            return daos.get(from).failVersionCheck(rollNo, s.getVersion());
+        if (!move(rollNo, merge(old, s), old, s.getVersion(), from, to, subjects == null ? null : s.getMarks()))
+            return false;
+        s.setVersion(s.getVersion() + 1);
+        forwarder().onStudentChanged(StudentListener.ChangeType.UPDATE, rollNo, s);
+        s.clearDirty();
+        return true;
+    }
+
+    /**
+     * Deletes a student from whichever shard holds it.
+     *
+     * @see StudentDao#deleteStudent(String)
+     */
+    @Override
+    public boolean deleteStudent(String rollNo) throws SQLException {
+        int shard = shards.locate(rollNo);
+        return shard >= 0 && daos.get(shard).deleteStudent(rollNo);
+    }
+
+    /**
+     * Version-checked delete on whichever shard holds the student.
+     *
+     * @see StudentDao#deleteStudentChecked(String, int)
+     */
+    @Override
+    public boolean deleteStudentChecked(String rollNo, int expectedVersion) throws SQLException {
+        int shard = shards.locate(rollNo);
+        return shard >= 0 && daos.get(shard).deleteStudentChecked(rollNo, expectedVersion);
+    }
+
+    /** Shards have no replicas: every read is a primary read. */
+    @Override
+    Student findOnPrimary(String rollNo) throws SQLException {
+        return getStudentByRollNo(rollNo);
+    }
+
+    /** The shard a student belongs on after an update to {@code s}. */
+    private int target(String rollNo, Student s) throws SQLException {
+        int shard = shards.shardForRoll(rollNo);
+        return shard >= 0 ? shard : shards.shardFor(s);
+    }
+
+    /**
+     * Moves a student from shard {@code from} to shard {@code to}: inserts
+     * {@code s} on {@code to} at the version following {@code old}'s, then
+     * deletes the row on {@code from} if it still has {@code expectedVersion}.
+     * If the delete does not happen, the new row is removed again.
+     *
+     * @param old             Current row on {@code from}
+     * @param expectedVersion Version the row must have, or {@link #ANY_VERSION}
+     * @param newMarks        Marks of the department's subjects, or {@code null} to carry the current ones
+     * @return {@code true} if moved, {@code false} if the row is gone from {@code from}
+     * @throws StaleStudentException if the row on {@code from} no longer has {@code expectedVersion}
+     */
+    private boolean move(String rollNo, Student s, Student old, int expectedVersion, int from, int to,
+                         double[] newMarks) throws SQLException {
+        if (expectedVersion != ANY_VERSION && old.getVersion() != expectedVersion)
+            throw new StaleStudentException(rollNo, expectedVersion);
+        List<MarksDao.Subject> subjects = marks.resolve(to, marks.getSubjects(s.getDepartment()));
+        double[] values = newMarks != null ? newMarks : carriedMarks(old, from, subjects);
+        int version = (expectedVersion == ANY_VERSION ? old.getVersion() : expectedVersion) + 1;
+        daos.get(to).insert(s, values == null ? null : subjects, values, version);
+
+        int deleted;
+        try {
+            deleted = daos.get(from).deleteRow(rollNo, expectedVersion);
+        } catch (SQLException e) {
+            undoInsert(to, rollNo, e);
+            throw e;
+        }
+        if (deleted > 0)
+            return true;
+        undoInsert(to, rollNo, null);
+        return daos.get(from).failVersionCheck(rollNo, expectedVersion);
+    }
+
+    /** Removes the copy inserted by a move that did not complete. */
+    private void undoInsert(int to, String rollNo, SQLException cause) throws SQLException {
+        try {
+            daos.get(to).deleteRow(rollNo, ANY_VERSION);
+        } catch (SQLException e) {
+            if (cause == null)
+                throw e;
+            cause.addSuppressed(e);
+        }
+    }
+
+    /**
+     * The current marks of {@code old} (read on shard {@code from}) if they
+     * fit {@code subjects} position by position, or {@code null} if not.
+     */
+    private double[] carriedMarks(Student old, int from, List<MarksDao.Subject> subjects) throws SQLException {
+        new MarksDao(shards.connection(from)).loadMarks(List.of(old));
+        double[] values = old.getMarks();
+        if (values.length != subjects.size())
+            return null;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] < 0 || values[i] > subjects.get(i).maxMarks())
+                return null;
+        }
+        return values;
+    }
+
+    /** {@code old} with the dirty fields of {@code s} applied. */
+    private static Student merge(Student old, Student s) {
+        for (Student.Field f : Student.Field.values()) {
+            if (!s.isDirty(f))
+                continue;
+            switch (f) {
+                case NAME -> old.setName(s.getName());
+                case DEPARTMENT -> old.setDepartment(s.getDepartment());
+                case EMAIL -> old.setEmail(s.getEmail());
+                case PHONE -> old.setPhone(s.getPhone());
+                case SUB1 -> old.setSub1(s.getSub1());
+                case SUB2 -> old.setSub2(s.getSub2());
+                case SUB3 -> old.setSub3(s.getSub3());
+                case PERCENTAGE -> old.setPercentage(s.getPercentage());
+                case GRADE -> old.setGrade(s.getGrade());
+            }
+        }
+        return old;
+    }
+
+    private static Student withRollNo(Student s, String rollNo) {
+        if (!rollNo.equals(s.getRollNo()))
+            s.setRollNo(rollNo);
+        return s;
+    }
+
+    // ===========================================================
+    // =============== LOOKUPS ===================================
+    // ===========================================================
+
+    @Override
+    public Student getStudentByRollNo(String rollNo) throws SQLException {
+        int shard = shards.shardForRoll(rollNo);
+        if (shard >= 0)
+            return daos.get(shard).getStudentByRollNo(rollNo);
+        for (Student s : shards.scatter((i, conn) -> daos.get(i).getStudentByRollNo(rollNo))) {
+            if (s != null)
+                return s;
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the students with the given roll numbers, one query per shard.
+     *
+     * @see StudentDao#getStudentsByRollNos(List)
+     */
+    @Override
+    public List<Student> getStudentsByRollNos(List<String> rollNos) throws SQLException {
+        Map<String, Student> byRoll = new HashMap<>();
+        for (List<Student> part : shards.scatter((i, conn) -> daos.get(i).getStudentsByRollNos(rollNos))) {
+            for (Student s : part)
+                byRoll.putIfAbsent(s.getRollNo(), s);
+        }
+        List<Student> list = new ArrayList<>(byRoll.size());
+        for (String roll : rollNos) {
+            Student s = byRoll.get(roll);
+            if (s != null)
+                list.add(s);
+        }
+        return list;
+    }
+
+    @Override
+    public List<Student> searchByRollno(String sRollno) throws SQLException {
+        Student s = getStudentByRollNo(sRollno);
+        List<Student> list = new ArrayList<>(1);
+        if (s != null)
+            list.add(s);
+        return list;
+    }
+
+    // ===========================================================
+    // =============== SCATTER-GATHER SEARCHES ===================
+    // ===========================================================
+
+    /**
+     * Retrieves all students from all shards.
+     *
+     * @return All students, grouped by shard
+     * @throws SQLException if a query fails
+     */
+    @Override
+    public List<Student> getAllStudents() throws SQLException {
+        return concat(shards.scatter((i, conn) -> daos.get(i).getAllStudents()));
+    }
+
+    /**
+     * Searches all shards for students matching {@code criteria}.
+     *
+     * @param criteria The {@link StudentCriteria} to match
+     * @return Matching students, in the order and up to the limit of {@code criteria}
+     * @throws SQLException if a query fails
+     */
+    @Override
+    public List<Student> search(StudentCriteria criteria) throws SQLException {
+        List<Student> list = concat(shards.scatter((i, conn) -> daos.get(i).search(criteria)));
+        Comparator<Student> order = criteria.resultOrder();
+        if (order != null)
+            list.sort(order);
+        int limit = criteria.getLimit();
+        return limit > 0 && list.size() > limit ? new ArrayList<>(list.subList(0, limit)) : list;
+    }
+
+    @Override
+    public List<Student> searchByName(String name) throws SQLException {
+        return concat(shards.scatter((i, conn) -> daos.get(i).searchByName(name)));
+    }
+
+    @Override
+    public List<Student> searchByDepartment(String dept) throws SQLException {
+        return concat(shards.scatter((i, conn) -> daos.get(i).searchByDepartment(dept)));
+    }
+
+    @Override
+    public List<Student> searchByMarksRange(double rMarks) throws SQLException {
+        return concat(shards.scatter((i, conn) -> daos.get(i).searchByMarksRange(rMarks)));
+    }
+
+    private static List<Student> concat(List<List<Student>> parts) {
+        int size = 0;
+        for (List<Student> p : parts)
+            size += p.size();
+        List<Student> list = new ArrayList<>(size);
+        for (List<Student> p : parts)
+            list.addAll(p);
+        return list;
+    }
+}
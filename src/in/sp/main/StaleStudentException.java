@@ -0,0 +1,45 @@
+package in.sp.main;
+
+import java.sql.SQLException;
+
+/**
+ * The {@code StaleStudentException} signals an optimistic concurrency conflict:
+ * the student record was changed by someone else after it was read, so a
+ * version-checked write in {@link StudentDao} was rejected.
+ * <p>
+ * The caller should reload the record and retry, either manually or through
+ * {@link StudentDao#updateWithRetry(String, java.util.function.Consumer, int)}.
+ */
+public class StaleStudentException extends SQLException {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Roll number of the conflicting record. */
+    private final String rollNo;
+
+    /** Version the caller expected to find. */
+    private final int expectedVersion;
+
+    /**
+     * Constructs a {@code StaleStudentException}.
+     *
+     * @param rollNo          Roll number of the conflicting record
+     * @param expectedVersion Version the caller expected to find
+     */
+    public StaleStudentException(String rollNo, int expectedVersion) {
+        super("Student " + rollNo + " was modified by another user (expected version "
+                + expectedVersion + ")");
+        this.rollNo = rollNo;
+        this.expectedVersion = expectedVersion;
+    }
+
+    /** @return Roll number of the conflicting record */
+    public String getRollNo() {
+        return rollNo;
+    }
+
+    /** @return Version the caller expected to find */
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+}
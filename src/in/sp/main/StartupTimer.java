@@ -0,0 +1,91 @@
+package in.sp.main;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The {@code StartupTimer} class records when startup milestones are reached
+ * (login prompt shown, database connected, warm-up finished, first result
+ * shown, ...), in milliseconds since the JVM process started.
+ * <p>
+ * Each milestone is recorded only the first time it is reached; the class is
+ * safe to use from the UI thread and background tasks at once.
+ */
+public class StartupTimer {
+
+    /** Milestone: login prompt printed. */
+    public static final String PROMPT = "prompt";
+    /** Milestone: database connected and schema migrated. */
+    public static final String CONNECTED = "connected";
+    /** Milestone: user logged in. */
+    public static final String LOGIN = "login";
+    /** Milestone: background warm-up finished. */
+    public static final String WARM = "warm";
+    /** Milestone: first menu action completed. */
+    public static final String FIRST_RESULT = "first result";
+
+    private final long originMillis;
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+    private volatile String note;
+
+    /**
+     * Creates a timer whose clock starts at {@code originMillis}.
+     *
+     * @param originMillis Epoch milliseconds at which time 0 is taken
+     */
+    public StartupTimer(long originMillis) {
+        this.originMillis = originMillis;
+    }
+
+    /**
+     * @return A timer counting from the start of this JVM process (or from
+     *         now, if the operating system does not report it)
+     */
+    public static StartupTimer sinceProcessStart() {
+        long origin = ProcessHandle.current().info().startInstant()
+                .map(Instant::toEpochMilli)
+                .orElse(System.currentTimeMillis());
+        return new StartupTimer(origin);
+    }
+
+    /**
+     * Records {@code milestone} as reached now, unless it was reached before.
+     *
+     * @param milestone Name of the milestone
+     * @return {@code true} if this call recorded it
+     */
+    public synchronized boolean mark(String milestone) {
+        return marks.putIfAbsent(milestone, System.currentTimeMillis() - originMillis) == null;
+    }
+
+    /**
+     * @param milestone Name of the milestone
+     * @return Milliseconds from process start to the milestone, or {@code -1} if not reached
+     */
+    public synchronized long elapsedMs(String milestone) {
+        return marks.getOrDefault(milestone, -1L);
+    }
+
+    /**
+     * Attaches a short note shown with the timings (e.g. why the warm-up stopped).
+     *
+     * @param note Text of the note
+     */
+    public void setNote(String note) {
+        this.note = note;
+    }
+
+    /** @return Milestones in the order reached, e.g. {@code "prompt 92 ms, connected 310 ms"} */
+    @Override
+    public synchronized String toString() {
+        List<String> parts = new ArrayList<>();
+        marks.entrySet().stream()
+                .sorted(Map.Entry.comparingByValue())
+                .forEach(e -> parts.add(e.getKey() + " " + e.getValue() + " ms"));
+        String text = String.join(", ", parts);
+        return note == null ? text : text + " (" + note + ")";
+    }
+}
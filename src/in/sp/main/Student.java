@@ -1,5 +1,9 @@
 package in.sp.main;
 
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
 /**
  * The {@code Student} class represents a student entity in the
  * Student Management System (SMS).
@@ -23,10 +27,52 @@ package in.sp.main;
  *   - sub3 (DOUBLE)
  *   - percentage (DOUBLE)
  *   - grade (VARCHAR)
+ *   - version (INT, optimistic concurrency counter)
  * </pre>
+ * Marks of all subjects (any number per department) are kept as a packed
+ * array ({@link #getMarks()}), stored in {@code student_marks} by
+ * {@link MarksDao}; {@code sub1..sub3} mirror the first three.
+ *
+ * <p><strong>Dirty-field tracking:</strong> every setter records the field as
+ * changed (dirty) when the new value differs from the current one. A record
+ * loaded from the database starts clean, so {@link StudentDao#patchStudent}
+ * can write only the columns that were actually modified.
  */
 public class Student {
 
+    /**
+     * Updatable fields of a student, each mapped to its {@code students} column.
+     * ({@code id} and {@code roll_no} identify the row and are never patched.)
+     */
+    public enum Field {
+        NAME("name"),
+        DEPARTMENT("department"),
+        EMAIL("email"),
+        PHONE("phone"),
+        SUB1("sub1"),
+        SUB2("sub2"),
+        SUB3("sub3"),
+        PERCENTAGE("percentage"),
+        GRADE("grade");
+
+        /** Column name in the {@code students} table. */
+        private final String column;
+
+        Field(String column) {
+            this.column = column;
+        }
+
+        /** @return Column name in the {@code students} table */
+        public String getColumn() {
+            return column;
+        }
+
+        /** @return Bit of this field in a dirty mask */
+        int bit() {
+            return 1 << ordinal();
+        }
+    }
+
     /** Unique identifier for the student (primary key). */
     private int id;
 
@@ -54,12 +100,21 @@ public class Student {
     /** Marks obtained in Subject 3. */
     private double sub3;
 
+    /** Marks of all subjects in position order, or {@code null} if only {@code sub1..sub3} are known. */
+    private double[] marks;
+
     /** Average percentage calculated from subject marks. */
     private double percentage;
 
     /** Grade assigned to the student based on percentage. */
     private String grade;
 
+    /** Row version read from the database, used for optimistic concurrency checks. */
+    private int version;
+
+    /** Bit mask of {@link Field}s modified since the last {@link #clearDirty()}. */
+    private int dirtyMask;
+
     /**
      * Default constructor for creating an empty {@code Student} object.
      * <p>
@@ -118,7 +173,10 @@ public class Student {
 
     /** @param name Sets the student's name */
     public void setName(String name) {
-        this.name = name;
+        if (!Objects.equals(this.name, name)) {
+            this.name = name;
+            markDirty(Field.NAME);
+        }
     }
 
     /** @return Student's roll number */
@@ -138,7 +196,10 @@ public class Student {
 
     /** @param department Sets the student's department */
     public void setDepartment(String department) {
-        this.department = department;
+        if (!Objects.equals(this.department, department)) {
+            this.department = department;
+            markDirty(Field.DEPARTMENT);
+        }
     }
 
     /** @return Student's email address */
@@ -148,7 +209,10 @@ public class Student {
 
     /** @param email Sets the student's email address */
     public void setEmail(String email) {
-        this.email = email;
+        if (!Objects.equals(this.email, email)) {
+            this.email = email;
+            markDirty(Field.EMAIL);
+        }
     }
 
     /** @return Student's phone number */
@@ -158,7 +222,10 @@ public class Student {
 
     /** @param phone Sets the student's phone number */
     public void setPhone(String phone) {
-        this.phone = phone;
+        if (!Objects.equals(this.phone, phone)) {
+            this.phone = phone;
+            markDirty(Field.PHONE);
+        }
     }
 
     /** @return Marks in Subject 1 */
@@ -168,7 +235,10 @@ public class Student {
 
     /** @param sub1 Sets marks in Subject 1 */
     public void setSub1(double sub1) {
-        this.sub1 = sub1;
+        if (Double.compare(this.sub1, sub1) != 0) {
+            this.sub1 = sub1;
+            markDirty(Field.SUB1);
+        }
     }
 
     /** @return Marks in Subject 2 */
@@ -178,7 +248,10 @@ public class Student {
 
     /** @param sub2 Sets marks in Subject 2 */
     public void setSub2(double sub2) {
-        this.sub2 = sub2;
+        if (Double.compare(this.sub2, sub2) != 0) {
+            this.sub2 = sub2;
+            markDirty(Field.SUB2);
+        }
     }
 
     /** @return Marks in Subject 3 */
@@ -188,7 +261,38 @@ public class Student {
 
     /** @param sub3 Sets marks in Subject 3 */
     public void setSub3(double sub3) {
-        this.sub3 = sub3;
+        if (Double.compare(this.sub3, sub3) != 0) {
+            this.sub3 = sub3;
+            markDirty(Field.SUB3);
+        }
+    }
+
+    /** @return Marks of all subjects in position order (a copy; {@code sub1..sub3} if no others are known) */
+    public double[] getMarks() {
+        return marks != null ? marks.clone() : new double[] {sub1, sub2, sub3};
+    }
+
+    /** @return Number of subjects with marks */
+    public int getSubjectCount() {
+        return marks != null ? marks.length : 3;
+    }
+
+    /**
+     * Sets the marks of all subjects and mirrors the first three into
+     * {@code sub1..sub3} (missing subjects count as 0).
+     *
+     * @param marks Marks in subject position order
+     */
+    public void setMarks(double[] marks) {
+        this.marks = marks.clone();
+        setSub1(marks.length > 0 ? marks[0] : 0);
+        setSub2(marks.length > 1 ? marks[1] : 0);
+        setSub3(marks.length > 2 ? marks[2] : 0);
+    }
+
+    /** Stores marks read from {@code student_marks} without marking anything dirty. */
+    void loadMarks(double[] marks) {
+        this.marks = marks.clone();
     }
 
     /** @return Average percentage */
@@ -198,7 +302,20 @@ public class Student {
 
     /** @param percentage Sets the student's percentage */
     public void setPercentage(double percentage) {
-        this.percentage = percentage;
+        if (Double.compare(this.percentage, percentage) != 0) {
+            this.percentage = percentage;
+            markDirty(Field.PERCENTAGE);
+        }
+    }
+
+    /** @return Row version as last read from or written to the database */
+    public int getVersion() {
+        return version;
+    }
+
+    /** @param version Sets the row version (not tracked as a dirty field) */
+    public void setVersion(int version) {
+        this.version = version;
     }
 
     /** @return Student's academic grade */
@@ -208,6 +325,50 @@ public class Student {
 
     /** @param grade Sets the student's grade */
     public void setGrade(String grade) {
-        this.grade = grade;
+        if (!Objects.equals(this.grade, grade)) {
+            this.grade = grade;
+            markDirty(Field.GRADE);
+        }
+    }
+
+    // ───────────────────────────────
+    // Dirty-field tracking
+    // ───────────────────────────────
+
+    private void markDirty(Field field) {
+        dirtyMask |= field.bit();
+    }
+
+    /** @return {@code true} if any field was modified since the last {@link #clearDirty()} */
+    public boolean isDirty() {
+        return dirtyMask != 0;
+    }
+
+    /**
+     * @param field Field to check
+     * @return {@code true} if the field was modified since the last {@link #clearDirty()}
+     */
+    public boolean isDirty(Field field) {
+        return (dirtyMask & field.bit()) != 0;
+    }
+
+    /** @return The modified fields, in column order */
+    public Set<Field> getDirtyFields() {
+        Set<Field> fields = EnumSet.noneOf(Field.class);
+        for (Field f : Field.values()) {
+            if (isDirty(f))
+                fields.add(f);
+        }
+        return fields;
+    }
+
+    /** @return Bit mask of modified fields (bit {@code n} is {@code Field.values()[n]}) */
+    int getDirtyMask() {
+        return dirtyMask;
+    }
+
+    /** Marks every field as unchanged, e.g. after loading from or writing to the database. */
+    public void clearDirty() {
+        dirtyMask = 0;
     }
 }
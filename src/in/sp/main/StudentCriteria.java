@@ -0,0 +1,265 @@
+package in.sp.main;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The {@code StudentCriteria} class describes a multi-criteria student search
+ * that {@link StudentDao#search(StudentCriteria)} compiles into a single
+ * parameterised SQL statement.
+ * <p>
+ * Every criterion is optional and all set criteria are combined with
+ * {@code AND}. Filtering, ordering and the row limit are all pushed down to
+ * the database. Example: "CSE students above 75% named Raj, best first":
+ * <pre>
+ *     new StudentCriteria()
+ *             .nameContains("Raj")
+ *             .department("CSE")
+ *             .minPercentage(75)
+ *             .sortBy(StudentCriteria.SortField.PERCENTAGE, true)
+ *             .limit(20);
+ * </pre>
+ * Statements are cached per {@link #shapeKey() shape}: two criteria that use
+ * the same set of predicates share one prepared statement, whatever the values.
+ */
+public class StudentCriteria {
+
+    /** Columns a search can be ordered by. */
+    public enum SortField {
+        ROLL_NO("roll_no"),
+        NAME("name"),
+        DEPARTMENT("department"),
+        PERCENTAGE("percentage");
+
+        private final String column;
+
+        SortField(String column) {
+            this.column = column;
+        }
+    }
+
+    private String nameContains;
+    private String department;
+    private Double minPercentage;
+    private Double maxPercentage;
+    private String grade;
+    /** Subject position → minimum marks, checked against {@code student_marks}. */
+    private final TreeMap<Integer, Double> minSubjectMarks = new TreeMap<>();
+    private SortField sortField;
+    private boolean descending;
+    private int limit;
+
+    /**
+     * @param name Part of the name to match (case-insensitivity follows the column collation)
+     * @return this criteria
+     */
+    public StudentCriteria nameContains(String name) {
+        this.nameContains = name;
+        return this;
+    }
+
+    /**
+     * @param department Exact department name
+     * @return this criteria
+     */
+    public StudentCriteria department(String department) {
+        this.department = department;
+        return this;
+    }
+
+    /**
+     * @param min Minimum percentage (inclusive)
+     * @return this criteria
+     */
+    public StudentCriteria minPercentage(double min) {
+        this.minPercentage = min;
+        return this;
+    }
+
+    /**
+     * @param max Maximum percentage (inclusive)
+     * @return this criteria
+     */
+    public StudentCriteria maxPercentage(double max) {
+        this.maxPercentage = max;
+        return this;
+    }
+
+    /**
+     * @param grade Exact grade
+     * @return this criteria
+     */
+    public StudentCriteria grade(String grade) {
+        this.grade = grade;
+        return this;
+    }
+
+    /**
+     * Requires marks of at least {@code min} in the subject at position
+     * {@code subject} of the student's department (see {@link MarksDao}).
+     * Students without marks for that subject do not match.
+     *
+     * @param subject Subject position (1 = first subject of the department)
+     * @param min     Minimum marks in that subject (inclusive)
+     * @return this criteria
+     * @throws IllegalArgumentException if the subject position is not positive
+     */
+    public StudentCriteria minSubjectMarks(int subject, double min) {
+        if (subject < 1)
+            throw new IllegalArgumentException("Subject position must be at least 1");
+        this.minSubjectMarks.put(subject, min);
+        return this;
+    }
+
+    /**
+     * @param field      Column to sort by
+     * @param descending {@code true} for descending order
+     * @return this criteria
+     */
+    public StudentCriteria sortBy(SortField field, boolean descending) {
+        this.sortField = field;
+        this.descending = descending;
+        return this;
+    }
+
+    /**
+     * @param limit Maximum number of rows to return ({@code 0} for no limit)
+     * @return this criteria
+     */
+    public StudentCriteria limit(int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("limit must not be negative");
+        this.limit = limit;
+        return this;
+    }
+
+    // ===========================================================
+    // =============== SQL COMPILATION ===========================
+    // ===========================================================
+
+    /**
+     * Returns a key identifying which predicates, ordering and limit are used,
+     * independent of the values. Criteria with equal keys compile to identical SQL.
+     *
+     * @return Shape key of this criteria
+     */
+    String shapeKey() {
+        StringBuilder key = new StringBuilder(16);
+        key.append(nameContains != null ? 'n' : '-')
+           .append(department != null ? 'd' : '-')
+           .append(minPercentage != null ? 'p' : '-')
+           .append(maxPercentage != null ? 'P' : '-')
+           .append(grade != null ? 'g' : '-');
+        for (int i = 0; i < minSubjectMarks.size(); i++)
+            key.append('s');
+        if (sortField != null)
+            key.append(':').append(sortField.ordinal()).append(descending ? 'D' : 'A');
+        if (limit > 0)
+            key.append(":L");
+        return key.toString();
+    }
+
+    /**
+     * Compiles this criteria into parameterised SQL.
+     * Ties are always broken on {@code roll_no} so results are deterministic.
+     *
+     * @return SQL whose placeholders are filled by {@link #bind(PreparedStatement)}
+     */
+    String toSql() {
+        StringBuilder sql = new StringBuilder("SELECT * FROM students");
+        String sep = " WHERE ";
+        if (nameContains != null) {
+            sql.append(sep).append("name LIKE ?");
+            sep = " AND ";
+        }
+        if (department != null) {
+            sql.append(sep).append("department = ?");
+            sep = " AND ";
+        }
+        if (minPercentage != null) {
+            sql.append(sep).append("percentage >= ?");
+            sep = " AND ";
+        }
+        if (maxPercentage != null) {
+            sql.append(sep).append("percentage <= ?");
+            sep = " AND ";
+        }
+        if (grade != null) {
+            sql.append(sep).append("grade = ?");
+            sep = " AND ";
+        }
+        for (int i = 0; i < minSubjectMarks.size(); i++) {
+            sql.append(sep).append("EXISTS (SELECT 1 FROM student_marks m JOIN subjects sj ON sj.id = m.subject_id "
+                    + "WHERE m.student_id = students.id AND sj.position = ? AND m.marks >= ?)");
+            sep = " AND ";
+        }
+        if (sortField != null) {
+            sql.append(" ORDER BY ").append(sortField.column).append(descending ? " DESC" : " ASC");
+            if (sortField != SortField.ROLL_NO)
+                sql.append(", roll_no");
+        }
+        if (limit > 0)
+            sql.append(" LIMIT ?");
+        return sql.toString();
+    }
+
+    /**
+     * Binds the values of this criteria in the same order as {@link #toSql()}.
+     *
+     * @param ps Statement prepared from {@link #toSql()} (or an equal-shaped criteria)
+     * @throws SQLException if a parameter cannot be set
+     */
+    void bind(PreparedStatement ps) throws SQLException {
+        int i = 1;
+        if (nameContains != null)
+            ps.setString(i++, "%" + nameContains + "%");
+        if (department != null)
+            ps.setString(i++, department);
+        if (minPercentage != null)
+            ps.setDouble(i++, minPercentage);
+        if (maxPercentage != null)
+            ps.setDouble(i++, maxPercentage);
+        if (grade != null)
+            ps.setString(i++, grade);
+        for (Map.Entry<Integer, Double> m : minSubjectMarks.entrySet()) {
+            ps.setInt(i++, m.getKey());
+            ps.setDouble(i++, m.getValue());
+        }
+        if (limit > 0)
+            ps.setInt(i, limit);
+    }
+
+    // ===========================================================
+    // =============== IN-MEMORY MERGING =========================
+    // ===========================================================
+
+    /** @return Maximum number of rows ({@code 0} for no limit) */
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Returns the ordering of {@link #toSql()} as a comparator, for merging
+     * results from several databases (see {@link ShardedStudentDao}).
+     * Text columns compare case-insensitively, like the default MySQL collation.
+     *
+     * @return Comparator matching the {@code ORDER BY}, or {@code null} if unsorted
+     */
+    Comparator<Student> resultOrder() {
+        if (sortField == null)
+            return null;
+        Comparator<String> text = Comparator.nullsFirst(String.CASE_INSENSITIVE_ORDER);
+        Comparator<Student> order = switch (sortField) {
+            case ROLL_NO -> Comparator.comparing(Student::getRollNo, text);
+            case NAME -> Comparator.comparing(Student::getName, text);
+            case DEPARTMENT -> Comparator.comparing(Student::getDepartment, text);
+            case PERCENTAGE -> Comparator.comparingDouble(Student::getPercentage);
+        };
+        if (descending)
+            order = order.reversed();
+        return order.thenComparing(Student::getRollNo, text);
+    }
+}
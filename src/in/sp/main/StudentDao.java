@@ -2,7 +2,14 @@ package in.sp.main;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 /**
  * The {@code StudentDao} class provides Data Access Object (DAO) functionality
@@ -15,14 +22,90 @@ import java.util.List;
  *     <li>Deleting student records</li>
  *     <li>Retrieving and searching student data</li>
  * </ul>
+ * <p>
+ * Every write increments the row's {@code version} column. The
+ * {@code *Checked} methods and {@link #patchStudent(String, Student)} only
+ * write if the version is still the one that was read, and throw
+ * {@link StaleStudentException} otherwise (optimistic concurrency control).
+ * This avoids holding row locks while an operator is editing a record.
+ * <p>
+ * Registered {@link StudentListener}s are notified after every successful
+ * insert, update and delete (e.g. the {@link AuditLog}). Each mutation is
+ * also appended to the {@code student_changes} log in the mutation's own
+ * transaction, so the row and its log entry commit together; this lets other
+ * instances follow it with a {@link ChangePoller}.
+ * <p>
+ * Statements go through a {@link ConnectionRouter}: writes and version checks
+ * use the primary, reads may be served by a replica. After a write the
+ * session reads from the primary for a short while, so it sees its own changes.
+ * <p>
+ * With a {@link UniquenessGuard} set, inserts that would hit a duplicate
+ * {@code roll_no} or {@code email} are rejected before reaching the database.
+ * The guard is only used on that path: a value it has not seen still goes to
+ * the database, whose unique indexes have the final say.
  *
  * This class is used by the {@link UI} layer to abstract database operations
  * and maintain a clean separation of concerns.
  */
 public class StudentDao {
 
-    /** Active database connection used for executing SQL statements. */
-    private Connection conn;
+    /** Maximum number of generated {@code UPDATE} statements kept by {@link #PATCH_SQL_CACHE}. */
+    private static final int PATCH_SQL_CACHE_SIZE = 64;
+
+    /**
+     * LRU cache of generated partial {@code UPDATE} statements, keyed by the
+     * dirty mask of the {@link Student} being patched.
+     */
+    private static final Map<Integer, String> PATCH_SQL_CACHE =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest) {
+                    return size() > PATCH_SQL_CACHE_SIZE;
+                }
+            };
+
+    /** MySQL error code for a duplicate unique key ({@code ER_DUP_ENTRY}). */
+    static final int DUPLICATE_KEY = 1062;
+
+    /** Expected version that matches any row (see {@link #deleteRow}). */
+    static final int ANY_VERSION = -1;
+
+    /** Maximum number of prepared criteria searches kept open per connection (see {@link #searchCaches}). */
+    private static final int SEARCH_CACHE_SIZE = 32;
+
+    /** Routes reads to replicas and writes to the primary (see {@link ConnectionRouter}). */
+    private final ConnectionRouter router;
+
+    /**
+     * Per-connection LRU caches of prepared criteria searches, keyed by
+     * {@link StudentCriteria#shapeKey()}. A prepared statement belongs to one
+     * connection, so each replica and the primary get their own cache.
+     * Evicted statements are closed; the rest are closed together with their connection.
+     */
+    private final Map<Connection, Map<String, PreparedStatement>> searchCaches = new IdentityHashMap<>();
+
+    /** Creates an LRU statement cache that closes the statements it evicts. */
+    private static Map<String, PreparedStatement> newSearchCache() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                if (size() <= SEARCH_CACHE_SIZE)
+                    return false;
+                try {
+                    eldest.getValue().close();
+                } catch (SQLException ignored) {
+                    // Statement is discarded either way
+                }
+                return true;
+            }
+        };
+    }
+
+    /** Listeners notified after each successful mutation. */
+    private final List<StudentListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** Client-side uniqueness check, or {@code null} to leave it to the database. */
+    private volatile UniquenessGuard guard;
 
     /**
      * Constructs a {@code StudentDao} object with the specified database connection.
@@ -30,7 +113,101 @@ public class StudentDao {
      * @param conn Active {@link Connection} instance
      */
     public StudentDao(Connection conn) {
-        this.conn = conn;
+        this(ConnectionRouter.single(conn));
+    }
+
+    /**
+     * Constructs a {@code StudentDao} that sends reads through {@code router}
+     * and writes to its primary.
+     *
+     * @param router {@link ConnectionRouter} for this session
+     */
+    public StudentDao(ConnectionRouter router) {
+        this.router = router;
+    }
+
+    /**
+     * Registers a listener to be notified after every successful mutation.
+     *
+     * @param listener The {@link StudentListener} to add
+     */
+    public void addListener(StudentListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Installs a {@link UniquenessGuard} and registers it as a listener, so it
+     * learns about every roll number and email written through this DAO.
+     *
+     * @param guard The guard to use
+     */
+    public void setUniquenessGuard(UniquenessGuard guard) {
+        addListener(guard);
+        this.guard = guard;
+    }
+
+    /** A single-row statement run by {@link #logged}. */
+    @FunctionalInterface
+    private interface Mutation {
+        int execute(Connection conn) throws SQLException;
+    }
+
+    /**
+     * Runs a mutation on the primary and, if it changed a row, appends it to
+     * the {@code student_changes} log in the same transaction, so other
+     * instances can refresh their caches (see {@link ChangePoller}). Joins the
+     * caller's transaction if auto-commit is off.
+     *
+     * @return Number of rows changed by {@code mutation}
+     */
+    private int logged(String rollNo, StudentListener.ChangeType type, Mutation mutation) throws SQLException {
+        Connection conn = router.write();
+        boolean autoCommit = conn.getAutoCommit();
+        if (autoCommit)
+            conn.setAutoCommit(false);
+        try {
+            int rows = mutation.execute(conn);
+            if (rows > 0) {
+                try (PreparedStatement log = conn.prepareStatement(ChangePoller.RECORD_SQL)) {
+                    ChangePoller.bindChange(log, rollNo, type);
+                    log.executeUpdate();
+                }
+            }
+            if (autoCommit)
+                conn.commit();
+            return rows;
+        } catch (SQLException | RuntimeException e) {
+            if (autoCommit)
+                conn.rollback();
+            throw e;
+        } finally {
+            if (autoCommit)
+                conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Notifies all listeners of a successful mutation.
+     * <p>
+     * For {@link StudentListener.ChangeType#UPDATE} via {@link #patchStudent}
+     * the student still carries its dirty flags, so listeners can tell which
+     * fields changed.
+     */
+    private void fireChanged(StudentListener.ChangeType type, String rollNo, Student s) {
+        for (StudentListener l : listeners)
+            l.onStudentChanged(type, rollNo, s);
+    }
+
+    /**
+     * Returns a listener that passes changes on to every listener registered
+     * here, including ones registered later. Services that write students
+     * around this DAO (e.g. {@link RosterSyncService}) report to it, so the
+     * caches and the audit log see their changes too.
+     *
+     * @return A forwarding {@link StudentListener}
+     */
+    public StudentListener forwarder() {
+        return this::fireChanged;
     }
 
     // ===========================================================
@@ -41,24 +218,124 @@ public class StudentDao {
      * Inserts a new student record into the {@code students} table.
      *
      * @param s The {@link Student} object containing all student details
+     * @throws SQLIntegrityConstraintViolationException if the roll number or
+     *         email is already taken (raised by the {@link UniquenessGuard}
+     *         without contacting the database, if one is set)
      * @throws SQLException if the insertion fails
      */
     public void addStudent(Student s) throws SQLException {
+        addStudent(s, null);
+    }
+
+    /**
+     * Inserts a new student together with their per-subject marks
+     * ({@link Student#getMarks()}) in one transaction.
+     *
+     * @param s        The {@link Student} object containing all student details
+     * @param subjects Subjects of the student's department, as returned by
+     *                 {@link MarksDao#getSubjects(String)}, or {@code null} to
+     *                 insert the student row only
+     * @throws IllegalArgumentException if the marks do not fit {@code subjects}
+     * @throws SQLIntegrityConstraintViolationException if the roll number or
+     *         email is already taken
+     * @throws SQLException if the insertion fails; nothing is inserted then
+     */
+    public void addStudent(Student s, List<MarksDao.Subject> subjects) throws SQLException {
+        UniquenessGuard g = guard;
+        if (g != null) {
+            String conflict = g.conflictOf(s);
+            if (conflict != null)
+                throw new SQLIntegrityConstraintViolationException("Duplicate " + conflict, "23000", DUPLICATE_KEY);
+        }
+        insert(s, subjects, s.getMarks(), 0);
+        fireChanged(StudentListener.ChangeType.INSERT, s.getRollNo(), s);
+    }
+
+    /**
+     * Inserts a student row (and {@code marks}, if {@code subjects} is given)
+     * at the given version, logged but without the guard or the listeners.
+     * {@link ShardedStudentDao} uses it to re-create a student that moves to
+     * another shard, keeping its version increasing.
+     */
+    void insert(Student s, List<MarksDao.Subject> subjects, double[] marks, int version) throws SQLException {
+        if (subjects != null)
+            MarksDao.validate(subjects, marks);
+        String sql = "INSERT INTO students(name, roll_no, department, email, phone, sub1, sub2, sub3, percentage, grade, "
+                   + "version) VALUES(?,?,?,?,?,?,?,?,?,?,?)";
+        logged(s.getRollNo(), StudentListener.ChangeType.INSERT, conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                bindInsert(ps, s);
+                ps.setInt(11, version);
+                int rows = ps.executeUpdate();
+                if (subjects != null)
+                    MarksDao.writeMarks(conn, s.getRollNo(), subjects, marks);
+                return rows;
+            }
+        });
+    }
+
+    /**
+     * Inserts many students in one batched transaction. Students whose roll
+     * number or email is already taken, or repeated within {@code students},
+     * are left out instead of failing the whole batch; with a
+     * {@link UniquenessGuard} set this costs a database lookup only for values
+     * the guard cannot rule out.
+     *
+     * @param students Students to insert
+     * @return The students that were rejected, with the reason
+     * @throws SQLException if the insertion fails; nothing is inserted then
+     */
+    public List<UniquenessGuard.Rejection> addStudents(List<Student> students) throws SQLException {
+        UniquenessGuard g = guard;
+        List<Student> accepted = students;
+        List<UniquenessGuard.Rejection> rejected = List.of();
+        if (g != null) {
+            UniquenessGuard.Screening screening = g.screen(students);
+            accepted = screening.accepted();
+            rejected = screening.rejected();
+        }
+        if (accepted.isEmpty())
+            return rejected;
+
         String sql = "INSERT INTO students(name, roll_no, department, email, phone, sub1, sub2, sub3, percentage, grade) "
                    + "VALUES(?,?,?,?,?,?,?,?,?,?)";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, s.getName());
-            ps.setString(2, s.getRollNo());
-            ps.setString(3, s.getDepartment());
-            ps.setString(4, s.getEmail());
-            ps.setString(5, s.getPhone());
-            ps.setDouble(6, s.getSub1());
-            ps.setDouble(7, s.getSub2());
-            ps.setDouble(8, s.getSub3());
-            ps.setDouble(9, s.getPercentage());
-            ps.setString(10, s.getGrade());
-            ps.executeUpdate();
+        Connection conn = router.write();
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement(sql);
+             PreparedStatement log = conn.prepareStatement(ChangePoller.RECORD_SQL)) {
+            for (Student s : accepted) {
+                bindInsert(ps, s);
+                ps.addBatch();
+                ChangePoller.bindChange(log, s.getRollNo(), StudentListener.ChangeType.INSERT);
+                log.addBatch();
+            }
+            ps.executeBatch();
+            log.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
         }
+        for (Student s : accepted)
+            fireChanged(StudentListener.ChangeType.INSERT, s.getRollNo(), s);
+        return rejected;
+    }
+
+    /** Binds the ten columns of the {@code INSERT INTO students} statement. */
+    private static void bindInsert(PreparedStatement ps, Student s) throws SQLException {
+        ps.setString(1, s.getName());
+        ps.setString(2, s.getRollNo());
+        ps.setString(3, s.getDepartment());
+        ps.setString(4, s.getEmail());
+        ps.setString(5, s.getPhone());
+        ps.setDouble(6, s.getSub1());
+        ps.setDouble(7, s.getSub2());
+        ps.setDouble(8, s.getSub3());
+        ps.setDouble(9, s.getPercentage());
+        ps.setString(10, s.getGrade());
     }
 
     // ===========================================================
@@ -74,24 +351,11 @@ public class StudentDao {
     public List<Student> getAllStudents() throws SQLException {
         List<Student> list = new ArrayList<>();
         String sql = "SELECT * FROM students";
-        try (Statement st = conn.createStatement();
+        try (Statement st = router.read().createStatement();
              ResultSet rs = st.executeQuery(sql)) {
 
             while (rs.next()) {
-                Student s = new Student(
-                        rs.getString("name"),
-                        rs.getString("roll_no"),
-                        rs.getString("department"),
-                        rs.getString("email"),
-                        rs.getString("phone"),
-                        rs.getDouble("sub1"),
-                        rs.getDouble("sub2"),
-                        rs.getDouble("sub3"),
-                        rs.getDouble("percentage"),
-                        rs.getString("grade")
-                );
-                s.setId(rs.getInt("id"));
-                list.add(s);
+                list.add(mapStudent(rs));
             }
         }
         return list;
@@ -103,6 +367,9 @@ public class StudentDao {
 
     /**
      * Updates an existing student's details using their roll number as a reference.
+     * <p>
+     * This is a blind (last-writer-wins) update; use
+     * {@link #updateStudentChecked(String, Student)} when the record was read first.
      *
      * @param rollNo The roll number of the student to update
      * @param s      The {@link Student} object containing updated details
@@ -111,19 +378,233 @@ public class StudentDao {
      */
     public boolean updateStudent(String rollNo, Student s) throws SQLException {
         String sql = "UPDATE students SET name=?, department=?, sub1=?, sub2=?, sub3=?, "
-                   + "percentage=?, grade=?, email=?, phone=? WHERE roll_no=?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, s.getName());
-            ps.setString(2, s.getDepartment());
-            ps.setDouble(3, s.getSub1());
-            ps.setDouble(4, s.getSub2());
-            ps.setDouble(5, s.getSub3());
-            ps.setDouble(6, s.getPercentage());
-            ps.setString(7, s.getGrade());
-            ps.setString(8, s.getEmail());
-            ps.setString(9, s.getPhone());
-            ps.setString(10, rollNo);
-            return ps.executeUpdate() > 0;
+                   + "percentage=?, grade=?, email=?, phone=?, version=version+1 WHERE roll_no=?";
+        int rows = logged(rollNo, StudentListener.ChangeType.UPDATE, conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, s.getName());
+                ps.setString(2, s.getDepartment());
+                ps.setDouble(3, s.getSub1());
+                ps.setDouble(4, s.getSub2());
+                ps.setDouble(5, s.getSub3());
+                ps.setDouble(6, s.getPercentage());
+                ps.setString(7, s.getGrade());
+                ps.setString(8, s.getEmail());
+                ps.setString(9, s.getPhone());
+                ps.setString(10, rollNo);
+                return ps.executeUpdate();
+            }
+        });
+        if (rows == 0)
+            return false;
+        fireChanged(StudentListener.ChangeType.UPDATE, rollNo, s);
+        return true;
+    }
+
+    /**
+     * Updates all columns of a student only if the row still has the version
+     * held by {@code s}. On success the version of {@code s} is incremented.
+     *
+     * @param rollNo The roll number of the student to update
+     * @param s      The {@link Student} with updated details and the version it was read at
+     * @return {@code true} if the student was updated, {@code false} if not found
+     * @throws StaleStudentException if the row was modified since it was read
+     * @throws SQLException          if the update query fails
+     */
+    public boolean updateStudentChecked(String rollNo, Student s) throws SQLException {
+        String sql = "UPDATE students SET name=?, department=?, sub1=?, sub2=?, sub3=?, "
+                   + "percentage=?, grade=?, email=?, phone=?, version=version+1 WHERE roll_no=? AND version=?";
+        int rows = logged(rollNo, StudentListener.ChangeType.UPDATE, conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, s.getName());
+                ps.setString(2, s.getDepartment());
+                ps.setDouble(3, s.getSub1());
+                ps.setDouble(4, s.getSub2());
+                ps.setDouble(5, s.getSub3());
+                ps.setDouble(6, s.getPercentage());
+                ps.setString(7, s.getGrade());
+                ps.setString(8, s.getEmail());
+                ps.setString(9, s.getPhone());
+                ps.setString(10, rollNo);
+                ps.setInt(11, s.getVersion());
+                return ps.executeUpdate();
+            }
+        });
+        if (rows > 0) {
+            s.setVersion(s.getVersion() + 1);
+            fireChanged(StudentListener.ChangeType.UPDATE, rollNo, s);
+            s.clearDirty();
+            return true;
+        }
+        return failVersionCheck(rollNo, s.getVersion());
+    }
+
+    /**
+     * Writes only the columns of {@code s} that are marked dirty, leaving all
+     * other columns of the row untouched.
+     * <p>
+     * The write is version-checked: {@code s} must have been loaded from the
+     * database (e.g. with {@link #getStudentByRollNo(String)}) and the row must
+     * not have been modified since.
+     * <p>
+     * The generated SQL depends only on which fields are dirty, so it is cached
+     * per shape and the same text reaches the driver's statement cache.
+     * On success the dirty flags of {@code s} are cleared.
+     *
+     * @param rollNo The roll number of the student to update
+     * @param s      The {@link Student} whose dirty fields should be written
+     * @return {@code true} if the student was found and updated, {@code false}
+     *         if not found or if no field is dirty
+     * @throws StaleStudentException if the row was modified since it was read
+     * @throws SQLException          if the update query fails
+     */
+    public boolean patchStudent(String rollNo, Student s) throws SQLException {
+        return patchStudent(rollNo, s, null);
+    }
+
+    /**
+     * Like {@link #patchStudent(String, Student)}, but also replaces the
+     * student's per-subject marks ({@link Student#getMarks()}) in the same
+     * transaction. The version is bumped and the change logged even if no
+     * column of {@code students} is dirty, so a change of marks alone is
+     * version-checked and seen by other instances like any other update.
+     *
+     * @param rollNo   The roll number of the student to update
+     * @param s        The {@link Student} whose dirty fields should be written
+     * @param subjects Subjects of the student's department, or {@code null}
+     *                 to leave the marks untouched
+     * @return {@code true} if the student was found and updated, {@code false}
+     *         if not found or if there is nothing to write
+     * @throws IllegalArgumentException if the marks do not fit {@code subjects}
+     * @throws StaleStudentException    if the row was modified since it was read
+     * @throws SQLException             if the update query fails
+     */
+    public boolean patchStudent(String rollNo, Student s, List<MarksDao.Subject> subjects) throws SQLException {
+        int mask = s.getDirtyMask();
+        if (mask == 0 && subjects == null)
+            return false;
+        if (subjects != null)
+            MarksDao.validate(subjects, s.getMarks());
+
+        int rows = logged(rollNo, StudentListener.ChangeType.UPDATE, conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(patchSql(mask))) {
+                int i = 1;
+                for (Student.Field f : Student.Field.values()) {
+                    if (!s.isDirty(f))
+                        continue;
+                    switch (f) {
+                        case NAME -> ps.setString(i++, s.getName());
+                        case DEPARTMENT -> ps.setString(i++, s.getDepartment());
+                        case EMAIL -> ps.setString(i++, s.getEmail());
+                        case PHONE -> ps.setString(i++, s.getPhone());
+                        case SUB1 -> ps.setDouble(i++, s.getSub1());
+                        case SUB2 -> ps.setDouble(i++, s.getSub2());
+                        case SUB3 -> ps.setDouble(i++, s.getSub3());
+                        case PERCENTAGE -> ps.setDouble(i++, s.getPercentage());
+                        case GRADE -> ps.setString(i++, s.getGrade());
+                    }
+                }
+                ps.setString(i++, rollNo);
+                ps.setInt(i, s.getVersion());
+                int updated = ps.executeUpdate();
+                if (updated > 0 && subjects != null)
+                    MarksDao.writeMarks(conn, rollNo, subjects, s.getMarks());
+                return updated;
+            }
+        });
+        if (rows > 0) {
+            s.setVersion(s.getVersion() + 1);
+            fireChanged(StudentListener.ChangeType.UPDATE, rollNo, s);
+            s.clearDirty();
+            return true;
+        }
+        return failVersionCheck(rollNo, s.getVersion());
+    }
+
+    /**
+     * Loads a student, applies {@code change} and patches the changed fields,
+     * retrying with a fresh copy when another writer got there first.
+     * <p>
+     * {@code change} may run several times and should only call setters on the
+     * student it is given. Between attempts the thread backs off for a short,
+     * randomised, exponentially growing delay.
+     *
+     * @param rollNo      The roll number of the student to update
+     * @param change      Modification applied to the freshly loaded student
+     * @param maxAttempts Maximum number of attempts (at least 1)
+     * @return {@code true} if the student was updated (or already had the
+     *         requested values), {@code false} if not found
+     * @throws StaleStudentException if every attempt conflicted
+     * @throws SQLException          if a database access error occurs
+     */
+    public boolean updateWithRetry(String rollNo, Consumer<Student> change, int maxAttempts) throws SQLException {
+        for (int attempt = 1; ; attempt++) {
+            // Reload from the primary: a lagging replica would make every retry stale again
+            Student s = findOnPrimary(rollNo);
+            if (s == null)
+                return false;
+            change.accept(s);
+            if (!s.isDirty())
+                return true;
+            try {
+                return patchStudent(rollNo, s);
+            } catch (StaleStudentException e) {
+                if (attempt >= maxAttempts)
+                    throw e;
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Sleeps for a random delay of up to {@code 2^attempt} milliseconds (capped at 100 ms).
+     */
+    private static void backOff(int attempt) throws SQLException {
+        long maxMs = Math.min(100, 1L << Math.min(attempt, 7));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxMs + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying update", e);
+        }
+    }
+
+    /** Reads a student from the primary, bypassing any replica. */
+    Student findOnPrimary(String rollNo) throws SQLException {
+        return findByRollNo(router.primary(), rollNo);
+    }
+
+    /**
+     * Called when a version-checked write affected no rows: distinguishes a
+     * missing row (returns {@code false}) from a version conflict (throws).
+     */
+    boolean failVersionCheck(String rollNo, int expectedVersion) throws SQLException {
+        String sql = "SELECT 1 FROM students WHERE roll_no=?";
+        try (PreparedStatement ps = router.primary().prepareStatement(sql)) {
+            ps.setString(1, rollNo);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next())
+                    throw new StaleStudentException(rollNo, expectedVersion);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the cached (or newly generated) {@code UPDATE} for a dirty mask.
+     *
+     * @param mask Dirty mask as returned by {@link Student#getDirtyMask()}
+     * @return SQL of the form {@code UPDATE students SET a=?, b=?, version=version+1 WHERE roll_no=? AND version=?}
+     */
+    private static String patchSql(int mask) {
+        synchronized (PATCH_SQL_CACHE) {
+            return PATCH_SQL_CACHE.computeIfAbsent(mask, m -> {
+                StringBuilder sql = new StringBuilder("UPDATE students SET ");
+                for (Student.Field f : Student.Field.values()) {
+                    if ((m & f.bit()) != 0)
+                        sql.append(f.getColumn()).append("=?, ");
+                }
+                return sql.append("version=version+1 WHERE roll_no=? AND version=?").toString();
+            });
         }
     }
 
@@ -139,45 +620,162 @@ public class StudentDao {
      * @throws SQLException if the deletion fails
      */
     public boolean deleteStudent(String rollNo) throws SQLException {
-        String sql = "DELETE FROM students WHERE roll_no=?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, rollNo);
-            return ps.executeUpdate() > 0;
+        if (deleteRow(rollNo, ANY_VERSION) == 0)
+            return false;
+        fireChanged(StudentListener.ChangeType.DELETE, rollNo, null);
+        return true;
+    }
+
+    /**
+     * Deletes a student record only if it still has the expected version.
+     *
+     * @param rollNo          The roll number of the student to delete
+     * @param expectedVersion Version the record was read at
+     * @return {@code true} if the record was deleted, {@code false} if not found
+     * @throws StaleStudentException if the row was modified since it was read
+     * @throws SQLException          if the deletion fails
+     */
+    public boolean deleteStudentChecked(String rollNo, int expectedVersion) throws SQLException {
+        if (deleteRow(rollNo, expectedVersion) > 0) {
+            fireChanged(StudentListener.ChangeType.DELETE, rollNo, null);
+            return true;
         }
+        return failVersionCheck(rollNo, expectedVersion);
+    }
+
+    /**
+     * Deletes a student row, logged but without notifying the listeners.
+     *
+     * @param expectedVersion Version the row must have, or {@link #ANY_VERSION}
+     * @return Number of rows deleted
+     */
+    int deleteRow(String rollNo, int expectedVersion) throws SQLException {
+        String sql = expectedVersion == ANY_VERSION ? "DELETE FROM students WHERE roll_no=?"
+                                                    : "DELETE FROM students WHERE roll_no=? AND version=?";
+        return logged(rollNo, StudentListener.ChangeType.DELETE, conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setString(1, rollNo);
+                if (expectedVersion != ANY_VERSION)
+                    ps.setInt(2, expectedVersion);
+                return ps.executeUpdate();
+            }
+        });
     }
 
     // ===========================================================
     // =============== SEARCH STUDENTS ===========================
     // ===========================================================
 
+    /**
+     * Searches for students matching all criteria set on {@code criteria}.
+     * <p>
+     * The criteria are compiled into one parameterised statement; filtering,
+     * ordering and the limit are evaluated by the database. The prepared
+     * statement is cached per predicate shape and reused on later searches.
+     *
+     * @param criteria The {@link StudentCriteria} to match
+     * @return A list of matching {@link Student} objects
+     * @throws SQLException if the query fails
+     */
+    public List<Student> search(StudentCriteria criteria) throws SQLException {
+        List<Student> list = new ArrayList<>();
+        Connection conn = router.read();
+        synchronized (searchCaches) {
+            Map<String, PreparedStatement> searchCache = searchCaches.computeIfAbsent(conn, c -> newSearchCache());
+            String key = criteria.shapeKey();
+            PreparedStatement ps = searchCache.get(key);
+            if (ps == null || ps.isClosed()) {
+                ps = conn.prepareStatement(criteria.toSql());
+                searchCache.put(key, ps);
+            }
+            criteria.bind(ps);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next())
+                    list.add(mapStudent(rs));
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Retrieves the students with the given roll numbers in one query.
+     *
+     * @param rollNos Roll numbers to look up
+     * @return The matching students, in the order of {@code rollNos} (missing ones are skipped)
+     * @throws SQLException if the query fails
+     */
+    public List<Student> getStudentsByRollNos(List<String> rollNos) throws SQLException {
+        List<Student> list = new ArrayList<>();
+        if (rollNos.isEmpty())
+            return list;
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM students WHERE roll_no IN (");
+        for (int i = 0; i < rollNos.size(); i++)
+            sql.append(i == 0 ? "?" : ",?");
+        sql.append(')');
+
+        Map<String, Student> byRoll = new HashMap<>();
+        try (PreparedStatement ps = router.read().prepareStatement(sql.toString())) {
+            for (int i = 0; i < rollNos.size(); i++)
+                ps.setString(i + 1, rollNos.get(i));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Student s = mapStudent(rs);
+                    byRoll.put(s.getRollNo(), s);
+                }
+            }
+        }
+        for (String roll : rollNos) {
+            Student s = byRoll.get(roll);
+            if (s != null)
+                list.add(s);
+        }
+        return list;
+    }
+
+    /**
+     * Retrieves a single student by roll number.
+     * <p>
+     * The returned object has no dirty fields, so it can be modified through
+     * its setters and passed to {@link #patchStudent(String, Student)}.
+     *
+     * @param rollNo The student's roll number
+     * @return The matching {@link Student}, or {@code null} if none exists
+     * @throws SQLException if the query fails
+     */
+    public Student getStudentByRollNo(String rollNo) throws SQLException {
+        return findByRollNo(router.read(), rollNo);
+    }
+
+    private static Student findByRollNo(Connection conn, String rollNo) throws SQLException {
+        String sql = "SELECT * FROM students WHERE roll_no=?";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, rollNo);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? mapStudent(rs) : null;
+            }
+        }
+    }
+
     /**
      * Searches for a student by their roll number.
+     * <p>
+     * The roll number is bound as a string: comparing the {@code VARCHAR}
+     * column with a number makes MySQL convert every row and scan the table
+     * instead of using the unique index (see {@link QueryPlanCheck}).
      *
      * @param sRollno The student's roll number
      * @return A list of matching {@link Student} objects (typically 0 or 1)
      * @throws SQLException if the query fails
      */
-    public List<Student> searchByRollno(int sRollno) throws SQLException {
+    public List<Student> searchByRollno(String sRollno) throws SQLException {
         List<Student> list = new ArrayList<>();
         String sql = "SELECT * FROM students WHERE roll_no=?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, sRollno);
+        try (PreparedStatement ps = router.read().prepareStatement(sql)) {
+            ps.setString(1, sRollno);
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                Student s = new Student(
-                        rs.getString("name"),
-                        rs.getString("roll_no"),
-                        rs.getString("department"),
-                        rs.getString("email"),
-                        rs.getString("phone"),
-                        rs.getDouble("sub1"),
-                        rs.getDouble("sub2"),
-                        rs.getDouble("sub3"),
-                        rs.getDouble("percentage"),
-                        rs.getString("grade")
-                );
-                s.setId(rs.getInt("id"));
-                list.add(s);
+                list.add(mapStudent(rs));
             }
         }
         return list;
@@ -193,24 +791,11 @@ public class StudentDao {
     public List<Student> searchByName(String name) throws SQLException {
         List<Student> list = new ArrayList<>();
         String sql = "SELECT * FROM students WHERE name LIKE ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = router.read().prepareStatement(sql)) {
             ps.setString(1, "%" + name + "%");
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                Student s = new Student(
-                        rs.getString("name"),
-                        rs.getString("roll_no"),
-                        rs.getString("department"),
-                        rs.getString("email"),
-                        rs.getString("phone"),
-                        rs.getDouble("sub1"),
-                        rs.getDouble("sub2"),
-                        rs.getDouble("sub3"),
-                        rs.getDouble("percentage"),
-                        rs.getString("grade")
-                );
-                s.setId(rs.getInt("id"));
-                list.add(s);
+                list.add(mapStudent(rs));
             }
         }
         return list;
@@ -226,24 +811,11 @@ public class StudentDao {
     public List<Student> searchByDepartment(String dept) throws SQLException {
         List<Student> list = new ArrayList<>();
         String sql = "SELECT * FROM students WHERE department LIKE ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = router.read().prepareStatement(sql)) {
             ps.setString(1, "%" + dept + "%");
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                Student s = new Student(
-                        rs.getString("name"),
-                        rs.getString("roll_no"),
-                        rs.getString("department"),
-                        rs.getString("email"),
-                        rs.getString("phone"),
-                        rs.getDouble("sub1"),
-                        rs.getDouble("sub2"),
-                        rs.getDouble("sub3"),
-                        rs.getDouble("percentage"),
-                        rs.getString("grade")
-                );
-                s.setId(rs.getInt("id"));
-                list.add(s);
+                list.add(mapStudent(rs));
             }
         }
         return list;
@@ -259,26 +831,43 @@ public class StudentDao {
     public List<Student> searchByMarksRange(double rMarks) throws SQLException {
         List<Student> list = new ArrayList<>();
         String sql = "SELECT * FROM students WHERE percentage >= ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+        try (PreparedStatement ps = router.read().prepareStatement(sql)) {
             ps.setDouble(1, rMarks);
             ResultSet rs = ps.executeQuery();
             while (rs.next()) {
-                Student s = new Student(
-                        rs.getString("name"),
-                        rs.getString("roll_no"),
-                        rs.getString("department"),
-                        rs.getString("email"),
-                        rs.getString("phone"),
-                        rs.getDouble("sub1"),
-                        rs.getDouble("sub2"),
-                        rs.getDouble("sub3"),
-                        rs.getDouble("percentage"),
-                        rs.getString("grade")
-                );
-                s.setId(rs.getInt("id"));
-                list.add(s);
+                list.add(mapStudent(rs));
             }
         }
         return list;
     }
+
+    // ===========================================================
+    // =============== RESULT SET MAPPING ========================
+    // ===========================================================
+
+    /**
+     * Builds a clean {@link Student} from the current row of a {@code SELECT *} result.
+     *
+     * @param rs Result set positioned on a {@code students} row
+     * @return The mapped {@link Student}
+     * @throws SQLException if a column cannot be read
+     */
+    static Student mapStudent(ResultSet rs) throws SQLException {
+        Student s = new Student(
+                rs.getString("name"),
+                rs.getString("roll_no"),
+                rs.getString("department"),
+                rs.getString("email"),
+                rs.getString("phone"),
+                rs.getDouble("sub1"),
+                rs.getDouble("sub2"),
+                rs.getDouble("sub3"),
+                rs.getDouble("percentage"),
+                rs.getString("grade")
+        );
+        s.setId(rs.getInt("id"));
+        s.setVersion(rs.getInt("version"));
+        s.clearDirty();
+        return s;
+    }
 }
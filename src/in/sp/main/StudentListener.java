@@ -0,0 +1,29 @@
+package in.sp.main;
+
+/**
+ * The {@code StudentListener} interface receives a callback after every
+ * successful add, update or delete performed through {@link StudentDao}.
+ * <p>
+ * Listeners run on the caller's thread right after the statement succeeds,
+ * so implementations must be fast and must not throw; anything expensive
+ * (such as writing an audit trail) should be handed off to another thread,
+ * as {@link AuditLog} does.
+ */
+public interface StudentListener {
+
+    /** Kind of mutation that was performed. */
+    enum ChangeType {
+        INSERT,
+        UPDATE,
+        DELETE
+    }
+
+    /**
+     * Called after a student record was changed.
+     *
+     * @param type    Kind of mutation
+     * @param rollNo  Roll number of the affected student
+     * @param student State written to the database ({@code null} for {@link ChangeType#DELETE})
+     */
+    void onStudentChanged(ChangeType type, String rollNo, Student student);
+}
@@ -0,0 +1,70 @@
+package in.sp.main;
+
+import java.util.Arrays;
+
+/**
+ * The {@code ThresholdGradingScheme} class is a {@link GradingScheme} driven by
+ * a descending list of minimum percentages, one per grade.
+ * <p>
+ * Example: thresholds {@code {90, 75, 60, 45}} with grades {@code {"A", "B", "C", "D"}}
+ * and fallback {@code "F"} reproduces the original hard-coded policy.
+ */
+public class ThresholdGradingScheme implements GradingScheme {
+
+    /** The standard scheme (A ≥ 90, B ≥ 75, C ≥ 60, D ≥ 45, otherwise F). */
+    static final ThresholdGradingScheme STANDARD = new ThresholdGradingScheme(
+            "Standard", new double[]{90, 75, 60, 45}, new String[]{"A", "B", "C", "D"}, "F");
+
+    /** Name of the scheme. */
+    private final String name;
+
+    /** Minimum percentage per grade, in strictly descending order. */
+    private final double[] minimums;
+
+    /** Grades matching {@link #minimums} index by index. */
+    private final String[] grades;
+
+    /** Grade given when the percentage is below every threshold. */
+    private final String fallback;
+
+    /**
+     * Constructs a threshold based grading scheme.
+     *
+     * @param name     Name of the scheme
+     * @param minimums Minimum percentage for each grade, in descending order
+     * @param grades   Grade for each threshold (same length as {@code minimums})
+     * @param fallback Grade used below the lowest threshold
+     * @throws IllegalArgumentException if the arrays differ in length or are not descending
+     */
+    public ThresholdGradingScheme(String name, double[] minimums, String[] grades, String fallback) {
+        if (minimums.length != grades.length)
+            throw new IllegalArgumentException("Each threshold needs exactly one grade");
+        for (int i = 1; i < minimums.length; i++) {
+            if (minimums[i] >= minimums[i - 1])
+                throw new IllegalArgumentException("Thresholds must be in descending order");
+        }
+        this.name = name;
+        this.minimums = minimums.clone();
+        this.grades = grades.clone();
+        this.fallback = fallback;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String grade(double percentage) {
+        for (int i = 0; i < minimums.length; i++) {
+            if (percentage >= minimums[i])
+                return grades[i];
+        }
+        return fallback;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + Arrays.toString(minimums) + " -> " + Arrays.toString(grades) + " else " + fallback;
+    }
+}
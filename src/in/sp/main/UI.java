@@ -1,7 +1,13 @@
 package in.sp.main;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 
@@ -26,25 +32,160 @@ import java.util.Scanner;
  */
 public class UI {
 
-    private Connection conn;
-    private StudentDao studentDao;
-    private AdminService adminService;
-    private LoginService loginService;
+    // Services are created on first use (or by the warm-up), so the login
+    // prompt does not wait for the database connection
+    private final Lazy<ConnectionRouter> router;
+    /** Shards holding the student data, or {@code null} if it all lives behind {@link #router}. */
+    private final Lazy<ShardSet> shards;
+    private final Lazy<StudentDao> studentDao;
+    private final Lazy<AdminService> adminService;
+    private final Lazy<LoginService> loginService;
+    private final Lazy<RegradeService> regradeService;
+    private final Lazy<MarksDao> marksDao;
+    private final Lazy<FuzzyNameIndex> fuzzyIndex;
+    private final Lazy<UniquenessGuard> uniquenessGuard;
+    private final Lazy<ChangePoller> changes;
+    private GradingScheme gradingScheme;
+    private AuditLog auditLog;
+    private final StartupTimer timer;
     private Scanner sc;
 
+    /** Students whose marks are loaded with one query when printing a list. */
+    private static final int MARKS_PAGE_SIZE = 500;
+
+    /** Students whose lookups and searches are replayed by {@link #warmUp(Connection)}. */
+    private static final int WARM_UP_SAMPLE = 20;
+
+    /** Times the hot paths are replayed by {@link #warmUp(Connection)}. */
+    private static final int WARM_UP_ROUNDS = 25;
+
     /**
      * Constructs the UI object and initializes all service dependencies.
      *
      * @param conn Active {@link Connection} to the database
      */
     public UI(Connection conn) {
-        this.conn = conn;
-        this.studentDao = new StudentDao(conn);
-        this.adminService = new AdminService(conn);
-        this.loginService = new LoginService(conn);
+        this(conn, null);
+    }
+
+    /**
+     * Constructs the UI object and registers an audit log that records every
+     * student mutation.
+     *
+     * @param conn     Active {@link Connection} to the database
+     * @param auditLog {@link AuditLog} to notify, or {@code null} for none
+     */
+    public UI(Connection conn, AuditLog auditLog) {
+        this(ConnectionRouter.single(conn), auditLog);
+    }
+
+    /**
+     * Constructs the UI object on a {@link ConnectionRouter}: searches, listings
+     * and statistics may be served by read replicas, everything else uses the primary.
+     *
+     * @param router   {@link ConnectionRouter} for this session
+     * @param auditLog {@link AuditLog} to notify, or {@code null} for none
+     */
+    public UI(ConnectionRouter router, AuditLog auditLog) {
+        this(Lazy.of(router), null, auditLog, StartupTimer.sinceProcessStart());
+    }
+
+    /**
+     * Constructs the UI object without waiting for the database: the router
+     * and every service are created when first needed, so {@link #start()}
+     * can show the login prompt while {@code router} is still connecting.
+     *
+     * <p>
+     * With a {@link ChangePoller}, the in-memory indexes also follow changes
+     * made by other instances; the poller is created before they are loaded.
+     *
+     * @param router   {@link ConnectionRouter} for this session, possibly still being created
+     * @param changes  Change-log poller, or {@code null} to only see this instance's changes
+     * @param auditLog {@link AuditLog} to notify, or {@code null} for none
+     * @param timer    Records startup milestones
+     */
+    public UI(Lazy<ConnectionRouter> router, Lazy<ChangePoller> changes, AuditLog auditLog, StartupTimer timer) {
+        this(router, null, changes, auditLog, timer);
+    }
+
+    /**
+     * Constructs the UI object with the student data spread over a
+     * {@link ShardSet}: students, marks and statistics go through the sharded
+     * DAOs, while login stays on {@code router}. Roster sync and the warm-up
+     * are not available then.
+     *
+     * @param router   {@link ConnectionRouter} for login, possibly still being created
+     * @param shards   Shards holding the student data, or {@code null} to use {@code router} for everything
+     * @param changes  Change-log poller, or {@code null} to only see this instance's changes
+     * @param auditLog {@link AuditLog} to notify, or {@code null} for none
+     * @param timer    Records startup milestones
+     */
+    public UI(Lazy<ConnectionRouter> router, Lazy<ShardSet> shards, Lazy<ChangePoller> changes, AuditLog auditLog,
+              StartupTimer timer) {
+        this.router = router;
+        this.shards = shards;
+        this.changes = changes;
+        this.studentDao = new Lazy<>(() -> {
+            StudentDao dao = shards == null ? new StudentDao(router())
+                                            : new ShardedStudentDao(shards.get(), (ShardedMarksDao) marksDao());
+            if (auditLog != null)
+                dao.addListener(auditLog);
+            return dao;
+        });
+        this.adminService = new Lazy<>(() -> shards == null ? new AdminService(router())
+                                                            : new ShardedAdminService(shards.get()));
+        this.loginService = new Lazy<>(() -> new LoginService(router().primary()));
+        this.regradeService = new Lazy<>(() -> {
+            // The regrade writes around StudentDao, so notify the same listeners
+            RegradeService regrade = new RegradeService(router().primary());
+            regrade.addListener(studentDao().forwarder());
+            return regrade;
+        });
+        this.marksDao = new Lazy<>(() -> shards == null ? new MarksDao(router().primary())
+                                                        : new ShardedMarksDao(shards.get()));
+        this.fuzzyIndex = new Lazy<>(() -> loadFuzzyIndex(scanConnections()));
+        this.uniquenessGuard = new Lazy<>(() -> loadUniquenessGuard(router().primary()));
+        this.gradingScheme = GradingScheme.standard();
+        this.auditLog = auditLog;
+        this.timer = timer;
         this.sc = new Scanner(System.in);
     }
 
+    private ConnectionRouter router() throws SQLException {
+        return router.get();
+    }
+
+    /** @return Connections to scan for a full pass over the students: a replica if any, or every shard */
+    private List<Connection> scanConnections() throws SQLException {
+        if (shards == null)
+            return List.of(router().read());
+        ShardSet set = shards.get();
+        List<Connection> conns = new ArrayList<>(set.size());
+        for (int i = 0; i < set.size(); i++)
+            conns.add(set.connection(i));
+        return conns;
+    }
+
+    private StudentDao studentDao() throws SQLException {
+        return studentDao.get();
+    }
+
+    private AdminService adminService() throws SQLException {
+        return adminService.get();
+    }
+
+    private LoginService loginService() throws SQLException {
+        return loginService.get();
+    }
+
+    private RegradeService regradeService() throws SQLException {
+        return regradeService.get();
+    }
+
+    private MarksDao marksDao() throws SQLException {
+        return marksDao.get();
+    }
+
     /**
      * Starts the main user interaction loop after successful login.
      * Displays a menu-driven interface for performing various actions.
@@ -54,6 +195,8 @@ public class UI {
     public void start() throws SQLException {
 
         // --- Login Authentication ---
+        // Shown right away; the connection is opened in the background meanwhile
+        timer.mark(StartupTimer.PROMPT);
         System.out.print("Enter username: ");
         String user = sc.nextLine();
 
@@ -61,12 +204,15 @@ public class UI {
         String pass = sc.nextLine();
 
         // Authenticate user credentials
-        if (!loginService.authenticate(user, pass)) {
+        if (!loginService().authenticate(user, pass)) {
             System.out.println("Invalid credentials! Exiting.");
             return;
         }
 
         System.out.println("Login successful! Welcome: " + user + ".");
+        timer.mark(StartupTimer.LOGIN);
+        if (auditLog != null)
+            auditLog.setActor(user);
 
         // --- Main Menu Loop ---
         int choice;
@@ -78,6 +224,10 @@ public class UI {
             System.out.println("4. Delete Student");
             System.out.println("5. Search Student");
             System.out.println("6. Statistics");
+            System.out.println("7. Regrade All Students");
+            System.out.println("8. Sync Roster (CSV)");
+            System.out.println("9. Merit Lists");
+            System.out.println("10. Subject Statistics");
             System.out.println("0. Exit");
             System.out.print("Choice: ");
             choice = sc.nextInt();
@@ -103,6 +253,18 @@ public class UI {
                     case 6:
                         showStatistics();
                         break;
+                    case 7:
+                        regradeStudents();
+                        break;
+                    case 8:
+                        syncRoster();
+                        break;
+                    case 9:
+                        showMeritLists();
+                        break;
+                    case 10:
+                        showSubjectStatistics();
+                        break;
                     case 0:
                         System.out.println("Exiting...");
                         break;
@@ -110,6 +272,9 @@ public class UI {
                         System.out.println("Invalid choice!");
                         break;
                 }
+                if (choice != 0 && timer.mark(StartupTimer.FIRST_RESULT))
+                    System.out.println("(First result " + (timer.elapsedMs(StartupTimer.FIRST_RESULT)
+                            - timer.elapsedMs(StartupTimer.LOGIN)) + " ms after login; startup: " + timer + ")");
             } catch (SQLException e) {
                 System.err.println("Database error: " + e.getMessage());
             }
@@ -140,23 +305,35 @@ public class UI {
         System.out.print("Enter Phone: ");
         String phone = sc.nextLine();
 
-        System.out.print("Enter Sub1 Marks: ");
-        double sub1 = sc.nextDouble();
-
-        System.out.print("Enter Sub2 Marks: ");
-        double sub2 = sc.nextDouble();
+        // Reject duplicates before asking for marks
+        Student s = new Student(name, roll, dept, email, phone, 0, 0, 0, 0, null);
+        String conflict = conflictOf(s);
+        if (conflict != null) {
+            System.out.println("Cannot add student: " + conflict + ".");
+            return;
+        }
 
-        System.out.print("Enter Sub3 Marks: ");
-        double sub3 = sc.nextDouble();
+        // One prompt per subject of the department
+        List<MarksDao.Subject> subjects = marksDao().getSubjects(dept);
+        double[] marks = new double[subjects.size()];
+        for (int i = 0; i < marks.length; i++) {
+            MarksDao.Subject subject = subjects.get(i);
+            do {
+                System.out.print("Enter " + subject.name() + " Marks (out of " + subject.maxMarks() + "): ");
+                marks[i] = sc.nextDouble();
+            } while (!inRange(subject, marks[i]));
+        }
         sc.nextLine(); // clear buffer
 
         // Calculate percentage and grade
-        double percentage = calculateTotalMarks(sub1, sub2, sub3);
-        percentage = Math.round(percentage * 100.0) / 100.0;
+        double percentage = calculateTotalMarks(subjects, marks);
         String grade = calculateGrade(percentage);
 
-        // Insert student record
-        studentDao.addStudent(new Student(name, roll, dept, email, phone, sub1, sub2, sub3, percentage, grade));
+        // Insert student record together with its per-subject marks
+        s.setMarks(marks);
+        s.setPercentage(percentage);
+        s.setGrade(grade);
+        studentDao().addStudent(s, subjects);
         System.out.println("Student added successfully!");
     }
 
@@ -166,12 +343,15 @@ public class UI {
      * @throws SQLException if retrieval fails
      */
     private void viewStudents() throws SQLException {
-        List<Student> students = studentDao.getAllStudents();
+        List<Student> students = studentDao().getAllStudents();
         printStudentList(students);
     }
 
     /**
      * Updates an existing student’s information based on roll number.
+     * <p>
+     * Leaving a prompt blank keeps the current value; only the fields that
+     * actually change are written to the database.
      *
      * @throws SQLException if update fails
      */
@@ -179,38 +359,44 @@ public class UI {
         System.out.print("Roll No to update: ");
         String uRoll = sc.nextLine();
 
-        System.out.print("Enter new Name: ");
-        String uName = sc.nextLine();
-
-        System.out.print("Enter new Department: ");
-        String uDept = sc.nextLine();
-
-        System.out.print("Enter new Email: ");
-        String uEmail = sc.nextLine();
-
-        System.out.print("Enter new Phone: ");
-        String uPhone = sc.nextLine();
-
-        System.out.print("Enter Sub1 Marks: ");
-        double uSub1 = sc.nextDouble();
-
-        System.out.print("Enter Sub2 Marks: ");
-        double uSub2 = sc.nextDouble();
-
-        System.out.print("Enter Sub3 Marks: ");
-        double uSub3 = sc.nextDouble();
-        sc.nextLine();
-
-        // Recalculate marks and grade
-        double uPercentage = calculateTotalMarks(uSub1, uSub2, uSub3);
-        String uGrade = calculateGrade(uPercentage);
-
-        boolean updated = studentDao.updateStudent(
-                uRoll,
-                new Student(uName, uRoll, uDept, uEmail, uPhone, uSub1, uSub2, uSub3, uPercentage, uGrade)
-        );
+        Student s = studentDao().getStudentByRollNo(uRoll);
+        if (s == null) {
+            System.out.println("Student not found!");
+            return;
+        }
+        System.out.println("(Press Enter to keep the current value)");
+
+        s.setName(promptText("Enter new Name", s.getName()));
+        s.setDepartment(promptText("Enter new Department", s.getDepartment()));
+        s.setEmail(promptText("Enter new Email", s.getEmail()));
+        s.setPhone(promptText("Enter new Phone", s.getPhone()));
+
+        // Marks of the (possibly new) department's subjects, by position
+        marksDao().loadMarks(List.of(s));
+        double[] oldMarks = s.getMarks();
+        List<MarksDao.Subject> subjects = marksDao().getSubjects(s.getDepartment());
+        double[] marks = new double[subjects.size()];
+        for (int i = 0; i < marks.length; i++)
+            marks[i] = promptMarks(subjects.get(i), i < oldMarks.length ? oldMarks[i] : 0);
+        boolean marksChanged = !Arrays.equals(oldMarks, marks) || s.isDirty(Student.Field.DEPARTMENT);
+        s.setMarks(marks);
+
+        // Recalculate marks and grade (only marked dirty if they change)
+        double uPercentage = calculateTotalMarks(subjects, marks);
+        s.setPercentage(uPercentage);
+        s.setGrade(calculateGrade(uPercentage));
+
+        if (!s.isDirty() && !marksChanged) {
+            System.out.println("No changes made.");
+            return;
+        }
 
-        System.out.println(updated ? "Student updated successfully!" : "Student not found!");
+        try {
+            boolean updated = studentDao().patchStudent(uRoll, s, marksChanged ? subjects : null);
+            System.out.println(updated ? "Student updated successfully!" : "Student not found!");
+        } catch (StaleStudentException e) {
+            System.out.println("Student was changed by another user meanwhile. Please retry the update.");
+        }
     }
 
     /**
@@ -221,7 +407,7 @@ public class UI {
     private void deleteStudent() throws SQLException {
         System.out.print("Roll No to delete: ");
         String dRoll = sc.nextLine();
-        boolean deleted = studentDao.deleteStudent(dRoll);
+        boolean deleted = studentDao().deleteStudent(dRoll);
         System.out.println(deleted ? "Student deleted successfully!" : "Student not found!");
     }
 
@@ -231,7 +417,7 @@ public class UI {
      * @throws SQLException if search fails
      */
     private void searchStudent() throws SQLException {
-        System.out.println("Search by: 1.Rollno 2.Name 3.Dept 4.Marks Range");
+        System.out.println("Search by: 1.Rollno 2.Name 3.Dept 4.Marks Range 5.Multiple Criteria 6.Fuzzy Name");
         int sChoice = sc.nextInt();
         sc.nextLine();
         List<Student> result = null;
@@ -239,25 +425,34 @@ public class UI {
         switch (sChoice) {
             case 1:
                 System.out.print("Enter Rollno: ");
-                int sRollno = sc.nextInt();
-                sc.nextLine();
-                result = studentDao.searchByRollno(sRollno);
+                String sRollno = sc.nextLine().trim();
+                result = studentDao().searchByRollno(sRollno);
                 break;
             case 2:
                 System.out.print("Enter Name: ");
                 String sName = sc.nextLine();
-                result = studentDao.searchByName(sName);
+                result = studentDao().searchByName(sName);
                 break;
             case 3:
                 System.out.print("Enter Department: ");
                 String sDept = sc.nextLine();
-                result = studentDao.searchByDepartment(sDept);
+                result = studentDao().searchByDepartment(sDept);
                 break;
             case 4:
                 System.out.print("Enter Marks Threshold: ");
                 double rMarks = sc.nextDouble();
                 sc.nextLine();
-                result = studentDao.searchByMarksRange(rMarks);
+                result = studentDao().searchByMarksRange(rMarks);
+                break;
+            case 5:
+                StudentCriteria criteria = promptCriteria();
+                if (criteria == null)
+                    return;
+                result = studentDao().search(criteria);
+                break;
+            case 6:
+                System.out.print("Enter Name (typos allowed): ");
+                result = fuzzySearch(sc.nextLine());
                 break;
             default:
                 System.out.println("Invalid search option!");
@@ -267,43 +462,498 @@ public class UI {
         printStudentList(result);
     }
 
+    /**
+     * Looks up students by name while tolerating typos. The in-memory index is
+     * built on first use (or by {@link #warmUp}) and then kept current through {@link StudentDao}.
+     * Up to one typo is allowed for names shorter than five letters, two otherwise.
+     *
+     * @param name Name as typed by the user
+     * @return The closest matching students, best match first
+     * @throws SQLException if the index cannot be built or the students cannot be loaded
+     */
+    private List<Student> fuzzySearch(String name) throws SQLException {
+        int maxTypos = name.trim().length() < 5 ? 1 : 2;
+        List<String> rolls = new ArrayList<>();
+        for (FuzzyNameIndex.Match m : fuzzyIndex.get().search(name, maxTypos, 20))
+            rolls.add(m.rollNo());
+        return studentDao().getStudentsByRollNos(rolls);
+    }
+
+    /**
+     * Returns the uniqueness guard, building it on first use from a scan of
+     * the primary and rebuilding it once it holds more values than it was
+     * sized for. {@link StudentDao} keeps it current from then on.
+     *
+     * @return The {@link UniquenessGuard} of this session
+     * @throws SQLException if the {@code students} table cannot be read
+     */
+    private UniquenessGuard uniquenessGuard() throws SQLException {
+        boolean existed = uniquenessGuard.isInitialized();
+        UniquenessGuard guard = uniquenessGuard.get();
+        if (existed)
+            guard.rebuildIfSaturated();
+        return guard;
+    }
+
+    /**
+     * Checks whether a new student would hit a duplicate roll number or email:
+     * with the uniqueness guard, or on every shard when sharded.
+     *
+     * @return Reason for rejection, or {@code null} if the student can be added
+     */
+    private String conflictOf(Student s) throws SQLException {
+        if (studentDao() instanceof ShardedStudentDao sharded)
+            return sharded.conflictOf(s);
+        return uniquenessGuard().conflictOf(s);
+    }
+
+    /**
+     * Registers a new fuzzy name index with {@link StudentDao} and the change
+     * poller, then fills it from scans over {@code scanConns}. Registering
+     * first means changes committed while the scans run still reach the index.
+     */
+    private FuzzyNameIndex loadFuzzyIndex(List<Connection> scanConns) throws SQLException {
+        ChangePoller poller = changes == null ? null : changes.get();
+        FuzzyNameIndex index = new FuzzyNameIndex();
+        studentDao().addListener(index);
+        if (poller != null)
+            poller.addListener(index);
+        index.fill(scanConns);
+        return index;
+    }
+
+    /**
+     * Installs the uniqueness guard on {@link StudentDao} and the change poller,
+     * then fills it from a scan over {@code scanConn}. Registering first means
+     * inserts committed while the scan runs still reach the filters.
+     */
+    private UniquenessGuard loadUniquenessGuard(Connection scanConn) throws SQLException {
+        ChangePoller poller = changes == null ? null : changes.get();
+        UniquenessGuard guard = UniquenessGuard.empty(router().primary());
+        studentDao().setUniquenessGuard(guard);
+        if (poller != null)
+            poller.addListener(guard);
+        guard.rebuild(scanConn);
+        return guard;
+    }
+
+    /**
+     * Prompts for the criteria of a combined search; blank answers skip a criterion.
+     *
+     * @return The entered {@link StudentCriteria}, or {@code null} if the input was invalid
+     */
+    private StudentCriteria promptCriteria() {
+        System.out.println("(Press Enter to skip a criterion)");
+        StudentCriteria c = new StudentCriteria();
+        try {
+            String v;
+            if (!(v = prompt("Name contains")).isEmpty()) c.nameContains(v);
+            if (!(v = prompt("Department")).isEmpty()) c.department(v);
+            if (!(v = prompt("Min Percentage")).isEmpty()) c.minPercentage(Double.parseDouble(v));
+            if (!(v = prompt("Max Percentage")).isEmpty()) c.maxPercentage(Double.parseDouble(v));
+            if (!(v = prompt("Grade")).isEmpty()) c.grade(v.toUpperCase());
+            while (!(v = prompt("Subject No. for a min marks filter")).isEmpty()) {
+                int subject = Integer.parseInt(v);
+                c.minSubjectMarks(subject, Double.parseDouble(prompt("Min Subject " + subject + " Marks")));
+            }
+            v = prompt("Sort by (1.RollNo 2.Name 3.Dept 4.Percentage)");
+            if (!v.isEmpty()) {
+                StudentCriteria.SortField field = StudentCriteria.SortField.values()[Integer.parseInt(v) - 1];
+                c.sortBy(field, prompt("Descending? (y/n)").equalsIgnoreCase("y"));
+            }
+            if (!(v = prompt("Max results")).isEmpty()) c.limit(Integer.parseInt(v));
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Invalid input!");
+            return null;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid input: " + e.getMessage());
+            return null;
+        }
+        return c;
+    }
+
     /**
      * Displays system statistics such as total students, highest, and lowest marks.
      *
      * @throws SQLException if retrieval fails
      */
     private void showStatistics() throws SQLException {
-        System.out.println("Total Students: " + adminService.getTotalStudents());
-        System.out.println("Highest Marks: " + adminService.getHighestMarks());
-        System.out.println("Lowest Marks: " + adminService.getLowestMarks());
+        System.out.println("Total Students: " + adminService().getTotalStudents());
+        System.out.println("Highest Marks: " + adminService().getHighestMarks());
+        System.out.println("Lowest Marks: " + adminService().getLowestMarks());
+        if (auditLog != null) {
+            AuditLog.Metrics m = auditLog.getMetrics();
+            System.out.println("Audit Log: " + m.written() + " written, " + m.queueDepth()
+                    + " queued, last lag " + m.lastBatchLagMs() + " ms");
+            if (m.failure() != null)
+                System.out.println("Audit Log FAILED: " + m.failure().getMessage() + ", "
+                        + m.dropped() + " events dropped");
+        }
+        for (ConnectionRouter.ReplicaStatus r : router().getReplicaStatus())
+            System.out.println("Replica " + (r.index() + 1) + ": " + (r.healthy() ? "healthy" : "unavailable")
+                    + ", lag " + (r.lagSeconds() < 0 ? "unknown" : r.lagSeconds() + " s") + ", " + r.reads() + " reads");
+        ChangePoller poller = changes == null ? null : changes.getIfInitialized();
+        if (poller != null) {
+            ChangePoller.Metrics c = poller.getMetrics();
+            System.out.println("Change Feed: seq " + c.lastSeq() + ", " + c.applied() + " applied from other instances, "
+                    + "last lag " + c.lastLagMs() + " ms, " + c.openGaps() + " open gaps");
+        }
+        System.out.println("Startup: " + timer);
+    }
+
+    /**
+     * Shows mean, highest, lowest marks and pass rate of every subject of a department.
+     *
+     * @throws SQLException if retrieval fails
+     */
+    private void showSubjectStatistics() throws SQLException {
+        System.out.print("Department: ");
+        String dept = sc.nextLine().trim();
+        System.out.println("Subject | Weight | Students | Mean | Highest | Lowest | Pass Rate(%)");
+        for (MarksDao.SubjectStats st : marksDao().getSubjectStats(dept)) {
+            MarksDao.Subject sj = st.subject();
+            System.out.println(sj.name() + " | " + sj.weight() + " | " + st.students() + " | "
+                    + String.format("%.2f", st.mean()) + " | " + st.max() + " | " + st.min() + " | "
+                    + st.passRate());
+        }
+    }
+
+    /**
+     * Shows top/bottom merit lists (overall or per department) or a single
+     * student's rank within their department.
+     *
+     * @throws SQLException if retrieval fails
+     */
+    private void showMeritLists() throws SQLException {
+        System.out.println("1.Top N 2.Bottom N 3.Top N per Dept 4.Bottom N per Dept 5.Student Rank in Dept");
+        int mChoice = sc.nextInt();
+        sc.nextLine();
+
+        if (mChoice == 5) {
+            System.out.print("Enter Roll No: ");
+            String roll = sc.nextLine();
+            AdminService.DepartmentRank rank = adminService().getDepartmentRank(roll);
+            if (rank == null)
+                System.out.println("Student not found!");
+            else
+                System.out.println("Rank " + rank.rank() + " of " + rank.total()
+                        + String.format(" (percentile %.1f)", rank.percentile()));
+            return;
+        }
+        if (mChoice < 1 || mChoice > 5) {
+            System.out.println("Invalid option!");
+            return;
+        }
+
+        System.out.print("Enter N: ");
+        int n = sc.nextInt();
+        sc.nextLine();
+        if (n <= 0) {
+            System.out.println("N must be positive!");
+            return;
+        }
+
+        switch (mChoice) {
+            case 1 -> printRanking("Top " + n, adminService().getTopN(n));
+            case 2 -> printRanking("Bottom " + n, adminService().getBottomN(n));
+            case 3 -> adminService().getTopNByDepartment(n).forEach(
+                    (dept, list) -> printRanking(departmentLabel(dept) + " - Top " + n, list));
+            default -> adminService().getBottomNByDepartment(n).forEach(
+                    (dept, list) -> printRanking(departmentLabel(dept) + " - Bottom " + n, list));
+        }
+    }
+
+    /** @return {@code dept} for display, naming the group of students without a department */
+    private static String departmentLabel(String dept) {
+        return dept == null ? "(no department)" : dept;
+    }
+
+    /**
+     * Lets the user pick a grading scheme and recomputes percentage and grade
+     * for every student. The chosen scheme is also used for later additions
+     * and updates in this session.
+     *
+     * @throws SQLException if the regrade fails
+     */
+    private void regradeStudents() throws SQLException {
+        System.out.println("Grading scheme: 1.Standard (90/75/60/45) 2.Custom");
+        int gChoice = sc.nextInt();
+        sc.nextLine();
+
+        GradingScheme scheme;
+        switch (gChoice) {
+            case 1:
+                scheme = GradingScheme.standard();
+                break;
+            case 2:
+                System.out.print("Enter minimum % for A, B, C, D (e.g. 85 70 55 40): ");
+                double[] minimums = new double[4];
+                for (int i = 0; i < minimums.length; i++)
+                    minimums[i] = sc.nextDouble();
+                sc.nextLine();
+                try {
+                    scheme = new ThresholdGradingScheme("Custom", minimums, new String[]{"A", "B", "C", "D"}, "F");
+                } catch (IllegalArgumentException e) {
+                    System.out.println("Invalid scheme: " + e.getMessage());
+                    return;
+                }
+                break;
+            default:
+                System.out.println("Invalid scheme option!");
+                return;
+        }
+
+        RegradeService.Result result = regradeAll(scheme);
+        router().markWrite();
+        gradingScheme = scheme;
+        System.out.println("Regrade complete (" + scheme.getName() + "): "
+                + result.scanned() + " scanned, " + result.changed() + " changed, "
+                + result.chunks() + " chunk(s) in " + result.elapsedMs() + " ms");
+    }
+
+    /**
+     * Regrades all students. With shards, every shard is regraded in parallel
+     * by a {@link RegradeService} of its own and the results are added up
+     * (the elapsed time is that of the slowest shard).
+     */
+    private RegradeService.Result regradeAll(GradingScheme scheme) throws SQLException {
+        if (shards == null)
+            return regradeService().regradeAll(scheme);
+
+        StudentListener forwarder = studentDao().forwarder();
+        List<RegradeService.Result> parts = shards.get().scatter((i, conn) -> {
+            RegradeService regrade = new RegradeService(conn);
+            regrade.addListener(forwarder);
+            return regrade.regradeAll(scheme);
+        });
+        int scanned = 0;
+        int changed = 0;
+        int chunks = 0;
+        long elapsedMs = 0;
+        for (RegradeService.Result r : parts) {
+            scanned += r.scanned();
+            changed += r.changed();
+            chunks += r.chunks();
+            elapsedMs = Math.max(elapsedMs, r.elapsedMs());
+        }
+        return new RegradeService.Result(scanned, changed, chunks, elapsedMs);
+    }
+
+    /**
+     * Compares a registrar roster CSV with the {@code students} table, shows
+     * the differences and applies them after confirmation. Not available with
+     * shards, since the sync compares against a single table.
+     *
+     * @throws SQLException if the sync fails
+     */
+    private void syncRoster() throws SQLException {
+        if (shards != null) {
+            System.out.println("Roster sync is not available with sharded storage.");
+            return;
+        }
+        System.out.print("Roster CSV path: ");
+        Path csv = Path.of(sc.nextLine().trim());
+
+        RosterSyncService syncService = new RosterSyncService(router().primary(), gradingScheme);
+        // The sync writes around StudentDao, so notify the same listeners
+        syncService.addListener(studentDao().forwarder());
+        try {
+            RosterSyncService.Report preview = syncService.syncFromCsv(csv, false);
+            System.out.println(preview);
+            if (preview.inserted() + preview.updated() + preview.deleted() == 0) {
+                System.out.println("Roster already in sync.");
+                return;
+            }
+
+            System.out.print("Apply these changes? (y/n): ");
+            if (!sc.nextLine().trim().equalsIgnoreCase("y")) {
+                System.out.println("Sync cancelled.");
+                return;
+            }
+            System.out.println(syncService.syncFromCsv(csv, true));
+            router().markWrite();
+        } catch (IOException e) {
+            System.out.println("Cannot read roster: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            System.out.println("Invalid roster: " + e.getMessage());
+        }
+    }
+
+    // ===================== WARM-UP =====================
+
+    /**
+     * Prepares the session in the background while the user is still logging
+     * in, so the first request of each kind is not the slow one:
+     * <ol>
+     *     <li>builds the fuzzy name index and the uniqueness guard from
+     *     streaming scans over {@code conn};</li>
+     *     <li>runs the login query and reads the subjects of every department;</li>
+     *     <li>replays the read-only hot paths (lookups, searches, marks
+     *     loading) on a sample of students {@value #WARM_UP_ROUNDS} times,
+     *     which brings the table pages into the server's buffer pool and lets
+     *     the JIT compile the code.</li>
+     * </ol>
+     * Everything runs on {@code conn} with services of its own, so no
+     * statement ever shares a connection (or a transaction) with the UI
+     * thread; only the finished index and guard are handed over. The warm-up
+     * is strictly read-only: departments without subjects get their defaults
+     * on first real use. It stops quietly at the first error; the reason is
+     * shown with the startup timings. With shards there is nothing on
+     * {@code conn} to warm up, so it is skipped.
+     *
+     * @param conn Connection reserved for the warm-up; it must not be one the UI uses
+     */
+    public void warmUp(Connection conn) {
+        if (shards != null) {
+            timer.setNote("warm-up skipped: sharded storage");
+            return;
+        }
+        try {
+            FuzzyNameIndex index = fuzzyIndex.get(() -> loadFuzzyIndex(List.of(conn)));
+            uniquenessGuard.get(() -> loadUniquenessGuard(conn));
+
+            ConnectionRouter own = ConnectionRouter.single(conn);
+            StudentDao dao = new StudentDao(own);
+            AdminService admin = new AdminService(own);
+            MarksDao marks = new MarksDao(conn);
+            new LoginService(conn).authenticate("", "");
+
+            List<String> departments = new ArrayList<>();
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT DISTINCT department FROM students")) {
+                while (rs.next())
+                    departments.add(rs.getString(1));
+            }
+            for (String dept : departments)
+                marks.findSubjects(dept);
+
+            List<Student> sample = new ArrayList<>();
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT roll_no, name, department FROM students LIMIT "
+                         + WARM_UP_SAMPLE)) {
+                while (rs.next())
+                    sample.add(new Student(rs.getString(2), rs.getString(1), rs.getString(3), null, null,
+                            0, 0, 0, 0, null));
+            }
+            List<String> rolls = new ArrayList<>();
+            for (Student s : sample)
+                rolls.add(s.getRollNo());
+
+            for (int round = 0; round < WARM_UP_ROUNDS && !sample.isEmpty(); round++) {
+                for (Student s : sample) {
+                    dao.getStudentByRollNo(s.getRollNo());
+                    String firstName = s.getName() == null ? "" : s.getName().trim().split("\\s+")[0];
+                    dao.search(new StudentCriteria().nameContains(firstName).limit(20));
+                    dao.search(new StudentCriteria().department(s.getDepartment()).minPercentage(60)
+                            .sortBy(StudentCriteria.SortField.PERCENTAGE, true).limit(20));
+                    index.search(firstName, 1, 20);
+                }
+                marks.loadMarks(dao.getStudentsByRollNos(rolls));
+            }
+            admin.getHighestMarks();
+            admin.getLowestMarks();
+            timer.mark(StartupTimer.WARM);
+        } catch (SQLException | RuntimeException e) {
+            timer.setNote("warm-up stopped: " + e.getMessage());
+        }
     }
 
     // ===================== UTILITY METHODS =====================
 
     /**
-     * Calculates the percentage of marks based on three subjects.
+     * Prompts for a line of input.
+     *
+     * @param label Prompt label
+     * @return The trimmed input (empty if the user just pressed Enter)
+     */
+    private String prompt(String label) {
+        System.out.print(label + ": ");
+        return sc.nextLine().trim();
+    }
+
+    /**
+     * Prompts for a text value, keeping the current one when the input is blank.
+     *
+     * @param label   Prompt label
+     * @param current Current value
+     * @return The entered value, or {@code current} if the input was blank
+     */
+    private String promptText(String label, String current) {
+        System.out.print(label + " [" + current + "]: ");
+        String input = sc.nextLine().trim();
+        return input.isEmpty() ? current : input;
+    }
+
+    /**
+     * Prompts for the marks of a subject, keeping the current value when the
+     * input is blank. Invalid or out-of-range input is asked for again.
      *
-     * @param s1 Subject 1 marks
-     * @param s2 Subject 2 marks
-     * @param s3 Subject 3 marks
-     * @return Average marks as a percentage
+     * @param subject Subject whose marks are asked for
+     * @param current Current marks
+     * @return The entered marks, or {@code current} if the input was blank
      */
-    private static double calculateTotalMarks(double s1, double s2, double s3) {
-        return (s1 + s2 + s3) / 3.0;
+    private double promptMarks(MarksDao.Subject subject, double current) {
+        while (true) {
+            System.out.print("Enter " + subject.name() + " Marks (out of " + subject.maxMarks() + ") [" + current + "]: ");
+            String input = sc.nextLine().trim();
+            double marks;
+            try {
+                marks = input.isEmpty() ? current : Double.parseDouble(input);
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid marks, please enter a number.");
+                continue;
+            }
+            if (inRange(subject, marks))
+                return marks;
+        }
     }
 
     /**
-     * Determines the grade based on the given percentage.
+     * Checks that marks lie between 0 and the subject's maximum, telling the
+     * user if they do not.
+     */
+    private static boolean inRange(MarksDao.Subject subject, double marks) {
+        if (marks >= 0 && marks <= subject.maxMarks())
+            return true;
+        System.out.println("Marks must be between 0 and " + subject.maxMarks() + ".");
+        return false;
+    }
+
+    /**
+     * Calculates the weighted percentage of marks over a department's subjects.
+     *
+     * @param subjects Subjects of the student's department, in position order
+     * @param marks    Marks in the same order
+     * @return Weighted percentage, rounded to two decimals
+     */
+    private static double calculateTotalMarks(List<MarksDao.Subject> subjects, double[] marks) {
+        return MarksDao.percentage(subjects, marks);
+    }
+
+    /**
+     * Determines the grade based on the given percentage using the
+     * currently active {@link GradingScheme}.
      *
      * @param total Calculated percentage
-     * @return Corresponding grade (A–F)
+     * @return Corresponding grade
+     */
+    private String calculateGrade(double total) {
+        return gradingScheme.grade(total);
+    }
+
+    /**
+     * Prints a ranked list under a heading.
+     *
+     * @param title Heading of the list
+     * @param list  Ranked students
      */
-    private static String calculateGrade(double total) {
-        if (total >= 90) return "A";
-        if (total >= 75) return "B";
-        if (total >= 60) return "C";
-        if (total >= 45) return "D";
-        return "F";
+    private static void printRanking(String title, List<AdminService.RankedStudent> list) {
+        System.out.println("--- " + title + " ---");
+        System.out.println("Rank | RollNo | Name | Dept | Percentage(%)");
+        for (AdminService.RankedStudent r : list) {
+            System.out.println(r.rank() + " | " + r.rollNo() + " | " + r.name() + " | "
+                    + r.department() + " | " + String.format("%.2f", r.percentage()));
+        }
     }
 
     /**
@@ -311,10 +961,14 @@ public class UI {
      *
      * @param students List of {@link Student} objects to display
      */
-    private static void printStudentList(List<Student> students) {
+    private void printStudentList(List<Student> students) throws SQLException {
+        // Per-subject marks, fetched for a page of students per query
+        for (int from = 0; from < students.size(); from += MARKS_PAGE_SIZE)
+            marksDao().loadMarks(students.subList(from, Math.min(students.size(), from + MARKS_PAGE_SIZE)));
+
         System.out.println(
                 "------------------------------------------------------------------------------------------------------------------------------------------------------------------------------------------");
-        System.out.println("RollNo | Name | Dept | Sub1 | Sub2 | Sub3 | Percentage(%) | Grade | Email | Phone |");
+        System.out.println("RollNo | Name | Dept | Marks | Percentage(%) | Grade | Email | Phone |");
         System.out.println(
                 "------------------------------------------------------------------------------------------------------------------------------------------------------------------------------------------");
 
@@ -323,9 +977,7 @@ public class UI {
                     s.getRollNo() + " | " +
                             s.getName() + " | " +
                             s.getDepartment() + " | " +
-                            s.getSub1() + " | " +
-                            s.getSub2() + " | " +
-                            s.getSub3() + " | " +
+                            formatMarks(s.getMarks()) + " | " +
                             String.format("%.2f", s.getPercentage()) + " | " +
                             s.getGrade() + " | " +
                             s.getEmail() + " | " +
@@ -336,4 +988,15 @@ public class UI {
         System.out.println(
                 "------------------------------------------------------------------------------------------------------------------------------------------------------------------------------------------");
     }
+
+    /** Marks joined as {@code "78.0 / 65.0 / 90.0"}. */
+    private static String formatMarks(double[] marks) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < marks.length; i++) {
+            if (i > 0)
+                sb.append(" / ");
+            sb.append(marks[i]);
+        }
+        return sb.toString();
+    }
 }
@@ -0,0 +1,352 @@
+package in.sp.main;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@code UniquenessGuard} class rejects students whose {@code roll_no} or
+ * {@code email} is already taken before they are sent to the database.
+ * <p>
+ * It keeps one {@link BloomFilter} per unique column. A filter miss proves the
+ * value is free, so no query is needed; only a possible hit falls back to an
+ * exact, indexed lookup. The filters are sized from {@code COUNT(*)} (with
+ * room to grow) and filled by one streamed scan. After that they are kept
+ * current as a {@link StudentListener}; deleted values stay in the filters
+ * (Bloom filters cannot remove) and merely cost an exact check. When more
+ * values were added than the filters were sized for, {@link #rebuild()}
+ * re-reads the table; changes reported while it runs go into both the old
+ * and the new filters, so none are lost.
+ * <p>
+ * Values are compared lower-cased, matching the case-insensitive collation of
+ * the unique indexes.
+ * <p>
+ * A filter miss is never used as proof that a row does not exist. Writes
+ * that bypass this process's {@link StudentDao} (a bulk load, an instance
+ * without the change log) may be missing from the filters; the guard then
+ * lets a duplicate through and the database's unique index rejects it, as it
+ * would without a guard. Feed such writes in through {@link #onStudentChanged}
+ * or call {@link #rebuild()} to keep the precheck effective.
+ */
+public class UniquenessGuard implements StudentListener {
+
+    /** Default false-positive probability of each filter. */
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    /** Filters are sized for this many times the current row count. */
+    private static final int GROWTH_FACTOR = 2;
+
+    /** Minimum filter capacity, so a small table can still grow. */
+    private static final int MIN_CAPACITY = 1 << 16;
+
+    /** Largest number of values per exact-check {@code IN} query. */
+    private static final int EXACT_CHECK_BATCH = 500;
+
+    /**
+     * Why a student was rejected.
+     *
+     * @param student The rejected student
+     * @param reason  Human readable reason, e.g. {@code "roll_no R1 already exists"}
+     */
+    public record Rejection(Student student, String reason) {
+    }
+
+    /**
+     * Outcome of {@link #screen(List)}.
+     *
+     * @param accepted Students that can be inserted
+     * @param rejected Students that would violate a unique key
+     */
+    public record Screening(List<Student> accepted, List<Rejection> rejected) {
+    }
+
+    /**
+     * Counters of the guard.
+     *
+     * @param lookups        Values tested against a filter
+     * @param filterMisses   Lookups answered by the filter alone (value not seen, insert left to the database)
+     * @param exactChecks    Values that needed an exact database check
+     * @param falsePositives Exact checks that found the value free after all
+     */
+    public record Metrics(long lookups, long filterMisses, long exactChecks, long falsePositives) {
+    }
+
+    private final Connection conn;
+    private final double falsePositiveRate;
+    private volatile BloomFilter rolls;
+    private volatile BloomFilter emails;
+
+    /** New {@code {rolls, emails}} filters while a rebuild scan runs, else {@code null}; guarded by {@code this}. */
+    private BloomFilter[] filling;
+
+    /** Serialises rebuilds. */
+    private final Object rebuildLock = new Object();
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong filterMisses = new AtomicLong();
+    private final AtomicLong exactChecks = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    private UniquenessGuard(Connection conn, double falsePositiveRate) {
+        this.conn = conn;
+        this.falsePositiveRate = falsePositiveRate;
+        this.rolls = new BloomFilter(MIN_CAPACITY, falsePositiveRate);
+        this.emails = new BloomFilter(MIN_CAPACITY, falsePositiveRate);
+    }
+
+    /**
+     * Creates a guard with empty filters, to be registered as a listener
+     * before it is filled with {@link #rebuild(Connection)}. Until then every
+     * insert is left to the database.
+     *
+     * @param conn Active {@link Connection} used for exact checks and later rebuilds
+     * @return The empty guard
+     */
+    public static UniquenessGuard empty(Connection conn) {
+        return new UniquenessGuard(conn, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Builds a guard with one streamed scan of {@code (roll_no, email)}.
+     *
+     * @param conn              Active {@link Connection} used for the scan and for exact checks
+     * @param falsePositiveRate Target false-positive probability per filter
+     * @return The populated guard
+     * @throws SQLException if the table cannot be read
+     */
+    public static UniquenessGuard build(Connection conn, double falsePositiveRate) throws SQLException {
+        UniquenessGuard guard = new UniquenessGuard(conn, falsePositiveRate);
+        guard.rebuild();
+        return guard;
+    }
+
+    /**
+     * Builds a guard with {@link #DEFAULT_FALSE_POSITIVE_RATE}.
+     *
+     * @param conn Active {@link Connection} used for the scan and for exact checks
+     * @return The populated guard
+     * @throws SQLException if the table cannot be read
+     */
+    public static UniquenessGuard build(Connection conn) throws SQLException {
+        return build(conn, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * Re-sizes the filters from the current row count and refills them from a streamed scan.
+     *
+     * @throws SQLException if the table cannot be read
+     */
+    public void rebuild() throws SQLException {
+        rebuild(conn);
+    }
+
+    /**
+     * Re-sizes and refills the filters from a streamed scan over {@code scanConn}.
+     * A streamed scan blocks its connection until it ends, so this lets the
+     * guard be filled in the background while its own connection stays usable.
+     *
+     * @param scanConn Connection used only for the scan
+     * @throws SQLException if the table cannot be read
+     */
+    public void rebuild(Connection scanConn) throws SQLException {
+        synchronized (rebuildLock) {
+            fill(scanConn);
+        }
+    }
+
+    private void fill(Connection scanConn) throws SQLException {
+        long count;
+        try (Statement st = scanConn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM students")) {
+            count = rs.next() ? rs.getLong(1) : 0;
+        }
+        long capacity = Math.max(MIN_CAPACITY, count * GROWTH_FACTOR);
+        BloomFilter newRolls = new BloomFilter(capacity, falsePositiveRate);
+        BloomFilter newEmails = new BloomFilter(capacity, falsePositiveRate);
+
+        // From here on, listeners also write into the new filters; anything
+        // committed before this point is seen by the scan
+        synchronized (this) {
+            filling = new BloomFilter[] {newRolls, newEmails};
+        }
+        boolean complete = false;
+        try (Statement st = scanConn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            st.setFetchSize(Integer.MIN_VALUE); // MySQL: stream rows instead of buffering the table
+            try (ResultSet rs = st.executeQuery("SELECT roll_no, email FROM students")) {
+                while (rs.next()) {
+                    newRolls.put(key(rs.getString(1)));
+                    String email = rs.getString(2);
+                    if (email != null)
+                        newEmails.put(key(email));
+                }
+            }
+            complete = true;
+        } finally {
+            synchronized (this) {
+                if (complete) {
+                    rolls = newRolls;
+                    emails = newEmails;
+                }
+                filling = null;
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the filters if they hold more values than they were sized for
+     * (their false-positive rate is then rising).
+     *
+     * @return {@code true} if the filters were rebuilt
+     * @throws SQLException if the table cannot be read
+     */
+    public boolean rebuildIfSaturated() throws SQLException {
+        if (!rolls.isSaturated() && !emails.isSaturated())
+            return false;
+        rebuild();
+        return true;
+    }
+
+    @Override
+    public void onStudentChanged(ChangeType type, String rollNo, Student s) {
+        if (type == ChangeType.DELETE)
+            return; // cannot remove from a Bloom filter; stale entries only cost an exact check
+        String email = s == null || s.getEmail() == null ? null : key(s.getEmail());
+        synchronized (this) {
+            put(rolls, emails, key(rollNo), email);
+            if (filling != null)
+                put(filling[0], filling[1], key(rollNo), email);
+        }
+    }
+
+    private static void put(BloomFilter rollFilter, BloomFilter emailFilter, String roll, String email) {
+        rollFilter.put(roll);
+        if (email != null)
+            emailFilter.put(email);
+    }
+
+    // ===========================================================
+    // =============== LOOKUPS ===================================
+    // ===========================================================
+
+    /**
+     * Checks whether a new student would violate a unique key.
+     *
+     * @param s Student about to be inserted
+     * @return Reason for rejection, or {@code null} if the student can be inserted
+     * @throws SQLException if the exact check fails
+     */
+    public String conflictOf(Student s) throws SQLException {
+        Screening screening = screen(List.of(s));
+        return screening.rejected().isEmpty() ? null : screening.rejected().get(0).reason();
+    }
+
+    /**
+     * Splits a batch into students that can be inserted and students that
+     * would violate a unique key, either against the table or against an
+     * earlier student of the same batch. Values the filters have never seen
+     * are accepted without a query; the possible hits are checked exactly with
+     * one {@code IN} query per column and chunk.
+     *
+     * @param batch Students about to be inserted
+     * @return Accepted and rejected students, each in input order
+     * @throws SQLException if the exact check fails
+     */
+    public Screening screen(List<Student> batch) throws SQLException {
+        List<String> maybeRolls = new ArrayList<>();
+        List<String> maybeEmails = new ArrayList<>();
+        for (Student s : batch) {
+            lookups.incrementAndGet();
+            if (rolls.mightContain(key(s.getRollNo())))
+                maybeRolls.add(s.getRollNo());
+            else
+                filterMisses.incrementAndGet();
+            if (s.getEmail() != null) {
+                lookups.incrementAndGet();
+                if (emails.mightContain(key(s.getEmail())))
+                    maybeEmails.add(s.getEmail());
+                else
+                    filterMisses.incrementAndGet();
+            }
+        }
+        return split(batch, existing("roll_no", maybeRolls), existing("email", maybeEmails));
+    }
+
+    /**
+     * Splits a batch given the roll numbers and emails already taken
+     * (lower-cased, see {@link #key}); also rejects repeats within the batch.
+     *
+     * @return Accepted and rejected students, each in input order
+     */
+    static Screening split(List<Student> batch, Set<String> takenRolls, Set<String> takenEmails) {
+        List<Student> accepted = new ArrayList<>(batch.size());
+        List<Rejection> rejected = new ArrayList<>();
+        Set<String> batchRolls = new HashSet<>();
+        Set<String> batchEmails = new HashSet<>();
+        for (Student s : batch) {
+            String roll = key(s.getRollNo());
+            String email = s.getEmail() == null ? null : key(s.getEmail());
+            if (takenRolls.contains(roll))
+                rejected.add(new Rejection(s, "roll_no " + s.getRollNo() + " already exists"));
+            else if (email != null && takenEmails.contains(email))
+                rejected.add(new Rejection(s, "email " + s.getEmail() + " already exists"));
+            else if (!batchRolls.add(roll))
+                rejected.add(new Rejection(s, "roll_no " + s.getRollNo() + " is repeated in the batch"));
+            else if (email != null && !batchEmails.add(email))
+                rejected.add(new Rejection(s, "email " + s.getEmail() + " is repeated in the batch"));
+            else
+                accepted.add(s);
+        }
+        return new Screening(accepted, rejected);
+    }
+
+    /** Exact check: which of {@code values} are present in {@code column} (lower-cased keys). */
+    private Set<String> existing(String column, List<String> values) throws SQLException {
+        Set<String> found = new HashSet<>();
+        for (int from = 0; from < values.size(); from += EXACT_CHECK_BATCH) {
+            List<String> chunk = values.subList(from, Math.min(values.size(), from + EXACT_CHECK_BATCH));
+            StringBuilder sql = new StringBuilder("SELECT ").append(column).append(" FROM students WHERE ")
+                    .append(column).append(" IN (");
+            for (int i = 0; i < chunk.size(); i++)
+                sql.append(i == 0 ? "?" : ",?");
+            sql.append(')');
+
+            int hits = 0;
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < chunk.size(); i++)
+                    ps.setString(i + 1, chunk.get(i));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        found.add(key(rs.getString(1)));
+                        hits++;
+                    }
+                }
+            }
+            exactChecks.addAndGet(chunk.size());
+            falsePositives.addAndGet(Math.max(0, chunk.size() - hits));
+        }
+        return found;
+    }
+
+    /** @return Current counters */
+    public Metrics getMetrics() {
+        return new Metrics(lookups.get(), filterMisses.get(), exactChecks.get(), falsePositives.get());
+    }
+
+    /** @return Memory used by both filters in bytes */
+    public long sizeInBytes() {
+        return rolls.sizeInBytes() + emails.sizeInBytes();
+    }
+
+    /** @return The comparison key of a unique value, matching the case-insensitive collation */
+    static String key(String value) {
+        return value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,436 @@
+package in.sp.main;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The {@code WorkloadDriver} class replays a configurable mix of
+ * {@link StudentDao}, {@link AdminService} and {@link LoginService} calls from
+ * {@code N} concurrent clients and reports throughput and latency percentiles
+ * per operation.
+ * <p>
+ * Each client opens its own connection and its own service objects, like one
+ * application instance. Operation arguments (roll numbers, name fragments,
+ * departments) are sampled from the existing data, so the database should
+ * first be filled with {@link DataGenerator}. Every client records latencies
+ * into private histograms, which are merged after the run, so measuring adds
+ * no contention. The first seconds of the run are a warm-up and not recorded.
+ * <p>
+ * Usage:
+ * <pre>
+ *     java in.sp.main.WorkloadDriver [clients] [seconds] [mix] [warmupSeconds] [seed]
+ * </pre>
+ * {@code mix} lists operation weights, e.g. {@code get=50,criteria=20,patch=10,stats=5};
+ * operations not listed are not run. Defaults: 8 clients, 30 seconds, the
+ * {@link #DEFAULT_MIX}, 5 seconds warm-up, seed 42. Results are printed and
+ * also written as CSV to {@code bench-results/}.
+ */
+public class WorkloadDriver {
+
+    /** Operations the driver can issue. */
+    enum Op {
+        /** {@link StudentDao#getStudentByRollNo(String)} */
+        GET("get"),
+        /** {@link StudentDao#search(StudentCriteria)}: department, minimum percentage, best 20 */
+        CRITERIA("criteria"),
+        /** {@link StudentDao#searchByName(String)} */
+        NAME("name"),
+        /** {@link StudentDao#searchByMarksRange(double)} for the top few percent */
+        RANGE("range"),
+        /** {@link AdminService#getTotalStudents()}, highest and lowest marks */
+        STATS("stats"),
+        /** {@link AdminService#getTopN(int)} */
+        TOP("top"),
+        /** {@link AdminService#getDepartmentRank(String)} */
+        RANK("rank"),
+        /** {@link StudentDao#updateWithRetry} changing the phone number */
+        PATCH("patch"),
+        /** {@link LoginService#authenticate(String, String)} */
+        LOGIN("login");
+
+        final String key;
+
+        Op(String key) {
+            this.key = key;
+        }
+    }
+
+    /** Read-mostly mix resembling interactive use during term. */
+    public static final String DEFAULT_MIX = "get=45,criteria=15,name=10,range=2,stats=5,top=1,rank=7,patch=12,login=3";
+
+    /** Number of roll numbers and names sampled from the table for arguments. */
+    private static final int SAMPLE_SIZE = 10_000;
+
+    /** Directory receiving the CSV results. */
+    static final Path RESULTS_DIR = Path.of("bench-results");
+
+    /**
+     * Runs the workload and prints one line per operation.
+     *
+     * @param args Optional {@code clients seconds mix warmupSeconds seed}
+     * @throws Exception if the driver cannot connect or is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        String mixSpec = args.length > 2 ? args[2] : DEFAULT_MIX;
+        int warmup = args.length > 3 ? Integer.parseInt(args[3]) : 5;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 42;
+
+        Mix mix = Mix.parse(mixSpec);
+        Sample sample = Sample.load(SAMPLE_SIZE, seed);
+        if (sample.rolls.isEmpty()) {
+            System.err.println("No students found; load data with DataGenerator first.");
+            return;
+        }
+        System.out.println("Clients: " + clients + ", duration: " + seconds + " s (+" + warmup
+                + " s warm-up), mix: " + mixSpec);
+
+        Map<Op, Stats> total = run(clients, seconds, warmup, seed, mix, sample);
+        report(total, seconds, clients, mixSpec);
+    }
+
+    // ===========================================================
+    // =============== CLIENTS ===================================
+    // ===========================================================
+
+    /** Latency and error counters for one operation. */
+    static final class Stats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        long errors;
+
+        void merge(Stats other) {
+            latency.merge(other.latency);
+            errors += other.errors;
+        }
+    }
+
+    private static Map<Op, Stats> run(int clients, int seconds, int warmup, long seed, Mix mix, Sample sample)
+            throws InterruptedException {
+        List<Map<Op, Stats>> perClient = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(clients);
+        long measureFrom = System.nanoTime() + warmup * 1_000_000_000L;
+        long deadline = measureFrom + seconds * 1_000_000_000L;
+        SplittableRandom seeds = new SplittableRandom(seed);
+
+        for (int c = 0; c < clients; c++) {
+            Map<Op, Stats> stats = new EnumMap<>(Op.class);
+            for (Op op : Op.values())
+                stats.put(op, new Stats());
+            perClient.add(stats);
+            SplittableRandom rnd = seeds.split();
+
+            Thread client = new Thread(() -> {
+                try (Connection conn = DatabaseConnection.getConnection()) {
+                    Client cl = new Client(conn, sample, rnd);
+                    long now;
+                    while ((now = System.nanoTime()) < deadline) {
+                        Op op = mix.next(rnd);
+                        boolean ok = true;
+                        try {
+                            cl.execute(op);
+                        } catch (SQLException e) {
+                            ok = false;
+                        }
+                        long end = System.nanoTime();
+                        if (now >= measureFrom) {
+                            Stats s = stats.get(op);
+                            if (ok)
+                                s.latency.record((end - now) / 1_000);
+                            else
+                                s.errors++;
+                        }
+                    }
+                } catch (SQLException e) {
+                    System.err.println("Client could not connect: " + e.getMessage());
+                } finally {
+                    done.countDown();
+                }
+            }, "workload-client-" + c);
+            client.start();
+        }
+        done.await();
+
+        Map<Op, Stats> total = new EnumMap<>(Op.class);
+        for (Op op : Op.values())
+            total.put(op, new Stats());
+        for (Map<Op, Stats> stats : perClient)
+            stats.forEach((op, s) -> total.get(op).merge(s));
+        return total;
+    }
+
+    /** One simulated application instance. */
+    private static final class Client {
+        private final StudentDao dao;
+        private final AdminService admin;
+        private final LoginService login;
+        private final Sample sample;
+        private final SplittableRandom rnd;
+
+        Client(Connection conn, Sample sample, SplittableRandom rnd) {
+            this.dao = new StudentDao(conn);
+            this.admin = new AdminService(conn);
+            this.login = new LoginService(conn);
+            this.sample = sample;
+            this.rnd = rnd;
+        }
+
+        void execute(Op op) throws SQLException {
+            switch (op) {
+                case GET -> dao.getStudentByRollNo(sample.roll(rnd));
+                case CRITERIA -> dao.search(new StudentCriteria()
+                        .department(sample.department(rnd))
+                        .minPercentage(60 + rnd.nextInt(30))
+                        .sortBy(StudentCriteria.SortField.PERCENTAGE, true)
+                        .limit(20));
+                case NAME -> dao.searchByName(sample.nameFragment(rnd));
+                case RANGE -> dao.searchByMarksRange(95 + rnd.nextInt(5));
+                case STATS -> {
+                    admin.getTotalStudents();
+                    admin.getHighestMarks();
+                    admin.getLowestMarks();
+                }
+                case TOP -> admin.getTopN(10);
+                case RANK -> admin.getDepartmentRank(sample.roll(rnd));
+                case PATCH -> {
+                    String phone = String.valueOf(6_000_000_000L + rnd.nextLong(4_000_000_000L));
+                    dao.updateWithRetry(sample.roll(rnd), s -> s.setPhone(phone), 5);
+                }
+                case LOGIN -> login.authenticate("admin", "admin123");
+            }
+        }
+    }
+
+    // ===========================================================
+    // =============== WORKLOAD DEFINITION =======================
+    // ===========================================================
+
+    /** Weighted choice of operations. */
+    static final class Mix {
+        private final Op[] ops;
+        private final int[] cumulative;
+
+        private Mix(Op[] ops, int[] cumulative) {
+            this.ops = ops;
+            this.cumulative = cumulative;
+        }
+
+        /**
+         * @param spec Comma-separated {@code op=weight} pairs
+         * @return The parsed mix
+         * @throws IllegalArgumentException for unknown operations or no positive weight
+         */
+        static Mix parse(String spec) {
+            List<Op> ops = new ArrayList<>();
+            List<Integer> cumulative = new ArrayList<>();
+            int sum = 0;
+            for (String part : spec.split(",")) {
+                String[] kv = part.trim().split("=");
+                if (kv.length != 2)
+                    throw new IllegalArgumentException("Expected op=weight: " + part);
+                Op op = null;
+                for (Op o : Op.values()) {
+                    if (o.key.equalsIgnoreCase(kv[0].trim()))
+                        op = o;
+                }
+                if (op == null)
+                    throw new IllegalArgumentException("Unknown operation: " + kv[0]);
+                int weight = Integer.parseInt(kv[1].trim());
+                if (weight <= 0)
+                    continue;
+                sum += weight;
+                ops.add(op);
+                cumulative.add(sum);
+            }
+            if (ops.isEmpty())
+                throw new IllegalArgumentException("Mix has no operation with a positive weight");
+            return new Mix(ops.toArray(new Op[0]), cumulative.stream().mapToInt(Integer::intValue).toArray());
+        }
+
+        Op next(SplittableRandom rnd) {
+            int r = rnd.nextInt(cumulative[cumulative.length - 1]);
+            int i = 0;
+            while (cumulative[i] <= r)
+                i++;
+            return ops[i];
+        }
+    }
+
+    /** Arguments sampled from the live table (reservoir sampling over one streamed scan). */
+    static final class Sample {
+        final List<String> rolls = new ArrayList<>();
+        final List<String> names = new ArrayList<>();
+        final List<String> departments = new ArrayList<>();
+
+        static Sample load(int size, long seed) throws SQLException {
+            Sample sample = new Sample();
+            SplittableRandom rnd = new SplittableRandom(seed);
+            try (Connection conn = DatabaseConnection.getConnection()) {
+                try (Statement st = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                    st.setFetchSize(Integer.MIN_VALUE); // MySQL: stream rows instead of buffering the table
+                    try (ResultSet rs = st.executeQuery("SELECT roll_no, name FROM students")) {
+                        long seen = 0;
+                        while (rs.next()) {
+                            seen++;
+                            if (sample.rolls.size() < size) {
+                                sample.rolls.add(rs.getString(1));
+                                sample.names.add(rs.getString(2));
+                            } else {
+                                long j = rnd.nextLong(seen);
+                                if (j < size) {
+                                    sample.rolls.set((int) j, rs.getString(1));
+                                    sample.names.set((int) j, rs.getString(2));
+                                }
+                            }
+                        }
+                    }
+                }
+                try (Statement st = conn.createStatement();
+                     ResultSet rs = st.executeQuery("SELECT DISTINCT department FROM students")) {
+                    while (rs.next()) {
+                        if (rs.getString(1) != null)
+                            sample.departments.add(rs.getString(1));
+                    }
+                }
+            }
+            return sample;
+        }
+
+        String roll(SplittableRandom rnd) {
+            return rolls.get(rnd.nextInt(rolls.size()));
+        }
+
+        String department(SplittableRandom rnd) {
+            return departments.isEmpty() ? "" : departments.get(rnd.nextInt(departments.size()));
+        }
+
+        /** First few letters of a random word of a sampled name, like an operator would type. */
+        String nameFragment(SplittableRandom rnd) {
+            String[] words = names.get(rnd.nextInt(names.size())).trim().split("\\s+");
+            String word = words[rnd.nextInt(words.length)];
+            return word.substring(0, Math.min(word.length(), 3 + rnd.nextInt(3)));
+        }
+    }
+
+    // ===========================================================
+    // =============== REPORTING =================================
+    // ===========================================================
+
+    private static void report(Map<Op, Stats> total, int seconds, int clients, String mix) throws IOException {
+        String header = "op,count,errors,ops_per_sec,p50_us,p90_us,p99_us,p999_us,max_us";
+        List<String> rows = new ArrayList<>();
+        long all = 0;
+
+        System.out.printf("%-9s %10s %7s %10s %9s %9s %9s %9s %9s%n",
+                "op", "count", "errors", "ops/s", "p50 us", "p90 us", "p99 us", "p99.9 us", "max us");
+        for (Map.Entry<Op, Stats> e : total.entrySet()) {
+            Stats s = e.getValue();
+            LatencyHistogram h = s.latency;
+            if (h.count() == 0 && s.errors == 0)
+                continue;
+            all += h.count();
+            double rate = h.count() / (double) seconds;
+            System.out.printf("%-9s %10d %7d %10.1f %9d %9d %9d %9d %9d%n", e.getKey().key, h.count(), s.errors,
+                    rate, h.percentile(50), h.percentile(90), h.percentile(99), h.percentile(99.9), h.max());
+            rows.add(e.getKey().key + "," + h.count() + "," + s.errors + "," + String.format("%.1f", rate) + ","
+                    + h.percentile(50) + "," + h.percentile(90) + "," + h.percentile(99) + ","
+                    + h.percentile(99.9) + "," + h.max());
+        }
+        System.out.printf("Total: %,.1f ops/s%n", all / (double) seconds);
+
+        Files.createDirectories(RESULTS_DIR);
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+        Path file = RESULTS_DIR.resolve("workload-" + stamp + ".csv");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.println("# clients=" + clients + " seconds=" + seconds + " mix=" + mix);
+            out.println(header);
+            rows.forEach(out::println);
+        }
+        System.out.println("Results written to " + file);
+    }
+
+    /**
+     * Log-linear latency histogram: 16 sub-buckets per power of two, so every
+     * recorded value is reported within about 6 % of its true value.
+     * Not thread-safe; each client owns its histograms.
+     */
+    static final class LatencyHistogram {
+        private static final int SUB_BITS = 4;
+        private static final int SUB = 1 << SUB_BITS;
+
+        private final long[] counts = new long[SUB + (64 - SUB_BITS) * SUB];
+        private long count;
+        private long max;
+
+        void record(long value) {
+            long v = Math.max(0, value);
+            counts[index(v)]++;
+            count++;
+            max = Math.max(max, v);
+        }
+
+        void merge(LatencyHistogram other) {
+            for (int i = 0; i < counts.length; i++)
+                counts[i] += other.counts[i];
+            count += other.count;
+            max = Math.max(max, other.max);
+        }
+
+        long count() {
+            return count;
+        }
+
+        long max() {
+            return max;
+        }
+
+        /**
+         * @param p Percentile (0–100)
+         * @return Upper bound of the bucket holding the {@code p}-th percentile value
+         */
+        long percentile(double p) {
+            if (count == 0)
+                return 0;
+            long rank = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank)
+                    return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+
+        private static int index(long v) {
+            if (v < SUB)
+                return (int) v;
+            int exp = 63 - Long.numberOfLeadingZeros(v); // >= SUB_BITS
+            int sub = (int) (v >>> (exp - SUB_BITS)) & (SUB - 1);
+            return SUB + (exp - SUB_BITS) * SUB + sub;
+        }
+
+        private static long upperBound(int index) {
+            if (index < SUB)
+                return index;
+            int exp = (index - SUB) / SUB + SUB_BITS;
+            int sub = (index - SUB) % SUB;
+            long base = (1L << exp) + ((long) sub << (exp - SUB_BITS));
+            return base + (1L << (exp - SUB_BITS)) - 1;
+        }
+    }
+}
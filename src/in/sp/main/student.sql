@@ -12,5 +12,9 @@ CREATE TABLE IF NOT EXISTS students (
     sub2 DOUBLE,
     sub3 DOUBLE,
     percentage DECIMAL(5,2),
-    grade VARCHAR(2)
-);
\ No newline at end of file
+    grade VARCHAR(2),
+    version INT NOT NULL DEFAULT 0
+);
+
+-- Indexes and later columns are added at startup by SchemaMigrator
+-- (recorded in the schema_history table).
\ No newline at end of file